@@ -0,0 +1,120 @@
+package hello.jdbc.admission;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀보다 훨씬 많은 동시 요청 - 진입 제어 없음(none) vs AIMD 진입 제어(aimd)
+ - 인메모리 H2 + HikariCP(커넥션 4개, 커넥션 대기 250ms), 64 스레드
+ - 조회마다 10ms 지연 -> 트랜잭션 하나가 약 20ms 동안 커넥션 점유
+ - succeeded: 성공한 이체, poolTimeouts: 커넥션 대기 시간 초과, rejected: 진입 제어로 빠르게 거절(거절되면 10ms 후 다시 요청)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdmissionControlBenchmark {
+
+    private static final int MEMBERS = 100;
+
+    @Param({"none", "aimd"})
+    String admission;
+
+    HikariDataSource dataSource;
+    MemberServiceV4 memberService;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long succeeded;
+        public long poolTimeouts;
+        public long rejected;
+    }
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:admission-bench-" + admission + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(4);
+        dataSource.setConnectionTimeout(250);
+
+        new JdbcTemplate(dataSource).execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        SlowMemberRepository repository = new SlowMemberRepository(dataSource);
+        for(int i = 0; i < MEMBERS; i++) {
+            repository.save(new Member("m" + i, 1_000_000_000));
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(new MemberServiceV4(repository));
+        proxyFactory.setProxyTargetClass(true);
+        if(admission.equals("aimd")) {
+            proxyFactory.addAdvice(new AdmissionControlInterceptor(new AdaptiveConcurrencyLimit(4, 1, 16, 50, 0.9, 8), 50));
+        }
+        proxyFactory.addAdvice(new TransactionInterceptor((TransactionManager) new DataSourceTransactionManager(dataSource), new AnnotationTransactionAttributeSource()));
+        memberService = (MemberServiceV4) proxyFactory.getProxy();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void transfer(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(MEMBERS);
+        int to = (from + 1 + random.nextInt(MEMBERS - 1)) % MEMBERS;
+        try {
+            memberService.accountTransfer("m" + from, "m" + to, 1);
+            outcome.succeeded++;
+        } catch(AdmissionRejectedException e) {
+            outcome.rejected++;
+            backoff();
+        } catch(RuntimeException e) {
+            outcome.poolTimeouts++;
+        }
+    }
+
+    /**
+     * 거절된 클라이언트는 잠시 후 다시 요청 - 바로 다시 요청하면 거절 루프가 CPU 를 차지해서 실행중인 요청이 느려짐
+     */
+    private void backoff() {
+        try {
+            Thread.sleep(10);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class SlowMemberRepository extends MemberRepositoryV5 {
+        SlowMemberRepository(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            try {
+                Thread.sleep(10);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.findById(memberId);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 검증 실패가 섞인 이체 부하 - 기본(eager) vs 지연 커넥션(lazy)
+ - MemberServiceV4Test 의 예외 케이스처럼 받는 회원이 "ex" 인 요청을 failRatio 비율로 섞음
+ - 검증은 SQL 실행 전에 수행, 통과한 요청만 MemberServiceV4 로 이체
+ - 커넥션 풀(4개)보다 많은 8개 쓰레드로 실행 -> 커넥션 점유 시간이 처리량에 직접 영향
+ - 종료시 출력: checkouts/op 요청당 커넥션 풀에서 커넥션을 꺼낸 횟수, holdMicros/op 요청당 커넥션 점유 시간(마이크로초)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyConnectionBenchmark {
+
+    private static final int MEMBERS = 1000;
+
+    @Param({"eager", "lazy"})
+    String mode;
+
+    @Param({"0.5"})
+    double failRatio;
+
+    HikariDataSource pool;
+    TransactionTemplate txTemplate;
+    MemberServiceV4 memberService;
+
+    final LongAdder requests = new LongAdder();
+    final LongAdder checkouts = new LongAdder();
+    final LongAdder holdNanos = new LongAdder();
+
+    @Setup
+    public void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:lazy-bench-" + mode + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(4);
+
+        DataSource measured = new MeasuredDataSource(pool);
+        DataSource dataSource = mode.equals("lazy") ? LazyConnectionConfig.lazy(measured) : measured;
+
+        new JdbcTemplate(dataSource).execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        MemberRepository memberRepository = new MemberRepositoryV5(dataSource);
+        for(int i = 0; i < MEMBERS; i++) {
+            memberRepository.save(new Member("m" + i, 1_000_000_000));
+        }
+        memberService = new MemberServiceV4(memberRepository);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        requests.reset();
+        checkouts.reset();
+        holdNanos.reset();
+    }
+
+    @TearDown
+    public void tearDown() {
+        long count = Math.max(1, requests.sum());
+        System.out.printf("%n[%s] checkouts/op = %.3f, holdMicros/op = %.1f%n",
+                mode, (double) checkouts.sum() / count, holdNanos.sum() / 1000.0 / count);
+        pool.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String fromId = "m" + random.nextInt(MEMBERS);
+        String toId = random.nextDouble() < failRatio ? "ex" : "m" + random.nextInt(MEMBERS);
+        requests.increment();
+        try {
+            txTemplate.executeWithoutResult(status -> {
+                validation(toId);
+                memberService.accountTransfer(fromId, toId, 1);
+            });
+        } catch(IllegalStateException e) {
+            //검증 실패
+        }
+    }
+
+    private void validation(String toId) {
+        if(toId.equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+
+    /**
+     * 커넥션 풀에서 꺼낸 횟수와 반환할 때까지의 시간 기록
+     */
+    private class MeasuredDataSource extends DelegatingDataSource {
+
+        MeasuredDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection con = super.getConnection();
+            checkouts.increment();
+            long start = System.nanoTime();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if(method.getName().equals("close")) {
+                    holdNanos.add(System.nanoTime() - start);
+                }
+                try {
+                    return method.invoke(con, args);
+                } catch(InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package hello.jdbc.event;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.EventSourcedMemberService;
+import hello.jdbc.service.MemberServiceV4;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 이체 처리량 - 잔액 직접 변경(direct) vs 이벤트 추가(eventSourced)
+ - 인메모리 H2 + HikariCP, 임의의 두 회원 사이 이체
+ - eventSourced 는 BalanceMaterializer 가 백그라운드에서 동시에 member 테이블을 갱신
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventSourcedTransferBenchmark {
+
+    private static final int MEMBERS = 1000;
+
+    @Param({"direct", "eventSourced"})
+    String mode;
+
+    HikariDataSource dataSource;
+    TransactionTemplate txTemplate;
+    MemberServiceV4 directService;
+    EventSourcedMemberService eventService;
+    BalanceMaterializer materializer;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:event-bench-" + mode + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table member_event (event_id bigint auto_increment primary key, member_id varchar(10) not null, amount integer not null, created_at timestamp default current_timestamp not null)");
+        template.execute("create table member_snapshot (member_id varchar(10), event_id bigint, money integer not null, primary key (member_id, event_id))");
+        template.execute("create table member_event_checkpoint (name varchar(50) primary key, event_id bigint not null)");
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        txTemplate = new TransactionTemplate(transactionManager);
+        MemberRepository memberRepository = new MemberRepositoryV5(dataSource);
+        MemberEventRepository eventRepository = new MemberEventRepository(dataSource);
+        directService = new MemberServiceV4(memberRepository);
+        eventService = new EventSourcedMemberService(memberRepository, eventRepository);
+
+        for(int i = 0; i < MEMBERS; i++) {
+            Member member = new Member("m" + i, 1_000_000_000);
+            txTemplate.executeWithoutResult(status -> eventService.open(member));
+        }
+
+        materializer = new BalanceMaterializer(dataSource, transactionManager, eventRepository, 1000, 10_000, 1000);
+        if(mode.equals("eventSourced")) {
+            materializer.start(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        materializer.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String fromId = "m" + random.nextInt(MEMBERS);
+        String toId = "m" + random.nextInt(MEMBERS);
+        if(mode.equals("direct")) {
+            txTemplate.executeWithoutResult(status -> directService.accountTransfer(fromId, toId, 1));
+        } else {
+            txTemplate.executeWithoutResult(status -> eventService.accountTransfer(fromId, toId, 1));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package hello.jdbc.exception;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemoryMemberRepository;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import hello.jdbc.repository.ex.RepositoryExceptionMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 예외 생성 비용 - STACK_TRACE vs STACKLESS vs PREALLOCATED
+ - callCatch: CheckedTest, UncheckedTest 의 Service.callCatch() -> Repository.call() 흐름, depth 만큼 호출 스택을 쌓은 뒤 예외를 던지고 서비스에서 잡음
+ - duplicateKeySave: ExTranslatorV1Test.Service.create() 흐름, 이미 있는 id 저장 -> MyDuplicateKeyException 을 잡아서 처리
+ - findMissing: 없는 회원 조회 -> NoSuchElementException 을 잡아서 처리
+ - 저장소는 MemoryMemberRepository 를 사용해서 데이터베이스 비용 없이 예외 비용만 측정
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExceptionCostBenchmark {
+
+    @Param({"STACK_TRACE", "STACKLESS", "PREALLOCATED"})
+    RepositoryExceptionMode mode;
+
+    @Param({"1", "50"})
+    int depth;
+
+    MemoryMemberRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = new MemoryMemberRepository(16, 4, mode);
+        repository.save(new Member("memberA", 10000));
+    }
+
+    @Benchmark
+    public Object callCatch() {
+        try {
+            return call(depth);
+        } catch(NoSuchElementException e) {
+            return e;   //예외 처리 로직
+        }
+    }
+
+    @Benchmark
+    public Object duplicateKeySave() {
+        try {
+            return call(depth, () -> repository.save(new Member("memberA", 0)));
+        } catch(MyDuplicateKeyException e) {
+            return e;   //키 중복, 복구 시도
+        }
+    }
+
+    @Benchmark
+    public Object findMissing() {
+        try {
+            return call(depth, () -> repository.findById("none"));
+        } catch(NoSuchElementException e) {
+            return e;
+        }
+    }
+
+    private Object call(int remaining) {
+        if(remaining > 1) {
+            return call(remaining - 1);
+        }
+        throw mode.notFound("memberA");
+    }
+
+    private Object call(int remaining, Supplier<Object> repositoryCall) {
+        if(remaining > 1) {
+            return call(remaining - 1, repositoryCall);
+        }
+        return repositoryCall.get();
+    }
+}
@@ -0,0 +1,95 @@
+package hello.jdbc.idempotency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 멱등 키 이체 - 앞단 캐시 없음(cacheSize = 0) vs 캐시 사용
+ - 인메모리 H2 + HikariCP, 미리 KEYS 개의 키로 이체해 둔 상태
+ - replay: 이미 사용한 키로 재시도(8 쓰레드) -> 캐시가 없으면 매번 트랜잭션 + insert 실패 + select
+ - newKey, noKey: 새 키로 이체 vs 키 없이 이체(1 쓰레드, 데드락 방지) -> 키 저장 비용
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdempotentTransferBenchmark {
+
+    private static final int MEMBERS = 1000;
+    private static final int KEYS = 10_000;
+
+    @Param({"0", "100000"})
+    int cacheSize;
+
+    HikariDataSource dataSource;
+    IdempotentTransferService service;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:idempotency-bench-" + cacheSize + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(8);
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table transfer_idempotency (idempotency_key varchar(64) primary key, " +
+                "from_id varchar(10) not null, to_id varchar(10) not null, money integer not null, created_at timestamp not null)");
+
+        MemberRepository memberRepository = new MemberRepositoryV5(dataSource);
+        for(int i = 0; i < MEMBERS; i++) {
+            memberRepository.save(new Member("m" + i, 1_000_000));
+        }
+        service = new IdempotentTransferService(new DataSourceTransactionManager(dataSource), new MemberServiceV4(memberRepository),
+                new IdempotencyKeyRepository(template), Duration.ofHours(1), cacheSize);
+        for(int i = 0; i < KEYS; i++) {
+            service.accountTransfer("key-" + i, from(i), to(i), 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TransferResult replay() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        return service.accountTransfer("key-" + i, from(i), to(i), 1);
+    }
+
+    @Benchmark
+    public TransferResult newKey() {
+        long i = sequence.incrementAndGet();
+        return service.accountTransfer("new-" + i, from(i), to(i), 1);
+    }
+
+    @Benchmark
+    public TransferResult noKey() {
+        long i = sequence.incrementAndGet();
+        return service.accountTransfer(null, from(i), to(i), 1);
+    }
+
+    private static String from(long i) {
+        return "m" + (i % MEMBERS);
+    }
+
+    private static String to(long i) {
+        return "m" + ((i + 1) % MEMBERS);
+    }
+}
@@ -0,0 +1,74 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 없는 회원 조회 - 데이터베이스 조회(none) vs 필터 사전 확인(bloom)
+ - 인메모리 H2 + HikariCP, 회원 100,000 명
+ - missRatio 비율만큼 없는 id 를 조회, 없는 회원 예외는 호출한 쪽에서 무시
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BloomFilterMemberRepositoryBenchmark {
+
+    private static final int MEMBERS = 100_000;
+
+    @Param({"none", "bloom"})
+    String filter;
+
+    @Param({"0.5"})
+    double missRatio;
+
+    HikariDataSource dataSource;
+    MemberRepository memberRepository;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:bloom-bench-" + filter + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(8);
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        List<Object[]> rows = new ArrayList<>(MEMBERS);
+        for(int i = 0; i < MEMBERS; i++) {
+            rows.add(new Object[]{"m" + i, 10000});
+        }
+        template.batchUpdate("insert into member(member_id, money) values(?, ?)", rows);
+
+        MemberRepository delegate = new MemberRepositoryV5(dataSource);
+        memberRepository = filter.equals("bloom")
+                ? new BloomFilterMemberRepository(dataSource, delegate, MEMBERS, 0.01)
+                : delegate;
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Member findById() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String memberId = (random.nextDouble() < missRatio ? "x" : "m") + random.nextInt(MEMBERS);
+        try {
+            return memberRepository.findById(memberId);
+        } catch(RuntimeException e) {
+            return null;
+        }
+    }
+}
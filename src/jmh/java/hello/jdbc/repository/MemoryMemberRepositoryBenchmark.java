@@ -0,0 +1,104 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemoryMemberRepository vs ConcurrentHashMap<String, Member> 비교
+ - 두 구현 모두 findById 는 반환용 Member 를 새로 만들고, update 는 기존 엔트리의 money 만 변경
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemoryMemberRepositoryBenchmark {
+
+    @Param({"memory", "concurrentHashMap"})
+    String repository;
+
+    @Param({"100000"})
+    int members;
+
+    MemberRepository memberRepository;
+    String[] memberIds;
+
+    @Setup
+    public void setUp() {
+        memberRepository = repository.equals("memory")
+                ? new MemoryMemberRepository(members, 64)
+                : new ConcurrentHashMapMemberRepository();
+
+        memberIds = new String[members];
+        for(int i = 0; i < members; i++) {
+            memberIds[i] = "m" + i;
+            memberRepository.save(new Member(memberIds[i], 10000));
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void findById(Blackhole bh) {
+        bh.consume(memberRepository.findById(randomId()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void update() {
+        memberRepository.update(randomId(), ThreadLocalRandom.current().nextInt(10000));
+    }
+
+    private String randomId() {
+        return memberIds[ThreadLocalRandom.current().nextInt(memberIds.length)];
+    }
+
+    static class ConcurrentHashMapMemberRepository implements MemberRepository {
+
+        private final ConcurrentHashMap<String, Member> store = new ConcurrentHashMap<>();
+
+        @Override
+        public Member save(Member member) {
+            store.put(member.getMemberId(), new Member(member.getMemberId(), member.getMoney()));
+            return member;
+        }
+
+        @Override
+        public boolean saveIfAbsent(Member member) {
+            return store.putIfAbsent(member.getMemberId(), new Member(member.getMemberId(), member.getMoney())) == null;
+        }
+
+        @Override
+        public void upsert(Member member) {
+            save(member);
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            Member member = store.get(memberId);
+            if(member == null) {
+                throw new NoSuchElementException("member not found memberId = " + memberId);
+            }
+            return new Member(memberId, member.getMoney());
+        }
+
+        @Override
+        public void update(String memberId, int money) {
+            store.computeIfPresent(memberId, (id, member) -> {
+                member.setMoney(money);
+                return member;
+            });
+        }
+
+        @Override
+        public void delete(String memberId) {
+            store.remove(memberId);
+        }
+    }
+}
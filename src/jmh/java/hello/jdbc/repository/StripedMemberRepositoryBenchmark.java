@@ -0,0 +1,76 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.service.MemberServiceV4;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 회원 1명에게 이체가 몰리는 상황 - 단일 로우(single) vs 잔액 분할(striped)
+ - 인메모리 H2 + HikariCP, MemberServiceV4 흐름을 트랜잭션 템플릿으로 실행
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedMemberRepositoryBenchmark {
+
+    private static final String MERCHANT = "merchant";
+    private static final int PAYERS = 1000;
+
+    @Param({"single", "striped"})
+    String layout;
+
+    @Param({"8"})
+    int stripes;
+
+    HikariDataSource dataSource;
+    MemberServiceV4 memberService;
+    TransactionTemplate txTemplate;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:striped-bench-" + layout + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table member_stripe (member_id varchar(10), stripe integer, money integer not null default 0, primary key (member_id, stripe))");
+
+        MemberRepository delegate = new MemberRepositoryV5(dataSource);
+        MemberRepository memberRepository = layout.equals("striped")
+                ? new StripedMemberRepository(dataSource, delegate, Set.of(MERCHANT), stripes)
+                : delegate;
+
+        memberRepository.save(new Member(MERCHANT, 0));
+        for(int i = 0; i < PAYERS; i++) {
+            memberRepository.save(new Member("p" + i, 1_000_000_000));
+        }
+
+        memberService = new MemberServiceV4(memberRepository);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transferToHotMember() {
+        String payerId = "p" + ThreadLocalRandom.current().nextInt(PAYERS);
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(payerId, MERCHANT, 1));
+    }
+}
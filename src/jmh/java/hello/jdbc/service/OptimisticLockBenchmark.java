@@ -0,0 +1,97 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.VersionedMemberRepository;
+import hello.jdbc.repository.ex.MyOptimisticLockException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 경합 수준별 이체 - 비관적(MemberServiceV4 흐름, 로우 락) vs 낙관적(version 조건 + 재시도) vs 회원별 자동 선택(adaptive)
+ - 인메모리 H2 + HikariCP, 8 쓰레드, members 명 중 임의의 두 회원 -> 회원 수가 적을수록 경합이 심함
+ - succeeded: 성공한 이체 처리량, failed: 데드락, 락 타임아웃, 재시도 초과로 실패한 이체 처리량
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimisticLockBenchmark {
+
+    @Param({"pessimistic", "optimistic", "adaptive"})
+    String mode;
+
+    @Param({"2", "16", "1000"})
+    int members;
+
+    HikariDataSource dataSource;
+    TransactionTemplate txTemplate;
+    MemberServiceV4 pessimisticService;
+    OptimisticMemberService optimisticService;
+    AdaptiveTransferService adaptiveService;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long succeeded;
+        public long failed;
+    }
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:optimistic-bench-" + mode + members + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=1000");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+
+        new JdbcTemplate(dataSource).execute("create table member (member_id varchar(10), money integer not null default 0, version bigint default 0 not null, primary key (member_id))");
+        VersionedMemberRepository memberRepository = new VersionedMemberRepository(dataSource);
+        for(int i = 0; i < members; i++) {
+            memberRepository.save(new Member("m" + i, 1_000_000_000));
+        }
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        txTemplate = new TransactionTemplate(transactionManager);
+        pessimisticService = new MemberServiceV4(new MemberRepositoryV5(dataSource));
+        optimisticService = new OptimisticMemberService(transactionManager, memberRepository, 10);
+        ConflictRateTracker conflictTracker = new ConflictRateTracker(TimeUnit.SECONDS.toNanos(1), 20, 5, System::nanoTime);
+        adaptiveService = new AdaptiveTransferService(transactionManager, memberRepository, conflictTracker, 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transfer(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(members);
+        int to = (from + 1 + random.nextInt(members - 1)) % members;
+        String fromId = "m" + from;
+        String toId = "m" + to;
+
+        try {
+            if(mode.equals("pessimistic")) {
+                txTemplate.executeWithoutResult(status -> pessimisticService.accountTransfer(fromId, toId, 1));
+            } else if(mode.equals("optimistic")) {
+                optimisticService.accountTransfer(fromId, toId, 1);
+            } else {
+                adaptiveService.accountTransfer(fromId, toId, 1);
+            }
+            outcome.succeeded++;
+        } catch(ConcurrencyFailureException | MyOptimisticLockException e) {
+            outcome.failed++;
+        }
+    }
+}
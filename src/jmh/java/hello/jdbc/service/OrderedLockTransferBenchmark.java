@@ -0,0 +1,91 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 소수의 회원 사이 양방향 이체 - 기존 bigLogic(current) vs 락 순서 고정(ordered)
+ - 인메모리 H2 + HikariCP, 8 쓰레드, members 명 중 임의의 두 회원
+ - succeeded: 성공한 이체 처리량, deadlocks: 데드락, 락 타임아웃으로 실패한 이체 처리량
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderedLockTransferBenchmark {
+
+    @Param({"current", "ordered"})
+    String mode;
+
+    @Param({"4"})
+    int members;
+
+    HikariDataSource dataSource;
+    TransactionTemplate txTemplate;
+    MemberServiceV4 currentService;
+    OrderedLockTransferService orderedService;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long succeeded;
+        public long deadlocks;
+    }
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:ordered-bench-" + mode + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=1000");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+
+        new JdbcTemplate(dataSource).execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        MemberRepository memberRepository = new MemberRepositoryV5(dataSource);
+        for(int i = 0; i < members; i++) {
+            memberRepository.save(new Member("m" + i, 1_000_000_000));
+        }
+
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        currentService = new MemberServiceV4(memberRepository);
+        orderedService = new OrderedLockTransferService(new TransferRepository(dataSource));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transfer(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(members);
+        int to = (from + 1 + random.nextInt(members - 1)) % members;
+        String fromId = "m" + from;
+        String toId = "m" + to;
+
+        try {
+            if(mode.equals("current")) {
+                txTemplate.executeWithoutResult(status -> currentService.accountTransfer(fromId, toId, 1));
+            } else {
+                txTemplate.executeWithoutResult(status -> orderedService.accountTransfer(fromId, toId, 1));
+            }
+            outcome.succeeded++;
+        } catch(ConcurrencyFailureException e) {
+            outcome.deadlocks++;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 샤드 이체(로컬 트랜잭션) vs 다른 샤드 이체(출금 + 아웃박스 -> 릴레이 입금)
+ - 인메모리 H2 2개 + 샤드별 HikariCP, 샤드마다 회원 1000 명
+ - 입금까지 끝날 때까지 기다린 시간 기준 -> 처리량(Throughput)과 지연 분포(SampleTime, p50/p99)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossShardTransferBenchmark {
+
+    private static final int MEMBERS_PER_SHARD = 1000;
+
+    @Param({"same", "cross"})
+    String route;
+
+    ShardDataSources shardDataSources;
+    ShardedMemberRepository memberRepository;
+    OutboxRelay relay;
+    CrossShardTransferService service;
+    List<List<String>> membersByShard = List.of(new ArrayList<>(), new ArrayList<>());
+
+    @Setup
+    public void setUp() {
+        shardDataSources = new ShardDataSources(List.of(
+                "jdbc:h2:mem:saga-bench-" + route + "-0;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "jdbc:h2:mem:saga-bench-" + route + "-1;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"), "sa", "", 16);
+        List<DataSource> dataSources = shardDataSources.dataSources();
+        for(DataSource dataSource : dataSources) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.execute("create table member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+            template.execute("create table transfer_outbox (transfer_id varchar(36) primary key, from_id varchar(10) not null, " +
+                    "to_id varchar(10) not null, money integer not null, status varchar(20) not null, created_at timestamp default current_timestamp not null)");
+            template.execute("create index transfer_outbox_status on transfer_outbox(status, created_at)");
+            template.execute("create table transfer_inbox (transfer_id varchar(36) primary key, created_at timestamp default current_timestamp not null)");
+        }
+
+        ShardFunction shardFunction = new ConsistentHashShardFunction(2, 100);
+        memberRepository = new ShardedMemberRepository(dataSources, shardFunction);
+        for(int i = 0; membersByShard.get(0).size() < MEMBERS_PER_SHARD || membersByShard.get(1).size() < MEMBERS_PER_SHARD; i++) {
+            String memberId = "m" + i;
+            List<String> members = membersByShard.get(shardFunction.shardOf(memberId));
+            if(members.size() < MEMBERS_PER_SHARD) {
+                memberRepository.save(new Member(memberId, 1_000_000_000));
+                members.add(memberId);
+            }
+        }
+
+        relay = new OutboxRelay(dataSources, shardFunction, 100, 10);
+        service = new CrossShardTransferService(dataSources, shardFunction, relay);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        relay.close();
+        memberRepository.close();
+        shardDataSources.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int fromShard = random.nextInt(2);
+        int toShard = route.equals("same") ? fromShard : 1 - fromShard;
+        String fromId = membersByShard.get(fromShard).get(random.nextInt(MEMBERS_PER_SHARD));
+        String toId = membersByShard.get(toShard).get(random.nextInt(MEMBERS_PER_SHARD));
+        if(fromId.equals(toId)) {
+            return;
+        }
+        service.accountTransfer(fromId, toId, 1).join();
+    }
+}
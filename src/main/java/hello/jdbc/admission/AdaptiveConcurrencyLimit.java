@@ -0,0 +1,134 @@
+package hello.jdbc.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 동시 실행 한도 - 응답 시간을 보고 AIMD 로 한도 조절
+ - 응답 시간이 targetLatency 이하: 한도 + 1/한도(한도만큼 완료되면 약 +1), 한도의 절반 이상을 사용중일 때만 증가
+ - targetLatency 초과 또는 과부하 신호(커넥션 획득 실패, 쿼리 타임아웃 등): 한도 * backoffRatio
+ - 한도는 minLimit ~ maxLimit 사이
+
+ * 대기열
+ - 실행중인 요청이 한도만큼이면 최대 maxQueue 개까지 대기, 대기열이 가득 차면 바로 거절
+ - 대기는 queueTimeout 까지, 시간 안에 자리가 나지 않으면 거절
+ -> 커넥션 풀 앞에서 대기 요청 수와 대기 시간을 제한해서 모든 요청이 함께 타임아웃 나는 상황을 막음
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final int maxQueue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis, double backoffRatio, int maxQueue) {
+        if(minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || backoffRatio <= 0 || backoffRatio >= 1 || maxQueue < 0) {
+            throw new IllegalArgumentException("initialLimit = " + initialLimit + ", minLimit = " + minLimit + ", maxLimit = " + maxLimit
+                    + ", backoffRatio = " + backoffRatio + ", maxQueue = " + maxQueue);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.backoffRatio = backoffRatio;
+        this.maxQueue = maxQueue;
+    }
+
+    public enum Acquired {
+        IMMEDIATE, AFTER_WAIT, QUEUE_FULL, TIMEOUT;
+
+        public boolean isAdmitted() {
+            return this == IMMEDIATE || this == AFTER_WAIT;
+        }
+    }
+
+    public Acquired acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if(inFlight < (int) limit) {
+                inFlight++;
+                return Acquired.IMMEDIATE;
+            }
+            if(waiting >= maxQueue) {
+                return Acquired.QUEUE_FULL;
+            }
+
+            waiting++;
+            try {
+                long remaining = unit.toNanos(timeout);
+                while(inFlight >= (int) limit) {
+                    if(remaining <= 0) {
+                        return Acquired.TIMEOUT;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                inFlight++;
+                return Acquired.AFTER_WAIT;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 실행 완료 - 응답 시간으로 한도를 조절하고 대기중인 요청을 깨움
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        lock.lock();
+        try {
+            int before = (int) limit;
+            boolean used = inFlight * 2 >= limit;
+            inFlight--;
+
+            if(overloaded || latencyNanos > targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if(used) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+
+            available.signal();
+            if((int) limit > before) {
+                available.signal();     //한도가 늘어난 만큼 하나 더
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package hello.jdbc.admission;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.NameMatchMethodPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * accountTransfer 진입 제어 설정 - admission.enabled=true 일 때만 적용
+ - hello.jdbc.service 패키지 클래스의 accountTransfer 메서드에 AdmissionControlInterceptor 적용
+ - 재시도 어드바이저(LOWEST_PRECEDENCE - 1), 트랜잭션 어드바이저(LOWEST_PRECEDENCE)보다 바깥에서 실행
+
+ * 속성(기본값)
+ - admission.initial-limit=10, admission.min-limit=1, admission.max-limit=100
+ - admission.target-latency-millis=50, admission.backoff-ratio=0.9
+ - admission.max-queue=20, admission.queue-timeout-millis=100
+ */
+@Configuration
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@ConditionalOnProperty(prefix = "admission", name = "enabled", havingValue = "true")
+public class AdmissionControlConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public AdmissionControlInterceptor admissionControlInterceptor(
+            @Value("${admission.initial-limit:10}") int initialLimit,
+            @Value("${admission.min-limit:1}") int minLimit,
+            @Value("${admission.max-limit:100}") int maxLimit,
+            @Value("${admission.target-latency-millis:50}") long targetLatencyMillis,
+            @Value("${admission.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${admission.max-queue:20}") int maxQueue,
+            @Value("${admission.queue-timeout-millis:100}") long queueTimeoutMillis) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, targetLatencyMillis, backoffRatio, maxQueue);
+        return new AdmissionControlInterceptor(limit, queueTimeoutMillis);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor admissionControlAdvisor(AdmissionControlInterceptor admissionControlInterceptor) {
+        NameMatchMethodPointcut pointcut = new NameMatchMethodPointcut();
+        pointcut.setMappedName("accountTransfer");
+        pointcut.setClassFilter(type -> type.getName().startsWith("hello.jdbc.service."));
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, admissionControlInterceptor);
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+        return advisor;
+    }
+}
@@ -0,0 +1,94 @@
+package hello.jdbc.admission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 진입 제어 - AdaptiveConcurrencyLimit 의 한도 안에서만 메서드 실행
+ - 트랜잭션, 재시도 인터셉터보다 바깥에서 실행 -> 대기하는 동안 커넥션을 잡지 않고, 재시도를 포함한 전체 시간으로 한도 조절
+ - 한도를 넘으면 대기열에서 queueTimeout 까지 대기, 대기열이 가득 찼거나 시간이 지나면 AdmissionRejectedException
+ - 같은 스레드에서 이미 진입한 호출(중첩 호출)은 다시 제어하지 않음 -> 자기 자신을 기다리는 상황 방지
+
+ * 과부하 신호 - 응답 시간과 관계없이 한도를 줄이는 예외
+ - 커넥션 획득 실패(CannotGetJdbcConnectionException, SQLTransientConnectionException)
+ - 쿼리 타임아웃(QueryTimeoutException), 일시적인 리소스 장애(TransientDataAccessResourceException)
+ - 업무 예외(검증 실패 등)는 응답 시간만 반영
+ */
+@Slf4j
+public class AdmissionControlInterceptor implements MethodInterceptor {
+
+    private static final ThreadLocal<Boolean> admitted = new ThreadLocal<>();
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final long queueTimeoutNanos;
+    private final AdmissionMetrics metrics = new AdmissionMetrics();
+
+    public AdmissionControlInterceptor(AdaptiveConcurrencyLimit limit, long queueTimeoutMillis) {
+        this.limit = limit;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+    }
+
+    public AdmissionMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AdaptiveConcurrencyLimit getLimit() {
+        return limit;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if(admitted.get() != null) {
+            return invocation.proceed();
+        }
+
+        AdaptiveConcurrencyLimit.Acquired acquired = limit.acquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        switch(acquired) {
+            case QUEUE_FULL -> {
+                metrics.rejected();
+                throw new AdmissionRejectedException("admission queue full, limit = " + limit.getLimit());
+            }
+            case TIMEOUT -> {
+                metrics.queued();
+                metrics.queueTimeout();
+                throw new AdmissionRejectedException("admission queue timeout, limit = " + limit.getLimit());
+            }
+            case AFTER_WAIT -> metrics.queued();
+            default -> {
+            }
+        }
+        metrics.admitted();
+
+        admitted.set(Boolean.TRUE);
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            return invocation.proceed();
+        } catch(Throwable e) {
+            overloaded = isOverload(e);
+            throw e;
+        } finally {
+            admitted.remove();
+            limit.release(System.nanoTime() - start, overloaded);
+        }
+    }
+
+    private boolean isOverload(Throwable e) {
+        for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if(cause instanceof CannotGetJdbcConnectionException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof TransientDataAccessResourceException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
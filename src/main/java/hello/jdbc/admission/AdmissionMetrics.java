@@ -0,0 +1,54 @@
+package hello.jdbc.admission;
+
+import lombok.ToString;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 진입 제어 지표
+ - admitted: 실행한 요청 수(대기 후 실행 포함)
+ - queued: 한도가 차서 대기열에서 기다린 요청 수
+ - rejected: 대기열이 가득 차서 바로 거절 + 대기 시간 초과로 거절한 요청 수
+ - queueTimeouts: rejected 중 대기 시간 초과
+ */
+@ToString
+public class AdmissionMetrics {
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueTimeouts = new LongAdder();
+
+    void admitted() {
+        admitted.increment();
+    }
+
+    void queued() {
+        queued.increment();
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void queueTimeout() {
+        queueTimeouts.increment();
+        rejected.increment();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getQueueTimeouts() {
+        return queueTimeouts.sum();
+    }
+}
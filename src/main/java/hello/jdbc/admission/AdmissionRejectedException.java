@@ -0,0 +1,13 @@
+package hello.jdbc.admission;
+
+/**
+ * 과부하로 요청을 받지 않음 - 대기열이 가득 찼거나 대기 시간 안에 실행하지 못한 경우
+ - 커넥션 풀 대기 타임아웃보다 훨씬 빨리 실패 -> 호출한 쪽은 바로 재시도 여부, 대체 응답을 결정
+ - 자주 발생하는 흐름 제어 예외이므로 스택 트레이스를 만들지 않음
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    public AdmissionRejectedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,57 @@
+package hello.jdbc.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * 지연 커넥션 획득 - spring.datasource.lazy-connection=true 일 때 적용
+ - DataSourceTransactionManager 는 트랜잭션 시작 시점에 커넥션을 획득하고 setAutoCommit(false) 호출
+ -> 검증 실패처럼 SQL 을 실행하지 않고 끝나는 트랜잭션도 커넥션 풀의 커넥션을 점유
+ - LazyConnectionDataSourceProxy 는 커넥션 프록시만 반환하고, 실제 커넥션은 첫 Statement 생성 시점에 획득
+ -> setAutoCommit, setReadOnly, setTransactionIsolation 은 기록해 두었다가 실제 커넥션 획득시 적용
+ -> SQL 을 실행하지 않은 트랜잭션의 commit, rollback 은 아무것도 하지 않음(no-op)
+
+ * 기본값을 명시하는 이유
+ - defaultAutoCommit, defaultTransactionIsolation 을 지정하지 않으면 프록시 생성 시점에 기본값 확인을 위해 커넥션을 하나 획득
+ - 커넥션 풀 설정(H2 기본값: autoCommit=true, READ_COMMITTED)과 같은 값을 지정해서 시작 시점 커넥션 획득을 생략
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource", name = "lazy-connection", havingValue = "true")
+public class LazyConnectionConfig {
+
+    public static DataSource lazy(DataSource target) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(target);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+
+    /**
+     * 애플리케이션의 dataSource 빈을 지연 커넥션 프록시로 감쌈
+     - 이미 지연 프록시인 경우(읽기/쓰기 라우팅 설정)는 그대로 사용
+     */
+    @Bean
+    public static BeanPostProcessor lazyConnectionPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(beanName.equals("dataSource") && bean instanceof DataSource dataSource
+                        && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    log.info("lazy connection dataSource = {}", dataSource);
+                    return lazy(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package hello.jdbc.deadline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 호출 단위 마감 시간 - 쓰레드 로컬에 보관
+ - within() 범위 안에서 실행되는 모든 SQL 은 남은 시간을 쿼리 타임아웃으로 사용(StatementTimeouts)
+ - DeadlineDataSource 로 감싼 풀에서는 커넥션 획득 대기 시간도 남은 시간으로 제한
+ - 중첩해서 호출하면 바깥 마감 시간과 안쪽 마감 시간 중 더 빠른 쪽 사용 -> 안쪽에서 마감 시간을 늘릴 수 없음
+
+ * 사용 예
+ Deadline.within(2, TimeUnit.SECONDS, () -> memberService.accountTransfer(fromId, toId, money));
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static <T> T within(long timeout, TimeUnit unit, Supplier<T> action) {
+        Deadline outer = CURRENT.get();
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        if(outer != null && outer.deadlineNanos - deadlineNanos < 0) {
+            deadlineNanos = outer.deadlineNanos;
+        }
+
+        CURRENT.set(new Deadline(deadlineNanos));
+        try {
+            return action.get();
+        } finally {
+            if(outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    public static void within(long timeout, TimeUnit unit, Runnable action) {
+        within(timeout, unit, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 현재 쓰레드의 마감 시간, 없으면 null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 남은 시간(ms), 지났으면 0 이하
+     */
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,48 @@
+package hello.jdbc.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 마감 시간 설정 - 애플리케이션의 dataSource 빈을 DeadlineDataSource 로 감쌈
+ - Deadline.within() 범위 안의 커넥션 획득 대기를 남은 시간으로 제한
+ - 지연 커넥션 프록시(LazyConnectionConfig)보다 먼저 적용 -> 실제 커넥션 풀을 바로 감싸야 풀 대기 시간을 제한할 수 있음
+ - 읽기/쓰기 라우팅 설정의 dataSource(지연 커넥션 프록시)는 감싸지 않음 -> 실제 풀을 고르기 전이라 풀 대기 시간을 제한할 수 없음
+
+ * 함께 필요한 설정(application.properties)
+ - spring.datasource.hikari.exception-override-class-name=hello.jdbc.deadline.QueryTimeoutExceptionOverride
+ -> 마감 시간 초과(SQLTimeoutException)로 커넥션이 제거되면 롤백이 실패해서 DeadlineExceededException 대신 TransactionSystemException 발생
+ */
+@Slf4j
+@Configuration
+public class DeadlineConfig {
+
+    @Bean
+    public static BeanPostProcessor deadlineDataSourcePostProcessor() {
+        return new DeadlineDataSourcePostProcessor();
+    }
+
+    private static class DeadlineDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if(beanName.equals("dataSource") && bean instanceof DataSource dataSource
+                    && !(bean instanceof DeadlineDataSource) && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                log.info("deadline dataSource = {}", dataSource);
+                return new DeadlineDataSource(dataSource);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
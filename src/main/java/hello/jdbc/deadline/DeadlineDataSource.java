@@ -0,0 +1,88 @@
+package hello.jdbc.deadline;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 커넥션 획득 대기 시간을 마감 시간으로 제한하는 DataSource
+ - Deadline.within() 범위 안이면 min(남은 시간, connectionTimeout) 만큼만 풀에서 대기
+ - 이미 마감 시간이 지났으면 풀을 거치지 않고 바로 실패
+ - 마감 시간 때문에 실패하면 SQLTimeoutException(DEADLINE_EXCEEDED) -> DataSourceUtils 가 CannotGetJdbcConnectionException 으로 감싸서 전달
+
+ * H2 기본 LOCK_TIMEOUT
+ - StatementTimeouts 가 마감 시간으로 줄인 LOCK_TIMEOUT 을 되돌릴 값, 세션에서 조회할 수 없으므로 DataSource 별로 지정
+ - 지정하지 않으면 HikariCP 의 jdbcUrl 에 있는 LOCK_TIMEOUT, 없으면 H2 기본값(2000ms)
+
+ * 주의
+ - 트랜잭션 타임아웃은 트랜잭션 매니저가 커넥션을 획득한 뒤에 시작하므로 커넥션 획득 대기에는 적용되지 않음
+ - HikariCP 풀이 아니면(또는 풀 시작 전이면) 풀의 기본 대기 시간 사용
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    private static final Pattern LOCK_TIMEOUT = Pattern.compile("(?i);LOCK_TIMEOUT=(\\d+)");
+
+    private volatile Integer h2LockTimeoutMillis;
+
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    public int getH2LockTimeoutMillis() {
+        Integer lockTimeoutMillis = h2LockTimeoutMillis;
+        if(lockTimeoutMillis == null) {
+            lockTimeoutMillis = StatementTimeouts.H2_DEFAULT_LOCK_TIMEOUT_MILLIS;
+            if(obtainTargetDataSource() instanceof HikariDataSource hikari && hikari.getJdbcUrl() != null) {
+                Matcher matcher = LOCK_TIMEOUT.matcher(hikari.getJdbcUrl());
+                if(matcher.find()) {
+                    lockTimeoutMillis = Integer.parseInt(matcher.group(1));
+                }
+            }
+            h2LockTimeoutMillis = lockTimeoutMillis;
+        }
+        return lockTimeoutMillis;
+    }
+
+    public void setH2LockTimeoutMillis(int h2LockTimeoutMillis) {
+        this.h2LockTimeoutMillis = h2LockTimeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Deadline deadline = Deadline.current();
+        if(deadline == null) {
+            return super.getConnection();
+        }
+
+        long remainingMillis = deadline.remainingMillis();
+        if(remainingMillis <= 0) {
+            throw StatementTimeouts.deadlineExceeded("deadline exceeded before connection acquisition");
+        }
+
+        if(!(obtainTargetDataSource() instanceof HikariDataSource)) {
+            return super.getConnection();
+        }
+        HikariDataSource hikari = (HikariDataSource) obtainTargetDataSource();
+        if(!(hikari.getHikariPoolMXBean() instanceof HikariPool)) {
+            return super.getConnection();     //풀 시작 전 -> 첫 커넥션은 기본 대기 시간으로 획득하면서 풀 시작
+        }
+
+        try {
+            return ((HikariPool) hikari.getHikariPoolMXBean()).getConnection(Math.min(remainingMillis, hikari.getConnectionTimeout()));
+        } catch(SQLTransientConnectionException e) {
+            if(deadline.remainingMillis() > 0) {      //connectionTimeout 이 더 짧았던 경우
+                throw e;
+            }
+            SQLException ex = StatementTimeouts.deadlineExceeded("deadline exceeded while waiting for connection");
+            ex.initCause(e);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package hello.jdbc.deadline;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * 마감 시간(Deadline.within(), @Transactional(timeout)) 초과로 SQL 이 취소되었거나 실행되지 않음
+ - QueryTimeoutException 을 상속 -> 기존 타임아웃 처리(재시도 제외, 과부하 신호)를 그대로 적용
+ - 남은 시간이 없으므로 같은 마감 시간 안에서 재시도해도 소용 없음
+ */
+public class DeadlineExceededException extends QueryTimeoutException {
+
+    public DeadlineExceededException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
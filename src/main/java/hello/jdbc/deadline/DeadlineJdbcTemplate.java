@@ -0,0 +1,60 @@
+package hello.jdbc.deadline;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 모든 Statement 에 마감 시간을 쿼리 타임아웃으로 적용하는 JdbcTemplate
+ - 기본 구현(DataSourceUtils.applyTimeout)은 트랜잭션 타임아웃만 적용 -> StatementTimeouts 로 Deadline 까지 함께 적용
+ - setQueryTimeout() 으로 지정한 값은 마감 시간이 없을 때의 기본 타임아웃
+ - 마감 시간 초과 예외는 DeadlineExceededException 으로 변환
+ - Statement 를 닫기 전에 호출되는 handleWarnings() 에서 H2 세션 설정 복원(StatementTimeouts.restore)
+ */
+public class DeadlineJdbcTemplate extends JdbcTemplate {
+
+    public DeadlineJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+        setExceptionTranslator(getExceptionTranslator());
+    }
+
+    /**
+     * 지정한 변환기도 DeadlineSQLExceptionTranslator 로 감싸서 사용
+     */
+    @Override
+    public void setExceptionTranslator(SQLExceptionTranslator exceptionTranslator) {
+        if(!(exceptionTranslator instanceof DeadlineSQLExceptionTranslator)) {
+            exceptionTranslator = new DeadlineSQLExceptionTranslator(obtainDataSource(), exceptionTranslator);
+        }
+        super.setExceptionTranslator(exceptionTranslator);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        if(getFetchSize() != -1) {
+            stmt.setFetchSize(getFetchSize());
+        }
+        if(getMaxRows() != -1) {
+            stmt.setMaxRows(getMaxRows());
+        }
+        StatementTimeouts.apply(stmt, obtainDataSource(), getQueryTimeout());
+    }
+
+    @Override
+    protected void handleWarnings(Statement stmt) throws SQLException {
+        StatementTimeouts.restore(stmt);
+        super.handleWarnings(stmt);
+    }
+
+    /**
+     * SQL 실패 경로 - Statement 를 닫고 커넥션을 반환하기 전에 호출됨
+     */
+    @Override
+    protected void handleWarnings(Statement stmt, SQLException ex) {
+        StatementTimeouts.restore(stmt);
+        super.handleWarnings(stmt, ex);
+    }
+}
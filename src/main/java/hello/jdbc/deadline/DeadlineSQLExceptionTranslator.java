@@ -0,0 +1,29 @@
+package hello.jdbc.deadline;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * 마감 시간 초과 예외 변환 - 마감 시간 초과면 DeadlineExceededException, 그 외에는 기존 변환기에 위임
+ */
+public class DeadlineSQLExceptionTranslator implements SQLExceptionTranslator {
+
+    private final DataSource dataSource;
+    private final SQLExceptionTranslator delegate;
+
+    public DeadlineSQLExceptionTranslator(DataSource dataSource, SQLExceptionTranslator delegate) {
+        this.dataSource = dataSource;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public DataAccessException translate(String task, String sql, SQLException ex) {
+        if(StatementTimeouts.isDeadlineExceeded(ex, dataSource)) {
+            return new DeadlineExceededException(task + "; deadline exceeded" + (sql != null ? " [" + sql + "]" : ""), ex);
+        }
+        return delegate.translate(task, sql, ex);
+    }
+}
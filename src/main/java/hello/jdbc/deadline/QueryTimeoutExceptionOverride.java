@@ -0,0 +1,26 @@
+package hello.jdbc.deadline;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+/**
+ * HikariCP 는 SQLTimeoutException 이 발생한 커넥션을 끊어진 것으로 보고 풀에서 제거(evict)
+ - 쿼리 타임아웃, 락 대기 타임아웃은 SQL 만 취소된 것이고 커넥션은 정상 -> 제거하면 이어지는 롤백이 실패(TransactionSystemException)하고 원래 예외가 가려짐
+ - SQLState 가 08(연결 오류)이 아닌 타임아웃은 제거하지 않음
+
+ * 설정
+ spring.datasource.hikari.exception-override-class-name=hello.jdbc.deadline.QueryTimeoutExceptionOverride
+ */
+public class QueryTimeoutExceptionOverride implements SQLExceptionOverride {
+
+    @java.lang.Override     //SQLExceptionOverride.Override(enum) 와 이름이 같음
+    public Override adjudicate(SQLException sqlException) {
+        String sqlState = sqlException.getSQLState();
+        if(sqlException instanceof SQLTimeoutException && (sqlState == null || !sqlState.startsWith("08"))) {
+            return Override.DO_NOT_EVICT;
+        }
+        return Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,183 @@
+package hello.jdbc.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 마감 시간 -> Statement.setQueryTimeout() 변환
+ - 남은 시간 = min(Deadline.within() 마감 시간, @Transactional(timeout) 트랜잭션 마감 시간)
+ - 쿼리 타임아웃은 초 단위이므로 남은 시간을 올림 -> 실제 타임아웃은 마감 시간보다 최대 1초 늦을 수 있음
+ - 이미 마감 시간이 지났으면 SQL 을 실행하지 않고 SQLTimeoutException(DEADLINE_EXCEEDED) 발생
+ - apply() 로 적용한 Statement 는 닫기 전(커넥션 반환 전)에 restore() 호출
+
+ * 주의
+ - H2 는 쿼리 타임아웃을 Statement 가 아니라 커넥션(세션)에 저장 -> 그대로 두면 같은 커넥션을 쓰는 다른 코드에도 적용
+ - apply() 가 바꾼 커넥션만 기억했다가 restore() 에서 바로 되돌림(쿼리 타임아웃 0, LOCK_TIMEOUT 기본값)
+ - restore() 를 거치지 못한 경우(콜백의 런타임 예외 등)에는 마감 시간이 없는 다음 apply() 에서 되돌림
+
+ * H2 로우 락 대기
+ - H2(MVStore)는 로우 락 대기 중에는 쿼리 타임아웃, Statement.cancel() 을 확인하지 않고 LOCK_TIMEOUT 만 적용
+ - 남은 시간이 기본 LOCK_TIMEOUT 보다 짧을 때만 SET LOCK_TIMEOUT 남은 시간 실행(SQL 1회 추가, 트랜잭션에 영향 없음)
+ - 세션의 LOCK_TIMEOUT 은 조회할 수 없으므로 기본값은 DataSource 별 설정 사용(DeadlineDataSource.getH2LockTimeoutMillis())
+ */
+@Slf4j
+public final class StatementTimeouts {
+
+    public static final int DEADLINE_EXCEEDED = 57014;     //H2 의 쿼리 취소(타임아웃) 에러 코드와 같은 값 사용
+    public static final String TIMEOUT_SQL_STATE = "HYT00";
+    public static final int H2_DEFAULT_LOCK_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * 세션 설정을 바꾼 H2 커넥션 -> 복원할 LOCK_TIMEOUT(ms), LOCK_TIMEOUT 은 바꾸지 않았으면 -1
+     */
+    private static final Map<Connection, Integer> changed = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private StatementTimeouts() {
+    }
+
+    public static void apply(Statement stmt, DataSource dataSource) throws SQLException {
+        apply(stmt, dataSource, 0);
+    }
+
+    public static void apply(Statement stmt, DataSource dataSource, int defaultSeconds) throws SQLException {
+        long remainingMillis = remainingMillis(dataSource);
+        if(remainingMillis == Long.MAX_VALUE) {
+            restore(stmt);
+            if(defaultSeconds > 0) {
+                stmt.setQueryTimeout(defaultSeconds);
+                markChanged(stmt, null);
+            }
+            return;
+        }
+        if(remainingMillis <= 0) {
+            throw deadlineExceeded("deadline exceeded before statement");
+        }
+
+        int seconds = (int) Math.min(Integer.MAX_VALUE, (remainingMillis + 999) / 1000);
+        if(defaultSeconds > 0) {
+            seconds = Math.min(seconds, defaultSeconds);
+        }
+        stmt.setQueryTimeout(seconds);
+
+        int lockTimeoutMillis = h2LockTimeoutMillis(dataSource);
+        if(remainingMillis < lockTimeoutMillis) {
+            Connection con = markChanged(stmt, lockTimeoutMillis);
+            if(con != null) {
+                execute(con, "SET LOCK_TIMEOUT " + remainingMillis);
+            }
+        } else {
+            markChanged(stmt, null);
+        }
+    }
+
+    /**
+     * apply() 가 바꾼 H2 세션 설정 복원 - 바꾸지 않았으면 아무것도 하지 않음
+     - Statement 를 닫는 경로(close, finally)에서 호출하므로 예외를 던지지 않음, 실패하면 다음 apply() 에서 다시 복원
+     */
+    public static void restore(Statement stmt) {
+        if(stmt == null || changed.isEmpty()) {
+            return;
+        }
+        try {
+            Connection con = physicalConnection(stmt);
+            if(con == null || !changed.containsKey(con)) {
+                return;
+            }
+            int lockTimeoutMillis = changed.get(con);
+            try(Statement reset = con.createStatement()) {
+                reset.setQueryTimeout(0);       //SQL 대신 JDBC API 사용 -> H2 드라이버가 캐시한 값도 함께 갱신
+            }
+            if(lockTimeoutMillis >= 0) {
+                execute(con, "SET LOCK_TIMEOUT " + lockTimeoutMillis);
+            }
+            changed.remove(con);
+        } catch(SQLException e) {
+            log.warn("restore statement timeouts failed, cause = {}", e.toString());
+        }
+    }
+
+    /**
+     * H2 커넥션이면 복원 대상으로 기억하고 반환, H2 가 아니면(Statement 단위 설정) null
+     - 복원 전에 다시 바꾸는 경우 처음 기억한 LOCK_TIMEOUT 유지
+     */
+    private static Connection markChanged(Statement stmt, Integer lockTimeoutMillis) throws SQLException {
+        Connection con = physicalConnection(stmt);
+        if(con != null) {
+            changed.merge(con, lockTimeoutMillis == null ? -1 : lockTimeoutMillis, (previous, value) -> previous >= 0 ? previous : value);
+        }
+        return con;
+    }
+
+    /**
+     * DataSource 의 기본 LOCK_TIMEOUT - DeadlineDataSource 로 감싼 경우 해당 설정, 아니면 H2 기본값
+     */
+    static int h2LockTimeoutMillis(DataSource dataSource) {
+        try {
+            if(dataSource.isWrapperFor(DeadlineDataSource.class)) {
+                return dataSource.unwrap(DeadlineDataSource.class).getH2LockTimeoutMillis();
+            }
+        } catch(SQLException e) {
+            log.debug("unwrap DeadlineDataSource failed, cause = {}", e.toString());
+        }
+        return H2_DEFAULT_LOCK_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * 풀 프록시를 벗긴 H2 커넥션 - 풀에서 꺼낼 때마다 새로 만드는 프록시가 아니라 실제 세션 단위로 기억하기 위해 사용, H2 가 아니면 null
+     */
+    private static Connection physicalConnection(Statement stmt) throws SQLException {
+        Connection con = stmt.unwrap(Statement.class).getConnection();
+        return con.getClass().getName().startsWith("org.h2.") ? con : null;
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try(Statement stmt = con.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * 남은 시간(ms), 마감 시간이 없으면 Long.MAX_VALUE
+     */
+    public static long remainingMillis(DataSource dataSource) {
+        long remaining = Long.MAX_VALUE;
+
+        Deadline deadline = Deadline.current();
+        if(deadline != null) {
+            remaining = deadline.remainingMillis();
+        }
+
+        ConnectionHolder holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+        if(holder != null && holder.hasTimeout()) {
+            Date txDeadline = holder.getDeadline();
+            remaining = Math.min(remaining, txDeadline.getTime() - System.currentTimeMillis());
+        }
+        return remaining;
+    }
+
+    /**
+     * 마감 시간 초과로 실패한 SQL 인지 확인 - 타임아웃 예외이면서 마감 시간이 지난 경우
+     - 마감 시간이 남아 있는 타임아웃(예: 짧은 LOCK_TIMEOUT)은 일반 타임아웃으로 처리
+     */
+    public static boolean isDeadlineExceeded(SQLException e, DataSource dataSource) {
+        if(e.getErrorCode() == DEADLINE_EXCEEDED && TIMEOUT_SQL_STATE.equals(e.getSQLState())) {
+            return true;    //deadlineExceeded() 로 만든 예외
+        }
+        return e instanceof SQLTimeoutException && remainingMillis(dataSource) <= 0;
+    }
+
+    static SQLTimeoutException deadlineExceeded(String reason) {
+        return new SQLTimeoutException(reason, TIMEOUT_SQL_STATE, DEADLINE_EXCEEDED);
+    }
+}
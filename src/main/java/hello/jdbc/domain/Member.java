@@ -7,6 +7,7 @@ public class Member {
 
     private String memberId;
     private int money;
+    private Long version;   //낙관적 락 버전, 버전을 사용하지 않는 레포지토리에서는 null
 
     public Member() {
     }
@@ -15,4 +16,10 @@ public class Member {
         this.memberId = memberId;
         this.money = money;
     }
+
+    public Member(String memberId, int money, Long version) {
+        this.memberId = memberId;
+        this.money = money;
+        this.version = version;
+    }
 }
@@ -0,0 +1,211 @@
+package hello.jdbc.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 잔액 구체화(materialize) - member_event 를 읽어 member.money 와 스냅샷을 갱신하는 백그라운드 작업
+ - checkpoint 이후의 이벤트를 발급 순서대로 읽어 회원별로 합산한 뒤 money = money + 합계 로 반영
+ - 반영한 이벤트가 snapshotInterval 건을 넘을 때마다, 그동안 변경된 회원의 잔액을 member_snapshot 에 기록
+ - 반영 결과, 스냅샷, checkpoint 는 하나의 트랜잭션으로 커밋
+
+ * event_id 빈틈(gap) 처리
+ - auto_increment 는 insert 시점에 발급되므로, 작은 id 의 트랜잭션이 큰 id 보다 늦게 커밋될 수 있음
+ - 연속된 id 까지만 반영하고, 빈틈이 gapTimeout 이상 유지되면 건너뜀(롤백된 트랜잭션이 남긴 빈틈)
+ - 커밋이 gapTimeout 보다 늦은 트랜잭션도 빈틈을 남기므로 건너뛴 id 는 skippedRetention 동안 기억
+ - 매 구체화마다 건너뛴 id 를 다시 조회해서 늦게 커밋된 이벤트가 보이면 그때 반영
+ - 늦게 반영한 회원은 해당 이벤트 id 이상의 스냅샷(이벤트가 빠진 채 기록됨)을 삭제하고 다음 스냅샷에서 다시 기록
+ - skippedRetention 은 가장 긴 트랜잭션 타임아웃보다 길게 설정(그 이후에 나타나는 id 는 없다고 가정)
+ - 건너뛴 id 는 메모리에만 기억하므로, 재시작 전에 건너뛴 id 가 늦게 커밋되면 반영되지 않음
+ */
+@Slf4j
+public class BalanceMaterializer implements AutoCloseable {
+
+    private static final String CHECKPOINT_NAME = "balance";
+    private static final long DEFAULT_SKIPPED_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final MemberEventRepository eventRepository;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+    private final int batchSize;
+    private final int snapshotInterval;
+    private final long gapTimeoutNanos;
+    private final long skippedRetentionNanos;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final Set<String> touchedSinceSnapshot = new HashSet<>();
+    private long eventsSinceSnapshot;
+    private long gapEventId = -1;
+    private long gapSeenAt;
+    private final Map<Long, Long> skipped = new TreeMap<>();     //건너뛴 event_id -> 건너뛴 시각(nanoTime)
+
+    public BalanceMaterializer(DataSource dataSource, PlatformTransactionManager transactionManager,
+                               MemberEventRepository eventRepository, int batchSize, int snapshotInterval, long gapTimeoutMillis) {
+        this(dataSource, transactionManager, eventRepository, batchSize, snapshotInterval, gapTimeoutMillis, DEFAULT_SKIPPED_RETENTION_MILLIS);
+    }
+
+    public BalanceMaterializer(DataSource dataSource, PlatformTransactionManager transactionManager,
+                               MemberEventRepository eventRepository, int batchSize, int snapshotInterval,
+                               long gapTimeoutMillis, long skippedRetentionMillis) {
+        this.eventRepository = eventRepository;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.snapshotInterval = snapshotInterval;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMillis);
+        this.skippedRetentionNanos = TimeUnit.MILLISECONDS.toNanos(skippedRetentionMillis);
+    }
+
+    public void start(long periodMillis) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                while(materialize() == batchSize) {
+                    //밀린 이벤트가 많으면 쉬지 않고 계속 반영
+                }
+            } catch(RuntimeException e) {
+                log.error("materialize failed", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 이벤트 한 묶음 반영, 반영한 이벤트 수(늦게 커밋된 이벤트 포함) 반환
+     */
+    public synchronized int materialize() {
+        expireSkipped();
+        Batch batch = txTemplate.execute(status -> {
+            long checkpoint = eventRepository.loadCheckpoint(CHECKPOINT_NAME);
+            Batch result = collect(checkpoint, eventRepository.findAfter(checkpoint, batchSize));
+            collectLate(result);
+            if(result.count == 0) {
+                return result;
+            }
+
+            String sql = "update member set money = money + ? where member_id = ?";
+            result.deltas.forEach((memberId, amount) -> template.update(sql, amount, memberId));
+
+            boolean snapshot = eventsSinceSnapshot + result.count >= snapshotInterval;
+            if(snapshot) {
+                Set<String> memberIds = new HashSet<>(touchedSinceSnapshot);
+                memberIds.addAll(result.deltas.keySet());
+                memberIds.forEach(memberId -> eventRepository.saveSnapshot(memberId, result.lastEventId, moneyOf(memberId)));
+            }
+            if(result.lastEventId > checkpoint) {
+                eventRepository.saveCheckpoint(CHECKPOINT_NAME, result.lastEventId);
+            }
+            result.snapshot = snapshot;
+            return result;
+        });
+
+        //커밋된 이후에만 건너뛴 id, 스냅샷 진행 상태 변경
+        long now = System.nanoTime();
+        batch.skippedIds.forEach(eventId -> skipped.put(eventId, now));
+        batch.lateIds.forEach(skipped::remove);
+        if(batch.snapshot) {
+            touchedSinceSnapshot.clear();
+            eventsSinceSnapshot = 0;
+        } else {
+            touchedSinceSnapshot.addAll(batch.deltas.keySet());
+            eventsSinceSnapshot += batch.count;
+        }
+        return batch.count;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * checkpoint 다음 id 부터 연속된 이벤트만 회원별로 합산
+     */
+    private Batch collect(long checkpoint, List<MemberEvent> events) {
+        Batch batch = new Batch();
+        batch.lastEventId = checkpoint;
+        long expected = checkpoint + 1;
+
+        for(MemberEvent event : events) {
+            if(event.getEventId() != expected) {
+                if(!gapExpired(expected)) {
+                    break;
+                }
+                for(long eventId = expected; eventId < event.getEventId(); eventId++) {
+                    batch.skippedIds.add(eventId);
+                }
+            }
+            batch.deltas.merge(event.getMemberId(), event.getAmount(), Integer::sum);
+            batch.lastEventId = event.getEventId();
+            batch.count++;
+            expected = event.getEventId() + 1;
+        }
+        return batch;
+    }
+
+    private boolean gapExpired(long eventId) {
+        long now = System.nanoTime();
+        if(gapEventId != eventId) {
+            gapEventId = eventId;
+            gapSeenAt = now;
+            return false;
+        }
+        if(now - gapSeenAt < gapTimeoutNanos) {
+            return false;
+        }
+        log.info("skip event id gap = {}", eventId);
+        return true;
+    }
+
+    /**
+     * 건너뛴 id 중 그 사이 커밋되어 보이는 이벤트를 합산하고, 해당 회원의 이후 스냅샷 삭제
+     */
+    private void collectLate(Batch batch) {
+        if(skipped.isEmpty()) {
+            return;
+        }
+        List<MemberEvent> events = eventRepository.findByIds(skipped.keySet());
+        for(MemberEvent event : events) {
+            log.info("apply late event id = {}", event.getEventId());
+            eventRepository.deleteSnapshotsFrom(event.getMemberId(), event.getEventId());
+            batch.deltas.merge(event.getMemberId(), event.getAmount(), Integer::sum);
+            batch.lateIds.add(event.getEventId());
+            batch.count++;
+        }
+    }
+
+    /**
+     * skippedRetention 이 지난 id 는 롤백된 것으로 보고 더 이상 조회하지 않음
+     */
+    private void expireSkipped() {
+        long now = System.nanoTime();
+        skipped.values().removeIf(skippedAt -> now - skippedAt >= skippedRetentionNanos);
+    }
+
+    private int moneyOf(String memberId) {
+        String sql = "select money from member where member_id = ?";
+        return template.queryForObject(sql, Integer.class, memberId);
+    }
+
+    private static class Batch {
+        private final Map<String, Integer> deltas = new LinkedHashMap<>();
+        private final List<Long> skippedIds = new ArrayList<>();
+        private final List<Long> lateIds = new ArrayList<>();
+        private long lastEventId;
+        private int count;
+        private boolean snapshot;
+    }
+}
@@ -0,0 +1,31 @@
+package hello.jdbc.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 잔액 변경 이벤트 - 입금은 양수, 출금은 음수 amount
+ - eventId 는 저장 이후 데이터베이스가 발급(저장 전에는 null)
+ */
+@Getter
+@ToString
+public class MemberEvent {
+
+    private final Long eventId;
+    private final String memberId;
+    private final int amount;
+
+    public MemberEvent(Long eventId, String memberId, int amount) {
+        this.eventId = eventId;
+        this.memberId = memberId;
+        this.amount = amount;
+    }
+
+    public static MemberEvent credit(String memberId, int money) {
+        return new MemberEvent(null, memberId, money);
+    }
+
+    public static MemberEvent debit(String memberId, int money) {
+        return new MemberEvent(null, memberId, -money);
+    }
+}
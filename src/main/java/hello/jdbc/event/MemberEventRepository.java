@@ -0,0 +1,130 @@
+package hello.jdbc.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 이벤트 저장소 - member_event, member_snapshot, member_event_checkpoint 테이블 접근
+ - 이벤트는 추가만 하고 수정하지 않음(append-only)
+ - 여러 이벤트는 JDBC 배치로 한 번에 저장
+
+ * 테이블
+ create table member_event (
+     event_id bigint auto_increment primary key,
+     member_id varchar(10) not null,
+     amount integer not null,
+     created_at timestamp default current_timestamp not null
+ );
+ create table member_snapshot (
+     member_id varchar(10),
+     event_id bigint,
+     money integer not null,
+     primary key (member_id, event_id)
+ );
+ create table member_event_checkpoint (
+     name varchar(50) primary key,
+     event_id bigint not null
+ );
+ */
+@Slf4j
+public class MemberEventRepository {
+
+    private final JdbcTemplate template;
+
+    public MemberEventRepository(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    public void append(List<MemberEvent> events) {
+        String sql = "insert into member_event(member_id, amount) values(?, ?)";
+        template.batchUpdate(sql, events, events.size(), (pstmt, event) -> {
+            pstmt.setString(1, event.getMemberId());
+            pstmt.setInt(2, event.getAmount());
+        });
+    }
+
+    /**
+     * eventId 이후의 이벤트를 발급 순서대로 최대 limit 건 조회
+     */
+    public List<MemberEvent> findAfter(long eventId, int limit) {
+        String sql = "select event_id, member_id, amount from member_event where event_id > ? order by event_id limit ?";
+        return template.query(sql, eventRowMapper(), eventId, limit);
+    }
+
+    /**
+     * 해당 id 의 이벤트 중 현재 보이는(커밋된) 이벤트만 발급 순서대로 조회
+     */
+    public List<MemberEvent> findByIds(Collection<Long> eventIds) {
+        if(eventIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = "select event_id, member_id, amount from member_event where event_id in ("
+                + String.join(", ", Collections.nCopies(eventIds.size(), "?")) + ") order by event_id";
+        return template.query(sql, eventRowMapper(), eventIds.toArray());
+    }
+
+    /**
+     * (afterEventId, toEventId] 구간의 회원 이벤트 합계
+     */
+    public int sumAmount(String memberId, long afterEventId, long toEventId) {
+        String sql = "select coalesce(sum(amount), 0) from member_event where member_id = ? and event_id > ? and event_id <= ?";
+        return template.queryForObject(sql, Integer.class, memberId, afterEventId, toEventId);
+    }
+
+    /**
+     * 해당 시각까지 발생한 마지막 이벤트 id, 없으면 0
+     */
+    public long lastEventIdAt(LocalDateTime at) {
+        String sql = "select coalesce(max(event_id), 0) from member_event where created_at <= ?";
+        return template.queryForObject(sql, Long.class, Timestamp.valueOf(at));
+    }
+
+    public void saveSnapshot(String memberId, long eventId, int money) {
+        String sql = "insert into member_snapshot(member_id, event_id, money) values(?, ?, ?)";
+        template.update(sql, memberId, eventId, money);
+    }
+
+    /**
+     * eventId 이상의 회원 스냅샷 삭제 - 해당 이벤트가 빠진 채 기록된 스냅샷 제거
+     */
+    public int deleteSnapshotsFrom(String memberId, long eventId) {
+        String sql = "delete from member_snapshot where member_id = ? and event_id >= ?";
+        return template.update(sql, memberId, eventId);
+    }
+
+    /**
+     * eventId 이하에서 가장 가까운 스냅샷 [event_id, money], 없으면 [0, 0]
+     */
+    public long[] findNearestSnapshot(String memberId, long eventId) {
+        String sql = "select event_id, money from member_snapshot where member_id = ? and event_id <= ? order by event_id desc limit 1";
+        List<long[]> snapshots = template.query(sql, (rs, rowNum) -> new long[]{rs.getLong("event_id"), rs.getInt("money")}, memberId, eventId);
+        return snapshots.isEmpty() ? new long[]{0, 0} : snapshots.get(0);
+    }
+
+    public long loadCheckpoint(String name) {
+        String sql = "select event_id from member_event_checkpoint where name = ?";
+        List<Long> checkpoint = template.queryForList(sql, Long.class, name);
+        return checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+    }
+
+    public void saveCheckpoint(String name, long eventId) {
+        String updateSql = "update member_event_checkpoint set event_id = ? where name = ?";
+        String insertSql = "insert into member_event_checkpoint(name, event_id) values(?, ?)";
+
+        if(template.update(updateSql, eventId, name) == 0) {
+            template.update(insertSql, name, eventId);
+        }
+    }
+
+    private RowMapper<MemberEvent> eventRowMapper() {
+        return ((rs, rowNum) -> new MemberEvent(rs.getLong("event_id"), rs.getString("member_id"), rs.getInt("amount")));
+    }
+}
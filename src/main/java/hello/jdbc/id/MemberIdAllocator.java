@@ -0,0 +1,158 @@
+package hello.jdbc.id;
+
+import hello.jdbc.translator.SQLExceptionTranslatorRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 회원 id 발급기 - hi/lo 방식
+ - member_id_sequence 에서 blockSize 개의 번호 구간을 한 번의 쿼리로 예약하고, 구간 안의 번호는 메모리에서 발급
+ - 예약: select next_value from final table (update ... set next_value = next_value + ?)
+   -> update 와 변경된 값 조회가 한 번의 왕복, 행 락으로 여러 JVM 이 같은 구간을 받을 수 없음
+ - 구간 안의 발급은 AtomicLong.getAndIncrement -> 락 없음, 구간을 모두 쓴 경우에만 한 스레드가 다음 구간 예약
+
+ * 예약은 호출한 쪽의 트랜잭션에 참여하지 않음
+ - DataSourceUtils 대신 dataSource.getConnection() 으로 별도 커넥션(auto commit) 사용
+ - 트랜잭션에 참여하면 커밋까지 sequence 행 락을 잡고 있어 모든 발급이 직렬화됨
+ - 롤백되거나 JVM 이 종료되면 남은 번호는 버려짐 -> id 에 빈틈은 생기지만 중복은 없음
+
+ * id 형식
+ - prefix + 36진수 번호, member_id varchar(10) 에 맞아야 함(prefix 2자리면 36^8 ≒ 2.8조 개)
+
+ * 테이블
+ create table member_id_sequence (
+     name varchar(50) primary key,
+     next_value bigint not null
+ );
+ */
+@Slf4j
+public class MemberIdAllocator {
+
+    public static final int MAX_ID_LENGTH = 10;
+
+    private static final Block EMPTY = new Block(0, 0);
+
+    private final DataSource dataSource;
+    private final SQLExceptionTranslator exTranslator;
+    private final String sequenceName;
+    private final int blockSize;
+    private final String prefix;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(EMPTY);
+    private final Object reserveLock = new Object();
+    private final LongAdder reservedBlocks = new LongAdder();
+
+    public MemberIdAllocator(DataSource dataSource, String sequenceName, int blockSize, String prefix) {
+        if(blockSize < 1) {
+            throw new IllegalArgumentException("blockSize = " + blockSize);
+        }
+        if(prefix.length() >= MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("prefix = " + prefix);
+        }
+        this.dataSource = dataSource;
+        this.exTranslator = SQLExceptionTranslatorRegistry.getTranslator(dataSource);
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+        this.prefix = prefix;
+    }
+
+    public String nextId() {
+        String id = prefix + Long.toString(nextValue(), Character.MAX_RADIX);
+        if(id.length() > MAX_ID_LENGTH) {
+            throw new IllegalStateException("member id overflow = " + id);
+        }
+        return id;
+    }
+
+    public long nextValue() {
+        while(true) {
+            Block block = current.get();
+            long value = block.next.getAndIncrement();
+            if(value < block.end) {
+                return value;
+            }
+            synchronized(reserveLock) {
+                if(current.get() == block) {    //다른 스레드가 이미 예약했으면 그 구간 사용
+                    current.set(reserve());
+                }
+            }
+        }
+    }
+
+    /**
+     * 지금까지 예약한 구간 수 = 데이터베이스 왕복 수
+     */
+    public long reservedBlocks() {
+        return reservedBlocks.sum();
+    }
+
+    private Block reserve() {
+        String sql = "select next_value from final table (update member_id_sequence set next_value = next_value + ? where name = ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = dataSource.getConnection();
+            con.setAutoCommit(true);
+            pstmt = con.prepareStatement(sql);
+            pstmt.setInt(1, blockSize);
+            pstmt.setString(2, sequenceName);
+            rs = pstmt.executeQuery();
+
+            if(!rs.next()) {
+                JdbcUtils.closeResultSet(rs);
+                rs = null;
+                createSequence(con);
+                rs = pstmt.executeQuery();
+                rs.next();
+            }
+            long end = rs.getLong("next_value");
+            reservedBlocks.increment();
+            log.debug("reserve member id block = [{}, {})", end - blockSize, end);
+            return new Block(end - blockSize, end);
+        } catch(SQLException e) {
+            throw exTranslator.translate("reserve", sql, e);
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(pstmt);
+            JdbcUtils.closeConnection(con);
+        }
+    }
+
+    /**
+     * sequence 행이 없으면 0 부터 시작, 다른 JVM 이 먼저 만든 경우(키 중복)는 무시
+     */
+    private void createSequence(Connection con) throws SQLException {
+        String sql = "insert into member_id_sequence(name, next_value) values(?, 0)";
+        try(PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, sequenceName);
+            pstmt.executeUpdate();
+        } catch(SQLException e) {
+            if(e.getErrorCode() != 23505) {
+                throw e;
+            }
+        }
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
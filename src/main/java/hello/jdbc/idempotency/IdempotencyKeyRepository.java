@@ -0,0 +1,78 @@
+package hello.jdbc.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 이체 멱등 키 - 이체와 같은 트랜잭션에서 저장
+ - 키를 먼저 저장하고 이체 실행 -> 이체가 롤백되면 키도 함께 롤백되므로 실패한 요청은 다시 실행 가능
+ - 같은 키로 동시에 저장하면 기본키 락을 기다렸다가 먼저 저장한 트랜잭션이 커밋하면 중복(false), 롤백하면 저장 성공
+ - 요청 내용(from_id, to_id, money)도 함께 저장 -> 같은 키를 다른 이체에 재사용했는지 확인
+ - 만료된 키는 deleteExpired() 로 created_at 순서대로 나누어 삭제
+
+ * 테이블
+ create table transfer_idempotency (
+     idempotency_key varchar(64) primary key,
+     from_id varchar(10) not null,
+     to_id varchar(10) not null,
+     money integer not null,
+     created_at timestamp not null
+ );
+ create index transfer_idempotency_created_at on transfer_idempotency(created_at);
+ */
+@Slf4j
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate template;
+
+    public IdempotencyKeyRepository(JdbcTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * 처음 사용하는 키면 저장하고 true, 이미 있는 키면 false
+     */
+    public boolean save(TransferResult result) {
+        String sql = "insert into transfer_idempotency(idempotency_key, from_id, to_id, money, created_at) values(?, ?, ?, ?, ?)";
+        try {
+            template.update(sql, result.getIdempotencyKey(), result.getFromId(), result.getToId(), result.getMoney(),
+                    Timestamp.valueOf(result.getCreatedAt()));
+            return true;
+        } catch(DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 저장된 결과, 없으면 null
+     */
+    public TransferResult find(String idempotencyKey) {
+        String sql = "select idempotency_key, from_id, to_id, money, created_at from transfer_idempotency where idempotency_key = ?";
+        List<TransferResult> results = template.query(sql, (rs, rowNum) -> new TransferResult(rs.getString("idempotency_key"),
+                rs.getString("from_id"), rs.getString("to_id"), rs.getInt("money"),
+                rs.getTimestamp("created_at").toLocalDateTime(), true), idempotencyKey);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * cutoff 이전에 저장된 경우에만 삭제 - 만료된 키를 재사용할 때 사용
+     */
+    public boolean deleteIfExpired(String idempotencyKey, LocalDateTime cutoff) {
+        String sql = "delete from transfer_idempotency where idempotency_key = ? and created_at < ?";
+        return template.update(sql, idempotencyKey, Timestamp.valueOf(cutoff)) == 1;
+    }
+
+    /**
+     * cutoff 이전에 저장된 키를 최대 limit 개 삭제하고 삭제한 수 반환
+     */
+    public int deleteExpired(LocalDateTime cutoff, int limit) {
+        String sql = "delete from transfer_idempotency where idempotency_key in " +
+                "(select idempotency_key from transfer_idempotency where created_at < ? order by created_at limit ?)";
+        return template.update(sql, Timestamp.valueOf(cutoff), limit);
+    }
+}
@@ -0,0 +1,170 @@
+package hello.jdbc.idempotency;
+
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 멱등 키를 사용한 이체 - 클라이언트가 타임아웃 후 같은 키로 재시도해도 한 번만 이체
+ - 키를 전달하지 않으면(null) 기존 MemberServiceV4 와 같이 매번 실행
+ - 같은 트랜잭션에서 멱등 키 저장 -> 이체, 이미 저장된 키면 이체하지 않고 처음 결과 반환(replayed = true)
+ - 실패한 이체는 키도 함께 롤백 -> 같은 키로 재시도하면 다시 실행(일시적인 실패 복구 가능)
+ - 같은 키를 다른 이체(from, to, money)에 사용하면 IllegalArgumentException
+
+ * 앞단 캐시
+ - 커밋된 최근 키를 메모리에 보관(afterCommit) -> 재시도 대부분은 DB 를 거치지 않고 바로 반환
+ - 최대 cacheSize 개, 먼저 들어온 키부터 제거(FIFO), 0 이면 캐시 사용 안함
+ - 캐시에 없어도 DB 의 키로 중복을 막으므로 캐시는 성능 최적화일 뿐 정확성과 무관
+ - 여러 인스턴스가 같은 DB 를 사용해도 안전(다른 인스턴스의 키는 DB 에서 확인)
+
+ * TTL
+ - ttl 이 지난 키는 없는 것으로 처리 -> 같은 키로 요청하면 새 이체로 실행
+ - 만료된 키는 purgeExpired() 를 주기적으로 호출해서 삭제
+ */
+@Slf4j
+public class IdempotentTransferService {
+
+    private final TransactionTemplate txTemplate;
+    private final MemberServiceV4 transferService;
+    private final IdempotencyKeyRepository keyRepository;
+    private final Duration ttl;
+    private final int cacheSize;
+
+    private final Map<String, TransferResult> cache = new ConcurrentHashMap<>();
+    private final Queue<String> cacheOrder = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+
+    public IdempotentTransferService(PlatformTransactionManager transactionManager, MemberServiceV4 transferService,
+                                     IdempotencyKeyRepository keyRepository, Duration ttl, int cacheSize) {
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.transferService = transferService;
+        this.keyRepository = keyRepository;
+        this.ttl = ttl;
+        this.cacheSize = cacheSize;
+    }
+
+    public TransferResult accountTransfer(String idempotencyKey, String fromId, String toId, int money) {
+        if(idempotencyKey == null) {
+            txTemplate.executeWithoutResult(status -> execute(fromId, toId, money));
+            return new TransferResult(null, fromId, toId, money, LocalDateTime.now(), false);
+        }
+
+        TransferResult cached = cache.get(idempotencyKey);
+        if(cached != null && !isExpired(cached)) {
+            cacheHits.increment();
+            return checkSameRequest(cached, fromId, toId, money);
+        }
+
+        TransferResult result = txTemplate.execute(status -> transferOnce(idempotencyKey, fromId, toId, money));
+        if(result.isReplayed()) {
+            storeHits.increment();
+            cache(result);
+            return checkSameRequest(result, fromId, toId, money);
+        }
+        return result;
+    }
+
+    /**
+     * 만료된 키를 batchSize 개씩 삭제하고 삭제한 수 반환
+     */
+    public int purgeExpired(int batchSize) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        cache.values().removeIf(this::isExpired);
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = keyRepository.deleteExpired(cutoff, batchSize);
+            total += deleted;
+        } while(deleted == batchSize);
+        return total;
+    }
+
+    private TransferResult transferOnce(String idempotencyKey, String fromId, String toId, int money) {
+        TransferResult created = new TransferResult(idempotencyKey, fromId, toId, money,
+                LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS), false);     //DB 에서 다시 읽어도 같은 값이 되도록 timestamp 정밀도에 맞춤
+        if(!keyRepository.save(created)) {
+            TransferResult existing = keyRepository.find(idempotencyKey);
+            if(existing != null && !isExpired(existing)) {
+                return existing;
+            }
+            //만료된 키 -> 삭제 후 새 요청으로 저장, 그 사이 다른 요청이 저장했으면 해당 결과 사용
+            keyRepository.deleteIfExpired(idempotencyKey, LocalDateTime.now().minus(ttl));
+            if(!keyRepository.save(created)) {
+                TransferResult winner = keyRepository.find(idempotencyKey);
+                if(winner == null) {
+                    throw new IllegalStateException("idempotency key deleted concurrently, key = " + idempotencyKey);
+                }
+                return winner;
+            }
+        }
+
+        execute(fromId, toId, money);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache(created.replay());
+            }
+        });
+        return created;
+    }
+
+    private void execute(String fromId, String toId, int money) {
+        executed.increment();
+        transferService.accountTransfer(fromId, toId, money);     //같은 트랜잭션에 참여
+    }
+
+    private TransferResult checkSameRequest(TransferResult result, String fromId, String toId, int money) {
+        if(!result.isSameRequest(fromId, toId, money)) {
+            throw new IllegalArgumentException("idempotency key reused for a different transfer, key = " + result.getIdempotencyKey());
+        }
+        return result;
+    }
+
+    private void cache(TransferResult result) {
+        if(cacheSize <= 0) {
+            return;
+        }
+        if(cache.put(result.getIdempotencyKey(), result) == null) {
+            cacheOrder.add(result.getIdempotencyKey());
+        }
+        while(cache.size() > cacheSize) {
+            String eldest = cacheOrder.poll();
+            if(eldest == null) {
+                break;
+            }
+            cache.remove(eldest);
+        }
+    }
+
+    private boolean isExpired(TransferResult result) {
+        return result.getCreatedAt().isBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getStoreHits() {
+        return storeHits.sum();
+    }
+}
@@ -0,0 +1,42 @@
+package hello.jdbc.idempotency;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 멱등 키를 사용한 이체 결과
+ - 처음 실행한 요청과 같은 키로 다시 요청하면 처음 실행한 결과를 그대로 반환하고 replayed = true
+ */
+@Getter
+@ToString
+public class TransferResult {
+
+    private final String idempotencyKey;
+    private final String fromId;
+    private final String toId;
+    private final int money;
+    private final LocalDateTime createdAt;
+    private final boolean replayed;
+
+    public TransferResult(String idempotencyKey, String fromId, String toId, int money, LocalDateTime createdAt, boolean replayed) {
+        this.idempotencyKey = idempotencyKey;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.money = money;
+        this.createdAt = createdAt;
+        this.replayed = replayed;
+    }
+
+    /**
+     * 같은 키로 같은 이체를 요청했는지 확인 - 같은 키를 다른 이체에 재사용하면 false
+     */
+    public boolean isSameRequest(String fromId, String toId, int money) {
+        return this.fromId.equals(fromId) && this.toId.equals(toId) && this.money == money;
+    }
+
+    TransferResult replay() {
+        return replayed ? this : new TransferResult(idempotencyKey, fromId, toId, money, createdAt, true);
+    }
+}
@@ -0,0 +1,169 @@
+package hello.jdbc.journal;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 저널 반영기 - TransferJournal 의 레코드를 MemberRepository 를 통해 member 테이블에 반영
+ - 레코드 묶음(batchSize)을 하나의 트랜잭션으로 반영하고, 같은 트랜잭션에서 마지막으로 반영한 seq(checkpoint)를 저장
+ -> 반영 결과와 checkpoint 가 함께 커밋되거나 함께 롤백되므로 장애 이후 재시작해도 같은 레코드를 두 번 반영하지 않음
+ - 재시작시 checkpoint 다음 seq 부터 다시 반영(recovery)
+ - 레코드마다 세이브포인트를 사용 -> validation 실패("ex") 같은 레코드는 해당 레코드만 건너뛰고 실패 건수로 집계
+
+ * 테이블
+ create table transfer_journal_checkpoint (
+     journal_name varchar(50) primary key,
+     applied_seq bigint not null
+ );
+ */
+@Slf4j
+public class JournalApplier implements AutoCloseable {
+
+    private final TransferJournal journal;
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate txTemplate;
+    private final JdbcTemplate template;
+    private final String journalName;
+    private final int batchSize;
+
+    private final AtomicLong failedCount = new AtomicLong();
+    private final Thread applier;
+    private volatile long appliedSeq;
+    private volatile boolean running = true;
+
+    public JournalApplier(TransferJournal journal, String journalName, DataSource dataSource,
+                          PlatformTransactionManager transactionManager, MemberRepository memberRepository, int batchSize) {
+        this.journal = journal;
+        this.journalName = journalName;
+        this.memberRepository = memberRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.template = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
+        this.appliedSeq = loadCheckpoint();
+
+        this.applier = new Thread(this::applyLoop, "transfer-journal-applier");
+        this.applier.start();
+        log.info("journal applier started, journalName = {}, appliedSeq = {}", journalName, appliedSeq);
+    }
+
+    public long appliedSeq() {
+        return appliedSeq;
+    }
+
+    public long failedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * seq 까지 반영될 때까지 대기, 시간 내에 반영되면 true
+     */
+    public boolean awaitApplied(long seq, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while(appliedSeq < seq) {
+            if(System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        applier.join();
+    }
+
+    private void applyLoop() {
+        while(running) {
+            try {
+                List<TransferRecord> records = journal.read(appliedSeq + 1, batchSize);
+                if(records.isEmpty()) {
+                    Thread.sleep(1);
+                    continue;
+                }
+                applyBatch(records);
+                journal.compact(appliedSeq);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch(RuntimeException e) {
+                //DB 장애 등으로 묶음 전체가 롤백된 경우 -> checkpoint 가 그대로이므로 잠시 후 같은 위치부터 다시 시도
+                log.error("journal apply failed, appliedSeq = {}", appliedSeq, e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void applyBatch(List<TransferRecord> records) {
+        long lastSeq = records.get(records.size() - 1).getSeq();
+
+        txTemplate.executeWithoutResult(status -> {
+            for(TransferRecord record : records) {
+                apply(status, record);
+            }
+            saveCheckpoint(lastSeq);
+        });
+        appliedSeq = lastSeq;
+    }
+
+    private void apply(TransactionStatus status, TransferRecord record) {
+        Object savepoint = status.createSavepoint();
+        try {
+            bigLogic(record.getFromId(), record.getToId(), record.getMoney());
+        } catch(RuntimeException e) {
+            status.rollbackToSavepoint(savepoint);
+            failedCount.incrementAndGet();
+            log.warn("journal record skipped, record = {}, cause = {}", record, e.getMessage());
+        }
+        status.releaseSavepoint(savepoint);
+    }
+
+    private void bigLogic(String fromId, String toId, int money) {
+        Member fromMember = memberRepository.findById(fromId);
+        Member toMember = memberRepository.findById(toId);
+
+        memberRepository.update(fromId, fromMember.getMoney() - money);
+        validation(toMember);
+        memberRepository.update(toId, toMember.getMoney() + money);
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+
+    private long loadCheckpoint() {
+        String sql = "select applied_seq from transfer_journal_checkpoint where journal_name = ?";
+        List<Long> checkpoint = template.queryForList(sql, Long.class, journalName);
+        return checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+    }
+
+    private void saveCheckpoint(long seq) {
+        String updateSql = "update transfer_journal_checkpoint set applied_seq = ? where journal_name = ?";
+        String insertSql = "insert into transfer_journal_checkpoint(journal_name, applied_seq) values(?, ?)";
+
+        if(template.update(updateSql, seq, journalName) == 0) {
+            template.update(insertSql, journalName, seq);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(100);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package hello.jdbc.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 이체 요청 선행 기록(write-ahead) 저널
+ - 요청 경로에서는 H2 로우 락을 잡지 않고, 고정 크기 바이너리 레코드를 메모리 맵 세그먼트 파일에 append 만 수행
+ - append 결과(CompletableFuture)는 레코드가 디스크에 force() 된 이후 완료 -> 완료된 요청은 장애 이후에도 유실되지 않음
+ - force() 는 레코드마다 하지 않고, flushBatchSize 건이 모이거나 flushInterval 이 지나면 flusher 쓰레드가 한 번에 수행(배치 fsync)
+ - 실제 member 테이블 반영은 JournalApplier 가 별도로 수행
+
+ * 레코드 형식(RECORD_SIZE = 64 byte)
+ - [0]  seq(long) : 1 부터 빈틈없이 증가, 0 이면 빈 레코드
+ - [8]  money(int)
+ - [12] fromId 길이(byte), [13] toId 길이(byte)
+ - [16] fromId(UTF-8, 최대 20 byte), [36] toId(UTF-8, 최대 20 byte)
+ - [56] CRC32(앞의 56 byte), [60] 예약
+
+ * 세그먼트
+ - 파일 이름은 세그먼트 첫 레코드의 seq(20자리), 세그먼트가 가득 차면 새 세그먼트로 넘어감(rollover)
+ - 다시 열 때 마지막 세그먼트를 처음부터 검사하여 seq 가 이어지지 않거나 CRC 가 맞지 않는 레코드 이전까지만 유효한 것으로 복구
+ - 복구 지점 이후는 0 으로 지우고 force -> 페이지 기록 순서가 뒤바뀌어 깨진 레코드 뒤에 남은 레코드(완료 응답하지 않음)가
+   새 레코드로 빈틈이 채워진 뒤 다음 복구에서 이어지는 레코드로 반영되는 것 방지
+ - JournalApplier 가 모두 반영한 세그먼트는 compact() 로 삭제
+ */
+@Slf4j
+public class TransferJournal implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 64;
+    private static final int MAX_ID_BYTES = 20;
+    private static final int CRC_OFFSET = 56;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final long flushIntervalNanos;
+    private final int flushBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final List<PendingAppend> pending = new ArrayList<>();
+    private final Thread flusher;
+
+    private Segment active;
+    private long nextSeq;
+    private volatile long durableSeq;
+    private volatile boolean closed;
+
+    /**
+     * @param recordsPerSegment  세그먼트 하나에 들어가는 레코드 수
+     * @param flushIntervalMicros 요청이 적을 때 force() 까지 최대 대기 시간
+     * @param flushBatchSize     대기중인 레코드가 이 개수 이상이면 바로 force()
+     */
+    public TransferJournal(Path directory, int recordsPerSegment, long flushIntervalMicros, int flushBatchSize) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.flushIntervalNanos = TimeUnit.MICROSECONDS.toNanos(flushIntervalMicros);
+        this.flushBatchSize = flushBatchSize;
+
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.flusher = new Thread(this::flushLoop, "transfer-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * 레코드 추가 - 반환된 future 는 해당 레코드가 force() 된 이후 seq 로 완료
+     */
+    public CompletableFuture<Long> append(String fromId, String toId, int money) {
+        byte[] from = encodeId(fromId);
+        byte[] to = encodeId(toId);
+        PendingAppend append;
+
+        lock.lock();
+        try {
+            if(closed) {
+                throw new IllegalStateException("journal closed");
+            }
+            if(active.count == recordsPerSegment) {
+                roll();
+            }
+
+            long seq = nextSeq++;
+            writeRecord(active.buffer, active.count * RECORD_SIZE, seq, from, to, money);
+            active.count++;
+
+            append = new PendingAppend(seq);
+            pending.add(append);
+            if(pending.size() >= flushBatchSize) {
+                flushNeeded.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return append.future;
+    }
+
+    /**
+     * force() 까지 완료된 마지막 seq - 이 값 이하의 레코드만 반영 대상
+     */
+    public long durableSeq() {
+        return durableSeq;
+    }
+
+    /**
+     * fromSeq 부터 최대 max 건 읽기(force() 된 레코드까지만)
+     */
+    public List<TransferRecord> read(long fromSeq, int max) {
+        List<TransferRecord> records = new ArrayList<>();
+        long limit = Math.min(durableSeq, fromSeq + max - 1);
+        long seq = fromSeq;
+
+        try {
+            while(seq <= limit) {
+                Path segment = segmentContaining(seq);
+                if(segment == null) {
+                    break;
+                }
+                long baseSeq = baseSeqOf(segment);
+                try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+                    for(; seq <= limit && seq < baseSeq + recordsPerSegment; seq++) {
+                        buffer.clear();
+                        channel.read(buffer, (seq - baseSeq) * RECORD_SIZE);
+                        TransferRecord record = readRecord(buffer, 0, seq);
+                        if(record == null) {
+                            throw new IllegalStateException("corrupted journal record seq = " + seq + ", segment = " + segment);
+                        }
+                        records.add(record);
+                    }
+                }
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    /**
+     * appliedSeq 까지 모두 반영된 세그먼트 파일 삭제(현재 쓰고 있는 세그먼트는 제외)
+     */
+    public int compact(long appliedSeq) {
+        int deleted = 0;
+        lock.lock();
+        try {
+            List<Path> segments = listSegments();
+            for(int i = 0; i + 1 < segments.size(); i++) {
+                long nextBaseSeq = baseSeqOf(segments.get(i + 1));
+                if(nextBaseSeq - 1 > appliedSeq) {
+                    break;
+                }
+                Files.delete(segments.get(i));
+                deleted++;
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        if(deleted > 0) {
+            log.info("journal compacted, deleted segments = {}, appliedSeq = {}", deleted, appliedSeq);
+        }
+        return deleted;
+    }
+
+    /**
+     * 대기중인 레코드를 모두 force() 한 뒤 종료
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+
+        try {
+            active.channel.close();
+        } catch(IOException e) {
+            log.info("error", e);
+        }
+    }
+
+    private void flushLoop() {
+        while(true) {
+            List<PendingAppend> batch;
+            MappedByteBuffer buffer;
+
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while(!closed && pending.size() < flushBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0 && !pending.isEmpty()) {
+                        break;
+                    }
+                    flushNeeded.awaitNanos(remaining > 0 ? remaining : flushIntervalNanos);
+                }
+                if(closed && pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+                buffer = active.buffer;
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            //force 는 락 밖에서 수행 -> fsync 하는 동안에도 append 는 계속 진행
+            //이전 세그먼트의 레코드는 roll() 에서 이미 force 되었음
+            buffer.force();
+            long lastSeq = batch.get(batch.size() - 1).seq;
+            durableSeq = lastSeq;
+            batch.forEach(append -> append.future.complete(append.seq));
+        }
+    }
+
+    /**
+     * 현재 세그먼트를 force 한 뒤 새 세그먼트 생성
+     */
+    private void roll() {
+        active.buffer.force();
+        try {
+            active.channel.close();
+            active = openSegment(nextSeq);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("journal rolled, new segment baseSeq = {}", nextSeq);
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments = listSegments();
+        if(segments.isEmpty()) {
+            active = openSegment(1);
+            nextSeq = 1;
+            durableSeq = 0;
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        active = openSegment(baseSeqOf(last));
+        while(active.count < recordsPerSegment
+                && readRecord(active.buffer, active.count * RECORD_SIZE, active.baseSeq + active.count) != null) {
+            active.count++;
+        }
+        truncateTail(active);
+        nextSeq = active.baseSeq + active.count;
+        durableSeq = nextSeq - 1;   //파일에 남아있는 레코드는 이미 디스크에 기록된 것으로 간주
+        log.info("journal recovered, segments = {}, nextSeq = {}", segments.size(), nextSeq);
+    }
+
+    /**
+     * 마지막 유효 레코드 이후를 모두 0 으로 지우고 force - append 를 받기 전에 수행
+     */
+    private void truncateTail(Segment segment) {
+        int end = recordsPerSegment * RECORD_SIZE;
+        for(int offset = segment.count * RECORD_SIZE; offset < end; offset += ZEROS.length) {
+            segment.buffer.put(offset, ZEROS, 0, Math.min(ZEROS.length, end - offset));
+        }
+        segment.buffer.force();
+    }
+
+    private Segment openSegment(long baseSeq) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", baseSeq, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        return new Segment(baseSeq, channel, buffer);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentContaining(long seq) throws IOException {
+        Path found = null;
+        for(Path segment : listSegments()) {
+            if(baseSeqOf(segment) > seq) {
+                break;
+            }
+            found = segment;
+        }
+        return found;
+    }
+
+    private static long baseSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encodeId(String memberId) {
+        byte[] bytes = memberId.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("memberId too long = " + memberId);
+        }
+        return bytes;
+    }
+
+    private static void writeRecord(ByteBuffer buffer, int offset, long seq, byte[] from, byte[] to, int money) {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+        recordBuffer.putLong(0, seq);
+        recordBuffer.putInt(8, money);
+        record[12] = (byte) from.length;
+        record[13] = (byte) to.length;
+        System.arraycopy(from, 0, record, 16, from.length);
+        System.arraycopy(to, 0, record, 16 + MAX_ID_BYTES, to.length);
+        recordBuffer.putInt(CRC_OFFSET, crcOf(record));
+
+        buffer.put(offset, record);
+    }
+
+    /**
+     * 기대한 seq 와 CRC 가 모두 일치하는 경우에만 레코드 반환, 아니면 null(빈 레코드 또는 깨진 레코드)
+     */
+    private static TransferRecord readRecord(ByteBuffer buffer, int offset, long expectedSeq) {
+        byte[] record = new byte[RECORD_SIZE];
+        buffer.get(offset, record);
+        ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+
+        if(recordBuffer.getLong(0) != expectedSeq || recordBuffer.getInt(CRC_OFFSET) != crcOf(record)) {
+            return null;
+        }
+        String fromId = new String(record, 16, record[12], StandardCharsets.UTF_8);
+        String toId = new String(record, 16 + MAX_ID_BYTES, record[13], StandardCharsets.UTF_8);
+        return new TransferRecord(expectedSeq, fromId, toId, recordBuffer.getInt(8));
+    }
+
+    private static int crcOf(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, CRC_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    private static class Segment {
+        private final long baseSeq;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int count;
+
+        Segment(long baseSeq, FileChannel channel, MappedByteBuffer buffer) {
+            this.baseSeq = baseSeq;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class PendingAppend {
+        private final long seq;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        PendingAppend(long seq) {
+            this.seq = seq;
+        }
+    }
+}
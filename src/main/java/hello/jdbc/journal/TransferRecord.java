@@ -0,0 +1,20 @@
+package hello.jdbc.journal;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 저널에 기록되는 이체 요청 한 건
+ - seq 는 저널 내에서 1 부터 빈틈없이 증가하는 번호
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TransferRecord {
+
+    private final long seq;
+    private final String fromId;
+    private final String toId;
+    private final int money;
+}
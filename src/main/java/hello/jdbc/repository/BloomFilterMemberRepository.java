@@ -0,0 +1,129 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.RepositoryExceptionMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 존재 여부 사전 확인 - MemberIdFilter 로 없는 회원 조회를 데이터베이스까지 보내지 않음
+ - 생성시 select member_id from member 를 fetchSize 단위로 스트리밍하며 필터 생성(전체 결과를 메모리에 올리지 않음)
+ - save, saveIfAbsent, upsert 는 필터에 먼저 추가한 뒤 저장 -> 저장 실패, 롤백된 id 는 false positive 로 남을 뿐 누락은 없음
+ - findById: 필터가 확실히 없다고 하면 데이터베이스에 가지 않고 바로 MyMemberNotFoundException(RepositoryExceptionMode.STACKLESS, 스택 트레이스 없음)
+   false positive 로 delegate 가 던진 회원 없음 예외(NoSuchElementException, EmptyResultDataAccessException)도 같은 예외로 변환(원인으로 보관)
+   -> 필터 상태, delegate 종류와 관계없이 회원이 없으면 항상 같은 예외
+ - delete: 확실히 없으면 생략, 삭제한 id 는 필터에서 지울 수 없어 false positive 로 남음(deletedCount 로 확인)
+ - 그 외는 delegate 에 그대로 위임
+
+ * 사용 조건
+ - 모든 저장이 이 레포지토리를 거쳐야 함, 다른 JVM 이나 직접 SQL 로 저장한 id 는 필터에 없어서 없는 회원으로 응답(false negative)
+ - 삭제가 많아 false positive 가 늘어나면 재시작(필터 재생성)으로 정리
+
+ * 지표
+ - definiteMisses: 데이터베이스 왕복 없이 응답한 조회 수
+ - falsePositives: 필터는 있다고 했지만 실제로 없었던 조회 수, measuredFpp = falsePositives / (definiteMisses + falsePositives)
+ */
+@Slf4j
+public class BloomFilterMemberRepository implements MemberRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final MemberRepository delegate;
+    private final MemberIdFilter filter;
+
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+
+    public BloomFilterMemberRepository(DataSource dataSource, MemberRepository delegate, long expectedMembers, double fpp) {
+        this.delegate = delegate;
+        this.filter = new MemberIdFilter(expectedMembers, fpp);
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(FETCH_SIZE);
+        template.query("select member_id from member", rs -> {
+            filter.put(rs.getString("member_id"));
+        });
+        log.info("member id filter loaded, members = {}, bits = {}, hashes = {}, memory = {} bytes",
+                filter.insertions(), filter.bitSize(), filter.hashCount(), filter.memoryBytes());
+    }
+
+    public boolean mightExist(String memberId) {
+        return filter.mightContain(memberId);
+    }
+
+    @Override
+    public Member save(Member member) {
+        filter.put(member.getMemberId());
+        return delegate.save(member);
+    }
+
+    @Override
+    public boolean saveIfAbsent(Member member) {
+        filter.put(member.getMemberId());
+        return delegate.saveIfAbsent(member);
+    }
+
+    @Override
+    public void upsert(Member member) {
+        filter.put(member.getMemberId());
+        delegate.upsert(member);
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        if(!filter.mightContain(memberId)) {
+            definiteMisses.increment();
+            throw RepositoryExceptionMode.STACKLESS.notFound(memberId);
+        }
+        try {
+            return delegate.findById(memberId);
+        } catch(NoSuchElementException | EmptyResultDataAccessException e) {
+            falsePositives.increment();
+            NoSuchElementException notFound = RepositoryExceptionMode.STACKLESS.notFound(memberId);
+            notFound.initCause(e);
+            throw notFound;
+        }
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        delegate.update(memberId, money);
+    }
+
+    @Override
+    public void delete(String memberId) {
+        if(!filter.mightContain(memberId)) {
+            definiteMisses.increment();
+            return;
+        }
+        delegate.delete(memberId);
+        deleted.increment();
+    }
+
+    public MemberIdFilter filter() {
+        return filter;
+    }
+
+    public long definiteMisses() {
+        return definiteMisses.sum();
+    }
+
+    public long falsePositives() {
+        return falsePositives.sum();
+    }
+
+    public long deletedCount() {
+        return deleted.sum();
+    }
+
+    public double measuredFpp() {
+        long misses = definiteMisses() + falsePositives();
+        return misses == 0 ? 0 : (double) falsePositives() / misses;
+    }
+}
@@ -4,6 +4,8 @@ import hello.jdbc.domain.Member;
 
 public interface MemberRepository {
     Member save(Member member);
+    boolean saveIfAbsent(Member member);    //이미 있으면 저장하지 않고 false, 키 중복 예외를 던지지 않음
+    void upsert(Member member);             //없으면 저장, 있으면 money 변경
     Member findById(String memberId);
     void update(String memberId, int money);
     void delete(String memberId);
@@ -1,5 +1,6 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.deadline.StatementTimeouts;
 import hello.jdbc.domain.Member;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.DataSourceUtils;
@@ -31,7 +32,7 @@ public class MemberRepositoryV3 {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, member.getMemberId());
             pstmt.setInt(2, member.getMoney());
             pstmt.executeUpdate();  // Statement 를 통해 준비된 SQL 을 커넥션을 통해 실제 데이터베이스에 전달(executeUpdate 은 int 반환)
@@ -53,7 +54,7 @@ public class MemberRepositoryV3 {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();  // 데이터 변경시 executeUpdate() 를 사용, 조회시 executeQuery() 사용 -> 결과를 RS 에 담아 반환
@@ -82,7 +83,7 @@ public class MemberRepositoryV3 {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setInt(1, money);
             pstmt.setString(2, memberId);
             int resultSize = pstmt.executeUpdate();     // executeUpdate 는 해당 SQL 에 영향을 받은 로우 수를 반환
@@ -103,17 +104,33 @@ public class MemberRepositoryV3 {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
             pstmt.executeUpdate();
         } catch(SQLException e) {
             log.error("db error", e);
             throw e;
         } finally {
+            StatementTimeouts.restore(pstmt);
             JdbcUtils.closeStatement(pstmt);
         }
     }
 
+    /**
+     * 마감 시간(Deadline, 트랜잭션 타임아웃)을 쿼리 타임아웃으로 적용 -> 락 대기 등으로 멈춘 SQL 이 커넥션을 계속 점유하지 않음
+     */
+    private PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement pstmt = con.prepareStatement(sql);
+        try {
+            StatementTimeouts.apply(pstmt, dataSource);
+            return pstmt;
+        } catch(SQLException e) {
+            StatementTimeouts.restore(pstmt);
+            JdbcUtils.closeStatement(pstmt);
+            throw e;
+        }
+    }
+
     /**
      * releaseConnection
      - con.close() 를 통해 커넥션을 직접 닫아버리면 커넥션이 유지되지 않는 문제 발생 -> 이후 로직은 물론이고 트랜잭션 종료(커밋, 롤백)까지 살아있어야 함
@@ -123,6 +140,7 @@ public class MemberRepositoryV3 {
      */
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
+        StatementTimeouts.restore(stmt);    //H2 세션에 남은 마감 시간 타임아웃 복원
         JdbcUtils.closeStatement(stmt);
         //주의! 트랜잭션 동기화를 사용하려면 DatasourceUtils 를 사용해야 함
         DataSourceUtils.releaseConnection(con, dataSource);
@@ -1,14 +1,15 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.deadline.StatementTimeouts;
 import hello.jdbc.domain.Member;
 import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.RepositoryExceptionMode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.NoSuchElementException;
 
 /**
  * 예외 누수 문제 해결
@@ -20,9 +21,18 @@ import java.util.NoSuchElementException;
 public class MemberRepositoryV4_1 implements MemberRepository {
 
     private final DataSource dataSource;
+    private final RepositoryExceptionMode exceptionMode;
 
     public MemberRepositoryV4_1(DataSource dataSource) {
+        this(dataSource, RepositoryExceptionMode.STACK_TRACE);
+    }
+
+    /**
+     * 예외 생성 방식 선택 - 중복 키, 회원 없음이 정상 흐름으로 자주 발생하면 STACKLESS, PREALLOCATED
+     */
+    public MemberRepositoryV4_1(DataSource dataSource, RepositoryExceptionMode exceptionMode) {
         this.dataSource = dataSource;
+        this.exceptionMode = exceptionMode;
     }
 
     public Member save(Member member) {
@@ -33,13 +43,64 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, member.getMemberId());
             pstmt.setInt(2, member.getMoney());
             pstmt.executeUpdate();
             return member;
         } catch(SQLException e) {
-            throw new MyDbException(e); //기존 예외를 포함 -> 예외 출력시 원인이 되는 기존 예외도 함께 확인 가능
+            if(e.getErrorCode() == 23505) {     //h2 db 키 중복
+                throw exceptionMode.duplicateKey(member.getMemberId(), e);
+            }
+            throw dbException(e); //기존 예외를 포함 -> 예외 출력시 원인이 되는 기존 예외도 함께 확인 가능
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * insert ... select ... where not exists -> 이미 있으면 0건 저장, 동시에 저장해서 발생한 키 중복(23505)도 false
+     */
+    public boolean saveIfAbsent(Member member) {
+        String sql = "insert into member(member_id, money) select ?, ? where not exists (select 1 from member where member_id = ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+            pstmt.setString(3, member.getMemberId());
+            return pstmt.executeUpdate() == 1;
+        } catch(SQLException e) {
+            if(e.getErrorCode() == 23505) {
+                return false;
+            }
+            throw dbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * H2 merge into ... key(...) -> 키가 있으면 update, 없으면 insert
+     */
+    public void upsert(Member member) {
+        String sql = "merge into member(member_id, money) key(member_id) values(?, ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+            pstmt.executeUpdate();
+        } catch(SQLException e) {
+            throw dbException(e);
         } finally {
             close(con, pstmt, null);
         }
@@ -54,7 +115,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();
@@ -65,10 +126,10 @@ public class MemberRepositoryV4_1 implements MemberRepository {
                 member.setMoney(rs.getInt("money"));
                 return member;
             } else {
-                throw new NoSuchElementException("member not found memberId = " + memberId);
+                throw exceptionMode.notFound(memberId);
             }
         } catch(SQLException e) {
-            throw new MyDbException(e);
+            throw dbException(e);
         } finally {
             close(con, pstmt, rs);
         }
@@ -82,13 +143,13 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setInt(1, money);
             pstmt.setString(2, memberId);
             int resultSize = pstmt.executeUpdate();
             log.info("resultSize = {}", resultSize);
         } catch(SQLException e) {
-            throw new MyDbException(e);
+            throw dbException(e);
         } finally {
             close(con, pstmt, null);
         }
@@ -102,18 +163,45 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
             pstmt.executeUpdate();
         } catch(SQLException e) {
-            throw new MyDbException(e);
+            throw dbException(e);
         } finally {
+            StatementTimeouts.restore(pstmt);
+            JdbcUtils.closeStatement(pstmt);
+        }
+    }
+
+    /**
+     * 마감 시간(Deadline, 트랜잭션 타임아웃)을 쿼리 타임아웃으로 적용 -> 락 대기 등으로 멈춘 SQL 이 커넥션을 계속 점유하지 않음
+     */
+    private PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement pstmt = con.prepareStatement(sql);
+        try {
+            StatementTimeouts.apply(pstmt, dataSource);
+            return pstmt;
+        } catch(SQLException e) {
+            StatementTimeouts.restore(pstmt);
             JdbcUtils.closeStatement(pstmt);
+            throw e;
+        }
+    }
+
+    /**
+     * 마감 시간 초과 -> MyQueryTimeoutException, 그 외 -> MyDbException
+     */
+    private MyDbException dbException(SQLException e) {
+        if(StatementTimeouts.isDeadlineExceeded(e, dataSource)) {
+            return exceptionMode.queryTimeout(e);
         }
+        return exceptionMode.dbException(e);
     }
 
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
+        StatementTimeouts.restore(stmt);    //H2 세션에 남은 마감 시간 타임아웃 복원
         JdbcUtils.closeStatement(stmt);
         DataSourceUtils.releaseConnection(con, dataSource);
     }
@@ -1,10 +1,12 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.deadline.DeadlineSQLExceptionTranslator;
+import hello.jdbc.deadline.StatementTimeouts;
 import hello.jdbc.domain.Member;
+import hello.jdbc.translator.SQLExceptionTranslatorRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
-import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLExceptionTranslator;
 
 import javax.sql.DataSource;
@@ -18,6 +20,8 @@ import java.util.NoSuchElementException;
  - 스프링이 예외를 추상화해준 덕분에 서비스 계층은 특정 레포지토리의 구현 기술과 예외에 종속적이지 않게됨
  - 서비스 계층은 특정 구현 기술이 변경되어도 그대로 유지할 수 있게 됨
  - 서비스 계층은 예외를 잡아서 복구해야 하는 경우, 예외가 스프링이 제공하는 데이터 접근 예외로 변경되어 서비스 계층으로 넘어오기 때문에 필요한 경우 처리 가능
+ - 예외 변환기는 SQLExceptionTranslatorRegistry 에서 DataSource 별로 공유 -> 예외 변환시 커넥션을 추가로 사용하지 않음
+ - 마감 시간 초과는 DeadlineExceededException(QueryTimeoutException) 으로 변환
  */
 @Slf4j
 public class MemberRepositoryV4_2 implements MemberRepository {
@@ -27,7 +31,8 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
     public MemberRepositoryV4_2(DataSource dataSource) {
         this.dataSource = dataSource;
-        this.exTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.exTranslator = new DeadlineSQLExceptionTranslator(dataSource,
+                SQLExceptionTranslatorRegistry.getTranslator(dataSource));    //DataSource 별로 공유, 미리 계산한 에러 코드 표 사용
     }
 
     public Member save(Member member) {
@@ -38,7 +43,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, member.getMemberId());
             pstmt.setInt(2, member.getMoney());
             pstmt.executeUpdate();
@@ -50,6 +55,54 @@ public class MemberRepositoryV4_2 implements MemberRepository {
         }
     }
 
+    /**
+     * insert ... select ... where not exists -> 이미 있으면 0건 저장, 동시에 저장해서 발생한 키 중복(23505)도 false
+     */
+    public boolean saveIfAbsent(Member member) {
+        String sql = "insert into member(member_id, money) select ?, ? where not exists (select 1 from member where member_id = ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+            pstmt.setString(3, member.getMemberId());
+            return pstmt.executeUpdate() == 1;
+        } catch(SQLException e) {
+            if(e.getErrorCode() == 23505) {
+                return false;
+            }
+            throw exTranslator.translate("saveIfAbsent", sql, e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * H2 merge into ... key(...) -> 키가 있으면 update, 없으면 insert
+     */
+    public void upsert(Member member) {
+        String sql = "merge into member(member_id, money) key(member_id) values(?, ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+            pstmt.executeUpdate();
+        } catch(SQLException e) {
+            throw exTranslator.translate("upsert", sql, e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
     public Member findById(String memberId) {
         String sql = "select * from member where member_id = ?";
 
@@ -59,7 +112,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();
@@ -87,7 +140,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setInt(1, money);
             pstmt.setString(2, memberId);
             int resultSize = pstmt.executeUpdate();
@@ -107,18 +160,35 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
             pstmt.executeUpdate();
         } catch(SQLException e) {
             throw exTranslator.translate("delete", sql, e);
         } finally {
+            StatementTimeouts.restore(pstmt);
+            JdbcUtils.closeStatement(pstmt);
+        }
+    }
+
+    /**
+     * 마감 시간(Deadline, 트랜잭션 타임아웃)을 쿼리 타임아웃으로 적용 -> 락 대기 등으로 멈춘 SQL 이 커넥션을 계속 점유하지 않음
+     */
+    private PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement pstmt = con.prepareStatement(sql);
+        try {
+            StatementTimeouts.apply(pstmt, dataSource);
+            return pstmt;
+        } catch(SQLException e) {
+            StatementTimeouts.restore(pstmt);
             JdbcUtils.closeStatement(pstmt);
+            throw e;
         }
     }
 
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
+        StatementTimeouts.restore(stmt);    //H2 세션에 남은 마감 시간 타임아웃 복원
         JdbcUtils.closeStatement(stmt);
         DataSourceUtils.releaseConnection(con, dataSource);
     }
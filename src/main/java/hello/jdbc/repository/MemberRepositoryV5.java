@@ -1,15 +1,19 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.deadline.DeadlineJdbcTemplate;
 import hello.jdbc.domain.Member;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
 
 import javax.sql.DataSource;
 
 /**
  * JdbcTemplate 사용
  - JdbcTemplate 은 JDBC 로 개발할 때 발생하는 반복의 해결과 트랜잭션을 위한 동기화, 예외 발생시 스프링 예외 변환기도 자동으로 실행
+ - DeadlineJdbcTemplate -> 마감 시간(Deadline, 트랜잭션 타임아웃)을 모든 SQL 의 쿼리 타임아웃으로 적용, 초과시 DeadlineExceededException
  */
 @Slf4j
 public class MemberRepositoryV5 implements MemberRepository {
@@ -17,7 +21,15 @@ public class MemberRepositoryV5 implements MemberRepository {
     private final JdbcTemplate template;
 
     public MemberRepositoryV5(DataSource dataSource) {
-        this.template = new JdbcTemplate(dataSource);
+        this.template = new DeadlineJdbcTemplate(dataSource);
+    }
+
+    /**
+     * 예외 변환기 지정 - 예: SQLExceptionTranslatorRegistry 에서 DataSource 별로 공유하는 변환기
+     */
+    public MemberRepositoryV5(DataSource dataSource, SQLExceptionTranslator exTranslator) {
+        this.template = new DeadlineJdbcTemplate(dataSource);
+        this.template.setExceptionTranslator(exTranslator);
     }
 
     public Member save(Member member) {
@@ -26,6 +38,27 @@ public class MemberRepositoryV5 implements MemberRepository {
         return member;
     }
 
+    /**
+     * insert ... select ... where not exists -> 이미 있으면 0건 저장
+     - 동시에 같은 id 를 저장하면 둘 다 not exists 를 통과할 수 있음 -> 기본키 중복은 false 로 처리
+     */
+    public boolean saveIfAbsent(Member member) {
+        String sql = "insert into member(member_id, money) select ?, ? where not exists (select 1 from member where member_id = ?)";
+        try {
+            return template.update(sql, member.getMemberId(), member.getMoney(), member.getMemberId()) == 1;
+        } catch(DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * H2 merge into ... key(...) -> 키가 있으면 update, 없으면 insert
+     */
+    public void upsert(Member member) {
+        String sql = "merge into member(member_id, money) key(member_id) values(?, ?)";
+        template.update(sql, member.getMemberId(), member.getMoney());
+    }
+
     public Member findById(String memberId) {
         String sql = "select * from member where member_id = ?";
         return template.queryForObject(sql, memberRowMapper(), memberId);
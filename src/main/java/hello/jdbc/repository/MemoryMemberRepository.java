@@ -0,0 +1,273 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.RepositoryExceptionMode;
+
+/**
+ * 메모리 레포지토리 - 오픈 어드레싱(String -> int) 테이블
+ - 시뮬레이션, H2 앞단의 hot tier 용도로 사용
+ - 엔트리마다 Member 객체나 Integer 를 만들지 않음 -> member_id 는 String[], money 는 int[] 에 그대로 보관
+ - findById 는 반환 시점에만 Member 를 생성
+
+ * 세그먼트 락(striped lock)
+ - 전체 테이블을 여러 개의 세그먼트(버킷 묶음)로 나누고, 세그먼트 단위로 락을 사용
+ - member_id 해시의 상위 비트로 세그먼트를, 하위 비트로 세그먼트 내부 버킷을 선택
+ - 서로 다른 세그먼트에 속한 회원의 update 는 락 경합 없이 병렬로 수행됨
+
+ * 주의
+ - 트랜잭션을 지원하지 않음 -> MemberServiceV4 에서 이체중 예외가 발생해도 이미 반영된 update 는 롤백되지 않음
+ */
+public class MemoryMemberRepository implements MemberRepository {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final RepositoryExceptionMode exceptionMode;
+
+    public MemoryMemberRepository() {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public MemoryMemberRepository(int initialCapacity, int concurrencyLevel) {
+        this(initialCapacity, concurrencyLevel, RepositoryExceptionMode.STACK_TRACE);
+    }
+
+    /**
+     * @param initialCapacity  예상 회원 수 - 세그먼트별 초기 버킷 수를 정하는데 사용
+     * @param concurrencyLevel 동시에 update 할 것으로 예상되는 쓰레드 수 - 2의 제곱수로 올림하여 세그먼트 수로 사용
+     * @param exceptionMode    중복 키, 회원 없음 예외 생성 방식 - 시뮬레이션처럼 예외가 잦은 경우 STACKLESS, PREALLOCATED
+     */
+    public MemoryMemberRepository(int initialCapacity, int concurrencyLevel, RepositoryExceptionMode exceptionMode) {
+        if(initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity + ", concurrencyLevel = " + concurrencyLevel);
+        }
+
+        int segmentCount = powerOfTwo(Math.min(concurrencyLevel, MAX_SEGMENTS));
+        int segmentCapacity = powerOfTwo(Math.max(2, (initialCapacity + segmentCount - 1) / segmentCount * 2));
+
+        this.segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segmentMask = segmentCount - 1;
+        this.exceptionMode = exceptionMode;
+    }
+
+    @Override
+    public Member save(Member member) {
+        String memberId = member.getMemberId();
+        int hash = hash(memberId);
+
+        if(!segmentFor(hash).insert(memberId, hash, member.getMoney())) {
+            throw exceptionMode.duplicateKey(memberId, null);
+        }
+        return member;
+    }
+
+    @Override
+    public boolean saveIfAbsent(Member member) {
+        String memberId = member.getMemberId();
+        int hash = hash(memberId);
+        return segmentFor(hash).insert(memberId, hash, member.getMoney());
+    }
+
+    @Override
+    public void upsert(Member member) {
+        String memberId = member.getMemberId();
+        int hash = hash(memberId);
+        Segment segment = segmentFor(hash);
+
+        synchronized(segment) {
+            int slot = segment.indexOf(memberId, hash);
+            if(slot >= 0) {
+                segment.values[slot] = member.getMoney();
+            } else {
+                segment.insert(memberId, hash, member.getMoney());
+            }
+        }
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        int hash = hash(memberId);
+        Segment segment = segmentFor(hash);
+        int money;
+
+        synchronized(segment) {
+            int slot = segment.indexOf(memberId, hash);
+            if(slot < 0) {
+                throw exceptionMode.notFound(memberId);
+            }
+            money = segment.values[slot];
+        }
+        return new Member(memberId, money);   //반환 시점에만 Member 생성
+    }
+
+    /**
+     * JDBC 레포지토리와 마찬가지로 존재하지 않는 회원의 update 는 아무것도 변경하지 않음(영향받은 로우 수 0)
+     */
+    @Override
+    public void update(String memberId, int money) {
+        int hash = hash(memberId);
+        Segment segment = segmentFor(hash);
+
+        synchronized(segment) {
+            int slot = segment.indexOf(memberId, hash);
+            if(slot >= 0) {
+                segment.values[slot] = money;
+            }
+        }
+    }
+
+    @Override
+    public void delete(String memberId) {
+        int hash = hash(memberId);
+        segmentFor(hash).remove(memberId, hash);
+    }
+
+    /**
+     * 저장된 회원 수
+     */
+    public int size() {
+        int size = 0;
+        for(Segment segment : segments) {
+            synchronized(segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * String.hashCode() 의 하위 비트 편중을 줄이기 위해 상위 비트를 섞은 뒤 피보나치 해싱 적용
+     */
+    private static int hash(String memberId) {
+        int h = memberId.hashCode();
+        return (h ^ (h >>> 16)) * 0x9E3779B9;
+    }
+
+    private static int powerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * 세그먼트 - 선형 탐사(linear probing) 방식의 오픈 어드레싱 테이블
+     - 삭제된 버킷은 TOMBSTONE 으로 표시하여 탐사 체인이 끊기지 않도록 함
+     - 모든 접근은 세그먼트 자신을 모니터로 사용하여 동기화
+     */
+    private static final class Segment {
+
+        private static final String TOMBSTONE = new String("<deleted>"); //참조 비교용 표식, 실제 member_id 와 equals 비교하지 않음
+        private static final float LOAD_FACTOR = 0.75f;
+
+        private String[] keys;
+        private int[] values;
+        private int size;   //실제 회원 수
+        private int used;   //회원 + TOMBSTONE 이 차지한 버킷 수
+        private int threshold;
+
+        Segment(int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * 버킷 위치 반환, 없으면 -1 (호출하는 쪽에서 동기화 필요)
+         */
+        int indexOf(String key, int hash) {
+            String[] keys = this.keys;
+            int mask = keys.length - 1;
+
+            for(int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                String k = keys[slot];
+                if(k == null) {
+                    return -1;
+                }
+                if(k != TOMBSTONE && k.equals(key)) {
+                    return slot;
+                }
+            }
+        }
+
+        synchronized boolean insert(String key, int hash, int value) {
+            if(used + 1 > threshold) {
+                rehash();
+            }
+
+            int mask = keys.length - 1;
+            int tombstone = -1;
+            int slot = hash & mask;
+
+            for(String k; (k = keys[slot]) != null; slot = (slot + 1) & mask) {
+                if(k == TOMBSTONE) {
+                    if(tombstone < 0) {
+                        tombstone = slot;
+                    }
+                } else if(k.equals(key)) {
+                    return false;
+                }
+            }
+
+            if(tombstone >= 0) {
+                slot = tombstone;   //TOMBSTONE 버킷 재사용 -> used 는 그대로
+            } else {
+                used++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            return true;
+        }
+
+        synchronized void remove(String key, int hash) {
+            int slot = indexOf(key, hash);
+            if(slot >= 0) {
+                keys[slot] = TOMBSTONE;
+                values[slot] = 0;
+                size--;
+            }
+        }
+
+        /**
+         * TOMBSTONE 이 많으면 같은 크기로, 회원이 많으면 2배 크기로 재배치
+         */
+        private void rehash() {
+            String[] oldKeys = keys;
+            int[] oldValues = values;
+            int capacity = size + 1 > threshold / 2 ? oldKeys.length << 1 : oldKeys.length;
+
+            allocate(capacity);
+            int mask = capacity - 1;
+            for(int i = 0; i < oldKeys.length; i++) {
+                String k = oldKeys[i];
+                if(k == null || k == TOMBSTONE) {
+                    continue;
+                }
+                int slot = hash(k) & mask;
+                while(keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+                used++;
+                size++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new String[capacity];
+            values = new int[capacity];
+            size = 0;
+            used = 0;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 인기 회원 잔액 분할(striping)
+ - 이체가 몰리는 소수의 회원은 member 테이블의 로우 하나에 update 가 집중됨 -> 로우 락 대기열(lock convoy) 발생
+ - 지정한 인기 회원의 잔액을 member_stripe 테이블의 K 개 로우로 나누어 저장
+ - 입금은 임의의 stripe 하나에만 반영 -> 동시에 들어온 입금이 서로 다른 로우 락을 잡게 됨
+ - 출금은 임의의 stripe 부터 잔액이 있는 stripe 를 차례대로 차감
+ - findById 는 모든 stripe 의 합계를 반환
+ - 인기 회원이 아닌 경우 기존 레포지토리(delegate)에 그대로 위임
+
+ * MemberService 입장에서의 투명성
+ - 서비스는 기존과 같이 findById 로 잔액을 읽고 update(memberId, 새 잔액) 을 호출
+ - update 는 새 잔액과 현재 합계의 차이(delta)를 계산하여 입금 또는 출금으로 반영
+ - 읽은 뒤 쓰는 방식이므로 동시 이체시 갱신 손실 가능성은 단일 로우 방식(MemberServiceV4)과 동일
+
+ * 테이블
+ create table member_stripe (
+     member_id varchar(10),
+     stripe integer,
+     money integer not null default 0,
+     primary key (member_id, stripe)
+ );
+ */
+@Slf4j
+public class StripedMemberRepository implements MemberRepository {
+
+    private final JdbcTemplate template;
+    private final MemberRepository delegate;
+    private final Set<String> hotMemberIds;
+    private final int stripes;
+
+    public StripedMemberRepository(DataSource dataSource, MemberRepository delegate, Set<String> hotMemberIds, int stripes) {
+        if(stripes < 1) {
+            throw new IllegalArgumentException("stripes = " + stripes);
+        }
+        this.template = new JdbcTemplate(dataSource);
+        this.delegate = delegate;
+        this.hotMemberIds = Set.copyOf(hotMemberIds);
+        this.stripes = stripes;
+    }
+
+    public boolean isHot(String memberId) {
+        return hotMemberIds.contains(memberId);
+    }
+
+    /**
+     * 첫 번째 stripe 에 전체 잔액, 나머지 stripe 는 0 으로 생성
+     */
+    @Override
+    public Member save(Member member) {
+        if(!isHot(member.getMemberId())) {
+            return delegate.save(member);
+        }
+
+        String sql = "insert into member_stripe(member_id, stripe, money) values(?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(stripes);
+        for(int stripe = 0; stripe < stripes; stripe++) {
+            rows.add(new Object[]{member.getMemberId(), stripe, stripe == 0 ? member.getMoney() : 0});
+        }
+        template.batchUpdate(sql, rows);
+        return member;
+    }
+
+    /**
+     * 첫 번째 stripe 를 insert ... where not exists 로 저장한 경우에만 나머지 stripe 생성
+     */
+    @Override
+    public boolean saveIfAbsent(Member member) {
+        if(!isHot(member.getMemberId())) {
+            return delegate.saveIfAbsent(member);
+        }
+
+        String firstSql = "insert into member_stripe(member_id, stripe, money) select ?, 0, ? " +
+                "where not exists (select 1 from member_stripe where member_id = ? and stripe = 0)";
+        try {
+            if(template.update(firstSql, member.getMemberId(), member.getMoney(), member.getMemberId()) == 0) {
+                return false;
+            }
+        } catch(DuplicateKeyException e) {
+            return false;
+        }
+
+        String sql = "insert into member_stripe(member_id, stripe, money) values(?, ?, 0)";
+        List<Object[]> rows = new ArrayList<>(stripes);
+        for(int stripe = 1; stripe < stripes; stripe++) {
+            rows.add(new Object[]{member.getMemberId(), stripe});
+        }
+        template.batchUpdate(sql, rows);
+        return true;
+    }
+
+    /**
+     * 인기 회원은 없으면 저장, 있으면 update 와 같이 합계와의 차이만 반영
+     */
+    @Override
+    public void upsert(Member member) {
+        if(!isHot(member.getMemberId())) {
+            delegate.upsert(member);
+            return;
+        }
+        if(!saveIfAbsent(member)) {
+            update(member.getMemberId(), member.getMoney());
+        }
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        if(!isHot(memberId)) {
+            return delegate.findById(memberId);
+        }
+        return new Member(memberId, sumOf(memberId));
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        if(!isHot(memberId)) {
+            delegate.update(memberId, money);
+            return;
+        }
+
+        int delta = money - sumOf(memberId);
+        if(delta > 0) {
+            credit(memberId, delta);
+        } else if(delta < 0) {
+            debit(memberId, -delta);
+        }
+    }
+
+    @Override
+    public void delete(String memberId) {
+        if(!isHot(memberId)) {
+            delegate.delete(memberId);
+            return;
+        }
+
+        String sql = "delete from member_stripe where member_id = ?";
+        template.update(sql, memberId);
+    }
+
+    private int sumOf(String memberId) {
+        String sql = "select count(*) as stripes, coalesce(sum(money), 0) as money from member_stripe where member_id = ?";
+        int[] result = template.queryForObject(sql, (rs, rowNum) -> new int[]{rs.getInt("stripes"), rs.getInt("money")}, memberId);
+        if(result[0] == 0) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return result[1];
+    }
+
+    /**
+     * 입금 - 임의의 stripe 하나만 변경
+     */
+    private void credit(String memberId, int amount) {
+        String sql = "update member_stripe set money = money + ? where member_id = ? and stripe = ?";
+        template.update(sql, amount, memberId, ThreadLocalRandom.current().nextInt(stripes));
+    }
+
+    /**
+     * 출금 - 임의의 stripe 부터 잔액 범위 내에서 차례대로 차감
+     - 조건부 update(money >= ?) 로 다른 트랜잭션이 먼저 차감한 stripe 는 건너뜀
+     - 모든 stripe 를 돌고도 남은 금액은 시작 stripe 에서 차감(단일 로우와 마찬가지로 음수 잔액 허용)
+     */
+    private void debit(String memberId, int amount) {
+        String selectSql = "select money from member_stripe where member_id = ? order by stripe";
+        String debitSql = "update member_stripe set money = money - ? where member_id = ? and stripe = ? and money >= ?";
+        String forceSql = "update member_stripe set money = money - ? where member_id = ? and stripe = ?";
+
+        List<Integer> balances = template.queryForList(selectSql, Integer.class, memberId);
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        int remaining = amount;
+
+        for(int i = 0; i < stripes && remaining > 0; i++) {
+            int stripe = (start + i) % stripes;
+            int take = Math.min(remaining, balances.get(stripe));
+            if(take > 0 && template.update(debitSql, take, memberId, stripe, take) == 1) {
+                remaining -= take;
+            }
+        }
+
+        if(remaining > 0) {
+            template.update(forceSql, remaining, memberId, start);
+        }
+    }
+}
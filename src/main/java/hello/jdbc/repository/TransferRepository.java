@@ -0,0 +1,59 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * 이체 전용 레포지토리 - 정해진 순서로 로우 락 획득
+ - bigLogic 은 fromId, toId 순서로 update 하면서 락을 잡음 -> A->B, B->A 이체가 동시에 실행되면 서로의 락을 기다리는 데드락 발생
+ - lockInOrder() 는 select ... for update 를 member_id 순서로 실행 -> 모든 트랜잭션이 같은 순서로 락을 잡으므로 순환 대기가 생기지 않음
+ - transfer() 는 CASE 식을 사용한 update 한 번으로 두 회원의 잔액을 함께 변경
+ - addMoney() 는 한 회원의 잔액만 money = money + ? 로 변경 -> 서로 다른 데이터베이스(샤드)에 있는 회원 간 이체에서 사용
+ - 트랜잭션 안에서 사용해야 함(락은 트랜잭션 종료시 해제)
+ */
+@Slf4j
+public class TransferRepository {
+
+    private final JdbcTemplate template;
+
+    public TransferRepository(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 두 회원의 로우 락을 member_id 오름차순으로 획득하고, 락을 잡은 시점의 회원 반환(member_id 순서)
+     */
+    public List<Member> lockInOrder(String memberId1, String memberId2) {
+        String sql = "select member_id, money from member where member_id in (?, ?) order by member_id for update";
+        List<Member> members = template.query(sql, (rs, rowNum) -> new Member(rs.getString("member_id"), rs.getInt("money")),
+                memberId1, memberId2);
+
+        int expected = memberId1.equals(memberId2) ? 1 : 2;
+        if(members.size() != expected) {
+            throw new IncorrectResultSizeDataAccessException(expected, members.size());
+        }
+        return members;
+    }
+
+    /**
+     * fromId 에서 money 만큼 출금, toId 에 입금 - update 한 번으로 처리
+     */
+    public void transfer(String fromId, String toId, int money) {
+        String sql = "update member set money = case when member_id = ? then money - ? else money + ? end " +
+                "where member_id in (?, ?)";
+        template.update(sql, fromId, money, money, fromId, toId);
+    }
+
+    /**
+     * memberId 잔액에 amount 만큼 더함(음수면 출금), 변경된 로우 수 반환(회원이 없으면 0)
+     */
+    public int addMoney(String memberId, int amount) {
+        String sql = "update member set money = money + ? where member_id = ?";
+        return template.update(sql, amount, memberId);
+    }
+}
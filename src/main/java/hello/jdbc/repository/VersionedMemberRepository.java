@@ -0,0 +1,104 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyOptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+
+/**
+ * 낙관적 락 - member.version 컬럼 사용
+ - findById 는 잔액과 함께 version 을 읽음
+ - update(memberId, money, version) 은 where member_id = ? and version = ? 조건으로 변경하고 version 을 1 증가
+ -> 조회 이후 다른 트랜잭션이 먼저 변경했다면 0건 변경 -> MyOptimisticLockException
+ - 버전 없는 update(memberId, money) 는 조건 없이 변경하고 version 만 증가
+ - findByIdForUpdate 는 select ... for update 로 로우 락을 잡고 조회(비관적 락) -> 락을 잡은 상태의 version 이므로 이후 update 는 충돌하지 않음
+
+ * 테이블 - 기존 member 테이블에 컬럼 추가
+ alter table member add column version bigint default 0 not null;
+ */
+@Slf4j
+public class VersionedMemberRepository implements MemberRepository {
+
+    private final JdbcTemplate template;
+
+    public VersionedMemberRepository(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Member save(Member member) {
+        String sql = "insert into member(member_id, money, version) values(?, ?, 0)";
+        template.update(sql, member.getMemberId(), member.getMoney());
+        member.setVersion(0L);
+        return member;
+    }
+
+    @Override
+    public boolean saveIfAbsent(Member member) {
+        String sql = "insert into member(member_id, money, version) select ?, ?, 0 where not exists (select 1 from member where member_id = ?)";
+        try {
+            if(template.update(sql, member.getMemberId(), member.getMoney(), member.getMemberId()) == 0) {
+                return false;
+            }
+        } catch(DuplicateKeyException e) {
+            return false;
+        }
+        member.setVersion(0L);
+        return true;
+    }
+
+    /**
+     * 있으면 money 변경과 함께 version 증가, 없으면 version 0 으로 저장
+     */
+    @Override
+    public void upsert(Member member) {
+        String sql = "merge into member m using (values(cast(? as varchar(10)), cast(? as integer))) s(member_id, money) on m.member_id = s.member_id " +
+                "when matched then update set money = s.money, version = m.version + 1 " +
+                "when not matched then insert(member_id, money, version) values(s.member_id, s.money, 0)";
+        template.update(sql, member.getMemberId(), member.getMoney());
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        String sql = "select member_id, money, version from member where member_id = ?";
+        return template.queryForObject(sql, memberRowMapper(), memberId);
+    }
+
+    /**
+     * 로우 락을 잡고 조회 - 트랜잭션 안에서 사용
+     */
+    public Member findByIdForUpdate(String memberId) {
+        String sql = "select member_id, money, version from member where member_id = ? for update";
+        return template.queryForObject(sql, memberRowMapper(), memberId);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        String sql = "update member set money = ?, version = version + 1 where member_id = ?";
+        template.update(sql, money, memberId);
+    }
+
+    /**
+     * version 이 일치할 때만 변경
+     */
+    public void update(String memberId, int money, long version) {
+        String sql = "update member set money = ?, version = version + 1 where member_id = ? and version = ?";
+        if(template.update(sql, money, memberId, version) == 0) {
+            throw new MyOptimisticLockException("member " + memberId + " was changed, version = " + version);
+        }
+    }
+
+    @Override
+    public void delete(String memberId) {
+        String sql = "delete from member where member_id = ?";
+        template.update(sql, memberId);
+    }
+
+    private RowMapper<Member> memberRowMapper() {
+        return ((rs, rowNum) -> new Member(rs.getString("member_id"), rs.getInt("money"), rs.getLong("version")));
+    }
+}
@@ -16,4 +16,11 @@ public class MyDbException extends RuntimeException {
     public MyDbException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * writableStackTrace = false 이면 스택 트레이스를 채우지 않음(stackless) -> RepositoryExceptionMode 에서 사용
+     */
+    protected MyDbException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -22,4 +22,11 @@ public class MyDuplicateKeyException extends MyDbException {
     public MyDuplicateKeyException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * writableStackTrace = false 이면 스택 트레이스를 채우지 않음(stackless) -> RepositoryExceptionMode 에서 사용
+     */
+    protected MyDuplicateKeyException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -0,0 +1,30 @@
+package hello.jdbc.repository.ex;
+
+import java.util.NoSuchElementException;
+
+/**
+ * MyMemberNotFoundException
+ - 회원이 없을 때 던지는 예외, 기존 코드와 호환되도록 NoSuchElementException 을 상속
+ - NoSuchElementException 은 writableStackTrace 생성자가 없으므로 fillInStackTrace() 를 재정의해서 스택 트레이스 생략
+ */
+public class MyMemberNotFoundException extends NoSuchElementException {
+
+    private final boolean writableStackTrace;
+
+    public MyMemberNotFoundException(String message) {
+        this(message, true);
+    }
+
+    public MyMemberNotFoundException(String message, boolean writableStackTrace) {
+        super(message);
+        this.writableStackTrace = writableStackTrace;
+        if(writableStackTrace) {
+            fillInStackTrace();     //super() 호출 시점에는 필드가 초기화 전이라 스택 트레이스를 채우지 않았음
+        }
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return writableStackTrace ? super.fillInStackTrace() : this;
+    }
+}
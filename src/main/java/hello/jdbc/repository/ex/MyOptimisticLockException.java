@@ -0,0 +1,24 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * MyOptimisticLockException
+ - 버전 조건(where version = ?)을 포함한 update 가 0건을 변경한 경우 던지는 예외
+ - 조회 이후 다른 트랜잭션이 먼저 같은 회원을 변경했다는 의미 -> 다시 조회해서 재시도하면 성공할 수 있음
+ */
+public class MyOptimisticLockException extends MyDbException {
+
+    public MyOptimisticLockException() {
+    }
+
+    public MyOptimisticLockException(String message) {
+        super(message);
+    }
+
+    public MyOptimisticLockException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MyOptimisticLockException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,20 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * MyQueryTimeoutException
+ - 마감 시간(Deadline, 트랜잭션 타임아웃) 초과로 SQL 이 취소되었거나 실행되지 않은 경우에만 던지는 예외
+ - MyDbException 을 상속 -> 기존 처리는 그대로 동작하고, 필요하면 타임아웃만 따로 잡아서 처리 가능
+ */
+public class MyQueryTimeoutException extends MyDbException {
+
+    public MyQueryTimeoutException(Throwable cause) {
+        super(cause);
+    }
+
+    /**
+     * writableStackTrace = false 이면 스택 트레이스를 채우지 않음(stackless) -> RepositoryExceptionMode 에서 사용
+     */
+    protected MyQueryTimeoutException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
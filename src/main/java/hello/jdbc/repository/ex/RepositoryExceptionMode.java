@@ -0,0 +1,106 @@
+package hello.jdbc.repository.ex;
+
+import java.util.NoSuchElementException;
+
+/**
+ * 레포지토리 예외 생성 방식 - 레포지토리마다 선택
+ - 중복 키(재시도로 복구), 회원 없음 같은 예외는 정상 흐름의 일부로 자주 발생
+ - 예외 생성 비용의 대부분은 fillInStackTrace() 에서 호출 스택 전체를 기록하는 비용 -> 호출 스택이 깊을수록 커짐
+
+ * STACK_TRACE (기본값)
+ - 기존과 동일, 매번 스택 트레이스를 포함한 새 예외 생성
+
+ * STACKLESS
+ - 매번 새 예외를 생성하지만 스택 트레이스를 채우지 않음 -> 메시지와 원인(cause)은 그대로 유지
+ - 로그에서 발생 위치를 알 수 없으므로 원인 예외나 메시지로 충분히 추적 가능한 경우에 사용
+
+ * PREALLOCATED
+ - 중복 키, 회원 없음은 미리 만들어 둔 하나의 예외를 공유해서 던짐 -> 생성 비용 없음
+ - 공유 인스턴스이므로 메시지에 회원 id 가 없음
+ - 중복 키 예외는 suppressed 예외 추가를 막음(enableSuppression = false), 회원 없음 예외는 NoSuchElementException 제약으로 막을 수 없으므로 addSuppressed 하지 않아야 함
+ - 원인(SQLException)이 중요한 MyDbException, MyQueryTimeoutException 은 STACKLESS 와 같이 매번 생성
+ */
+public enum RepositoryExceptionMode {
+
+    STACK_TRACE {
+        @Override
+        public MyDbException dbException(Throwable cause) {
+            return new MyDbException(cause);
+        }
+
+        @Override
+        public MyQueryTimeoutException queryTimeout(Throwable cause) {
+            return new MyQueryTimeoutException(cause);
+        }
+
+        @Override
+        public MyDuplicateKeyException duplicateKey(String memberId, Throwable cause) {
+            return new MyDuplicateKeyException("duplicate memberId = " + memberId, cause);
+        }
+
+        @Override
+        public NoSuchElementException notFound(String memberId) {
+            return new NoSuchElementException("member not found memberId = " + memberId);
+        }
+    },
+
+    STACKLESS {
+        @Override
+        public MyDbException dbException(Throwable cause) {
+            return new MyDbException(String.valueOf(cause), cause, true, false);
+        }
+
+        @Override
+        public MyQueryTimeoutException queryTimeout(Throwable cause) {
+            return new MyQueryTimeoutException(String.valueOf(cause), cause, true, false);
+        }
+
+        @Override
+        public MyDuplicateKeyException duplicateKey(String memberId, Throwable cause) {
+            return new MyDuplicateKeyException("duplicate memberId = " + memberId, cause, true, false);
+        }
+
+        @Override
+        public NoSuchElementException notFound(String memberId) {
+            return new MyMemberNotFoundException("member not found memberId = " + memberId, false);
+        }
+    },
+
+    PREALLOCATED {
+        @Override
+        public MyDbException dbException(Throwable cause) {
+            return STACKLESS.dbException(cause);
+        }
+
+        @Override
+        public MyQueryTimeoutException queryTimeout(Throwable cause) {
+            return STACKLESS.queryTimeout(cause);
+        }
+
+        @Override
+        public MyDuplicateKeyException duplicateKey(String memberId, Throwable cause) {
+            return Preallocated.DUPLICATE_KEY;
+        }
+
+        @Override
+        public NoSuchElementException notFound(String memberId) {
+            return Preallocated.NOT_FOUND;
+        }
+    };
+
+    public abstract MyDbException dbException(Throwable cause);
+
+    public abstract MyQueryTimeoutException queryTimeout(Throwable cause);
+
+    public abstract MyDuplicateKeyException duplicateKey(String memberId, Throwable cause);
+
+    public abstract NoSuchElementException notFound(String memberId);
+
+    /**
+     * 공유 예외 - enum 상수 초기화 순서와 관계없도록 별도 클래스에 보관
+     */
+    private static class Preallocated {
+        static final MyDuplicateKeyException DUPLICATE_KEY = new MyDuplicateKeyException("duplicate memberId", null, false, false);
+        static final NoSuchElementException NOT_FOUND = new MyMemberNotFoundException("member not found", false);
+    }
+}
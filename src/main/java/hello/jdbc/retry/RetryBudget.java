@@ -0,0 +1,44 @@
+package hello.jdbc.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 재시도 예산 - 전체 호출 대비 재시도 비율 제한
+ - 호출 1건마다 ratio 만큼 토큰 적립, 재시도 1건마다 토큰 1개 사용
+ - 토큰은 최대 maxTokens 까지만 적립 -> 장애가 길어지면 재시도가 부하를 키우는 재시도 폭주(retry storm) 방지
+ - 토큰은 소수를 표현하기 위해 1000 배 정수로 보관
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerCall;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    public RetryBudget(double ratio, int maxTokens) {
+        this.depositPerCall = Math.round(ratio * SCALE);
+        this.maxTokens = maxTokens * SCALE;
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    public void deposit() {
+        tokens.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(maxTokens, current + deposit));
+    }
+
+    public boolean tryWithdraw() {
+        while(true) {
+            long current = tokens.get();
+            if(current < SCALE) {
+                return false;
+            }
+            if(tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double available() {
+        return (double) tokens.get() / SCALE;
+    }
+}
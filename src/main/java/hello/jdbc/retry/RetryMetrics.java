@@ -0,0 +1,63 @@
+package hello.jdbc.retry;
+
+import lombok.ToString;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 재시도 지표
+ - calls: 인터셉터를 통과한 호출 수
+ - retries: 재시도 횟수
+ - recovered: 재시도 후 성공한 호출 수
+ - exhausted: 최대 시도 횟수를 넘어 실패한 호출 수
+ - budgetRejected: 재시도 예산이 부족해서 재시도하지 않은 호출 수
+ */
+@ToString
+public class RetryMetrics {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder budgetRejected = new LongAdder();
+
+    void call() {
+        calls.increment();
+    }
+
+    void retry() {
+        retries.increment();
+    }
+
+    void recovered() {
+        recovered.increment();
+    }
+
+    void exhausted() {
+        exhausted.increment();
+    }
+
+    void budgetRejected() {
+        budgetRejected.increment();
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getRecovered() {
+        return recovered.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public long getBudgetRejected() {
+        return budgetRejected.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package hello.jdbc.retry;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * @Transactional 메서드 재시도 설정 - transaction.retry.enabled=true 로 켜야 적용(기본값 꺼짐)
+ - @Transactional 이 붙은 클래스, 메서드에 TransactionRetryInterceptor 적용
+ - 트랜잭션 어드바이저(order = LOWEST_PRECEDENCE)보다 먼저 실행되도록 order 를 하나 앞에 둠
+
+ * 속성(기본값)
+ - transaction.retry.max-attempts=3
+ - transaction.retry.base-delay-millis=10, transaction.retry.max-delay-millis=200
+ - transaction.retry.budget-ratio=0.2 -> 호출 5건당 재시도 1건, transaction.retry.budget-max-tokens=20
+ */
+@Configuration
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@ConditionalOnProperty(prefix = "transaction.retry", name = "enabled", havingValue = "true")
+public class TransactionRetryConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public TransactionRetryInterceptor transactionRetryInterceptor(
+            @Value("${transaction.retry.max-attempts:3}") int maxAttempts,
+            @Value("${transaction.retry.base-delay-millis:10}") long baseDelayMillis,
+            @Value("${transaction.retry.max-delay-millis:200}") long maxDelayMillis,
+            @Value("${transaction.retry.budget-ratio:0.2}") double budgetRatio,
+            @Value("${transaction.retry.budget-max-tokens:20}") int budgetMaxTokens) {
+        return new TransactionRetryInterceptor(maxAttempts, baseDelayMillis, maxDelayMillis,
+                new RetryBudget(budgetRatio, budgetMaxTokens));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor transactionRetryAdvisor(TransactionRetryInterceptor transactionRetryInterceptor) {
+        Pointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(Transactional.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(Transactional.class));
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, transactionRetryInterceptor);
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return advisor;
+    }
+}
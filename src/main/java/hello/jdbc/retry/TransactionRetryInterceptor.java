@@ -0,0 +1,120 @@
+package hello.jdbc.retry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 트랜잭션 재시도 - 데드락, 직렬화 실패 같은 락 충돌 발생시 트랜잭션 전체를 다시 실행
+ - 트랜잭션 프록시보다 바깥에서 실행되어야 함 -> 재시도마다 새 트랜잭션으로 처음부터 다시 실행
+ - 이미 트랜잭션 안에서 호출된 경우 재시도하지 않음 -> 바깥 트랜잭션은 롤백 전용이 되므로 바깥에서 재시도해야 함
+
+ * 재시도 대상 - 다시 실행하면 성공할 가능성이 높은 락 충돌만
+ - PessimisticLockingFailureException: 스프링 예외 변환기가 반환하는 데드락(DeadlockLoserDataAccessException), 락 획득 실패(CannotAcquireLockException)
+ - 원인에 SQLState 40001(직렬화 실패, 데드락), 40P01(PostgreSQL 데드락) 이 있는 경우 -> MyDbException 처럼 직접 감싼 예외도 처리
+
+ * 재시도 제외 - 과부하 신호이므로 재시도하면 부하만 늘어남
+ - 쿼리 타임아웃(QueryTimeoutException, 마감 시간 초과 DeadlineExceededException 포함), SQLTimeoutException
+ - 커넥션 획득 실패(CannotGetJdbcConnectionException, SQLTransientConnectionException - 풀 고갈)
+ - 예외와 원인을 바깥부터 확인해서 먼저 판단되는 쪽을 따름 -> H2 락 타임아웃(CannotAcquireLockException <- SQLTimeoutException)은 재시도
+
+ * 백오프
+ - full jitter: 0 ~ min(maxDelay, baseDelay * 2^(시도횟수-1)) 사이의 임의 시간만큼 대기
+ -> 같은 락에서 충돌한 트랜잭션들이 같은 시점에 다시 충돌하지 않도록 분산
+ - 재시도 예산(RetryBudget)이 부족하면 재시도하지 않고 예외를 그대로 던짐
+ */
+@Slf4j
+public class TransactionRetryInterceptor implements MethodInterceptor {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final RetryBudget budget;
+    private final RetryMetrics metrics = new RetryMetrics();
+
+    public TransactionRetryInterceptor(int maxAttempts, long baseDelayMillis, long maxDelayMillis, RetryBudget budget) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budget = budget;
+    }
+
+    public RetryMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if(TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+
+        metrics.call();
+        budget.deposit();
+
+        for(int attempt = 1; ; attempt++) {
+            try {
+                //재시도마다 남은 인터셉터 체인(트랜잭션 인터셉터 포함)을 처음부터 다시 실행
+                Object result = ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+                if(attempt > 1) {
+                    metrics.recovered();
+                }
+                return result;
+            } catch(Throwable e) {
+                if(!isTransient(e)) {
+                    throw e;
+                }
+                if(attempt >= maxAttempts) {
+                    metrics.exhausted();
+                    throw e;
+                }
+                if(!budget.tryWithdraw()) {
+                    metrics.budgetRejected();
+                    throw e;
+                }
+
+                long delay = backoff(attempt);
+                log.info("retry transaction method = {}, attempt = {}, delay = {}ms, ex = {}",
+                        invocation.getMethod().getName(), attempt, delay, e.toString());
+                metrics.retry();
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+        }
+    }
+
+    long backoff(int attempt) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static boolean isTransient(Throwable e) {
+        for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if(cause instanceof QueryTimeoutException || cause instanceof CannotGetJdbcConnectionException
+                    || cause instanceof SQLTimeoutException || cause instanceof SQLTransientConnectionException) {
+                return false;
+            }
+            if(cause instanceof PessimisticLockingFailureException) {
+                return true;
+            }
+            if(cause instanceof SQLException sqlException && isLockConflict(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLockConflict(String sqlState) {
+        return "40001".equals(sqlState) || "40P01".equals(sqlState);
+    }
+}
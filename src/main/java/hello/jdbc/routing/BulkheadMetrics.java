@@ -0,0 +1,130 @@
+package hello.jdbc.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 커넥션 풀(bulkhead)별 포화 지표
+ - attach() 로 등록한 풀의 커넥션 획득 시간, 획득 타임아웃 횟수를 HikariCP 의 MetricsTrackerFactory 로 수집
+ - 현재 사용중/유휴/대기 쓰레드 수는 HikariPoolMXBean 에서 조회 -> PoolStats 는 1초 캐시라 바로 반영되지 않음
+ - saturation = 사용중 커넥션 / 최대 풀 크기, waiting > 0 이면 해당 풀이 이미 포화 상태
+ - timeouts 가 증가하는 풀이 다른 풀과 관계없이 혼자 포화된 워크로드
+ */
+public class BulkheadMetrics implements MetricsTrackerFactory {
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * 풀 시작 전에 호출해야 함(HikariCP 는 풀 시작 이후 MetricsTrackerFactory 변경 불가)
+     */
+    public HikariDataSource attach(HikariDataSource dataSource) {
+        bulkheads.computeIfAbsent(dataSource.getPoolName(), Bulkhead::new).dataSource = dataSource;
+        dataSource.setMetricsTrackerFactory(this);
+        return dataSource;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return bulkheads.computeIfAbsent(poolName, Bulkhead::new);
+    }
+
+    public Snapshot snapshot(String poolName) {
+        Bulkhead bulkhead = bulkheads.get(poolName);
+        if(bulkhead == null) {
+            throw new IllegalArgumentException("unknown pool = " + poolName);
+        }
+        return bulkhead.snapshot();
+    }
+
+    public List<Snapshot> snapshots() {
+        return bulkheads.values().stream().map(Bulkhead::snapshot).toList();
+    }
+
+    private static class Bulkhead implements IMetricsTracker {
+
+        private final String poolName;
+        private volatile HikariDataSource dataSource;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder timeouts = new LongAdder();
+
+        Bulkhead(String poolName) {
+            this.poolName = poolName;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        Snapshot snapshot() {
+            int maxSize = 0, active = 0, idle = 0, waiting = 0;
+            HikariDataSource dataSource = this.dataSource;
+            if(dataSource != null) {
+                maxSize = dataSource.getMaximumPoolSize();
+                HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();     //풀 시작 전이면 null
+                if(pool != null) {
+                    active = pool.getActiveConnections();
+                    idle = pool.getIdleConnections();
+                    waiting = pool.getThreadsAwaitingConnection();
+                }
+            }
+            long acquiredCount = acquired.sum();
+            double avgAcquireMillis = acquiredCount == 0 ? 0 : acquireNanos.sum() / (double) acquiredCount / TimeUnit.MILLISECONDS.toNanos(1);
+            double maxAcquireMillis = maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+            return new Snapshot(poolName, maxSize, active, idle, waiting, acquiredCount, timeouts.sum(), avgAcquireMillis, maxAcquireMillis);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Snapshot {
+
+        private final String poolName;
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final long acquired;
+        private final long timeouts;
+        private final double avgAcquireMillis;
+        private final double maxAcquireMillis;
+
+        Snapshot(String poolName, int maxSize, int active, int idle, int waiting,
+                 long acquired, long timeouts, double avgAcquireMillis, double maxAcquireMillis) {
+            this.poolName = poolName;
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.acquired = acquired;
+            this.timeouts = timeouts;
+            this.avgAcquireMillis = avgAcquireMillis;
+            this.maxAcquireMillis = maxAcquireMillis;
+        }
+
+        public double getSaturation() {
+            return maxSize == 0 ? 0 : (double) active / maxSize;
+        }
+    }
+}
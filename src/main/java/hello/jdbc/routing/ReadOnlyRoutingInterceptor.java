@@ -0,0 +1,52 @@
+package hello.jdbc.routing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 트랜잭션 없는 조회를 replica 로 라우팅
+ - 트랜잭션 범위 밖에서 호출된 조회 메서드를 읽기 전용 + PROPAGATION_SUPPORTS 범위에서 실행
+ - SUPPORTS 는 실제 트랜잭션을 시작하지 않고 읽기 전용 표시만 동기화 매니저에 등록 -> ReadWriteRoutingDataSource 가 replica 선택
+ - 이미 트랜잭션(또는 동기화 범위) 안이면 그대로 실행 -> 바깥 트랜잭션의 라우팅을 따름
+ */
+public class ReadOnlyRoutingInterceptor implements MethodInterceptor {
+
+    private final TransactionTemplate readOnlyTemplate;
+
+    public ReadOnlyRoutingInterceptor(PlatformTransactionManager transactionManager) {
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.readOnlyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            return invocation.proceed();
+        }
+
+        try {
+            return readOnlyTemplate.execute(status -> {
+                try {
+                    return invocation.proceed();
+                } catch(RuntimeException | Error e) {
+                    throw e;
+                } catch(Throwable e) {
+                    throw new CheckedInvocationException(e);
+                }
+            });
+        } catch(CheckedInvocationException e) {
+            throw e.getCause();     //V3 의 SQLException 같은 체크 예외는 그대로 전달
+        }
+    }
+
+    private static class CheckedInvocationException extends RuntimeException {
+        CheckedInvocationException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package hello.jdbc.routing;
+
+import hello.jdbc.connection.LazyConnectionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * 읽기/쓰기 라우팅 - 현재 트랜잭션이 읽기 전용이면 replica, 그 외에는 primary 커넥션 사용
+ - @Transactional(readOnly = true), TransactionTemplate.setReadOnly(true) -> replica
+ - 읽기/쓰기 트랜잭션, 트랜잭션 없는 호출 -> primary
+
+ * 주의
+ - 트랜잭션 매니저는 트랜잭션 시작(doBegin) 시점에 커넥션을 획득하고, 읽기 전용 여부는 그 이후에 동기화 매니저에 등록됨
+ - 따라서 반드시 LazyConnectionDataSourceProxy 로 감싸서 첫 SQL 실행 시점에 라우팅을 결정해야 함 -> lazy() 사용
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * 트랜잭션 매니저와 리포지토리에 주입할 DataSource
+     */
+    public static DataSource lazy(DataSource primary, DataSource replica) {
+        return LazyConnectionConfig.lazy(new ReadWriteRoutingDataSource(primary, replica));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+        log.debug("route connection = {}", key);
+        return key;
+    }
+}
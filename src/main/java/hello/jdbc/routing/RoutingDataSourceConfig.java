@@ -0,0 +1,113 @@
+package hello.jdbc.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.NameMatchMethodPointcut;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * 읽기/쓰기 분리 설정 - spring.datasource.replica.url 이 있거나 spring.datasource.bulkhead.enabled=true 일 때만 적용
+ - primary 커넥션 풀: spring.datasource.*
+ - replica 커넥션 풀: spring.datasource.replica.* (url, username, password), spring.datasource.replica.hikari.*
+ - 애플리케이션에서 사용하는 DataSource 는 LazyConnectionDataSourceProxy(ReadWriteRoutingDataSource)
+
+ * 읽기/쓰기 bulkhead
+ - replica.url 없이 bulkhead.enabled=true 이면 같은 데이터베이스에 읽기 풀(replica)과 쓰기 풀(primary)을 따로 생성
+ - 오래 걸리는 조회가 읽기 풀만 모두 사용해도 accountTransfer 는 쓰기 풀의 커넥션을 사용 -> 서로를 고갈시키지 않음
+ - 풀 크기, 커넥션 획득 타임아웃(connection-timeout)은 풀별로 설정, 포화 지표는 BulkheadMetrics 로 조회
+
+ * 트랜잭션 없는 조회
+ - hello.jdbc.repository 패키지의 find* 메서드에 ReadOnlyRoutingInterceptor 적용 -> replica
+ - @Transactional 과 같은 자동 프록시 생성기(InfrastructureAdvisorAutoProxyCreator)가 적용하도록 인프라 역할로 등록
+
+ * 예시
+ spring.datasource.replica.url=jdbc:h2:tcp://localhost/~/desktop/db/jdbc-replica
+ spring.datasource.replica.username=sa
+
+ spring.datasource.bulkhead.enabled=true
+ spring.datasource.hikari.maximum-pool-size=10
+ spring.datasource.hikari.connection-timeout=1000
+ spring.datasource.replica.hikari.maximum-pool-size=4
+ spring.datasource.replica.hikari.connection-timeout=5000
+ */
+@Configuration
+@ConditionalOnExpression("'${spring.datasource.replica.url:}' != '' or '${spring.datasource.bulkhead.enabled:false}' == 'true'")
+public class RoutingDataSourceConfig {
+
+    private static final String REPOSITORY_PACKAGE = "hello.jdbc.repository";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    public BulkheadMetrics bulkheadMetrics() {
+        return new BulkheadMetrics();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource() {
+        return createPool(primaryDataSourceProperties(), "primary");
+    }
+
+    /**
+     * replica.url 이 없으면(bulkhead) primary 와 같은 데이터베이스에 연결하는 별도 풀
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        DataSourceProperties replica = replicaDataSourceProperties();
+        return createPool(StringUtils.hasText(replica.getUrl()) ? replica : primaryDataSourceProperties(), "replica");
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        return ReadWriteRoutingDataSource.lazy(primary, replica);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor readOnlyRoutingAdvisor(@Qualifier("transactionManager") PlatformTransactionManager transactionManager) {
+        NameMatchMethodPointcut pointcut = new NameMatchMethodPointcut();
+        pointcut.setMappedName("find*");
+        pointcut.setClassFilter(clazz -> clazz.getPackageName().equals(REPOSITORY_PACKAGE));
+        return new DefaultPointcutAdvisor(pointcut, new ReadOnlyRoutingInterceptor(transactionManager));
+    }
+
+    private HikariDataSource createPool(DataSourceProperties properties, String poolName) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(poolName);
+        return bulkheadMetrics().attach(dataSource);
+    }
+}
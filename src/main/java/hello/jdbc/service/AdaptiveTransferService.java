@@ -0,0 +1,134 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.VersionedMemberRepository;
+import hello.jdbc.repository.ex.MyOptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 회원별 락 전략 자동 선택 - 낙관적 락(OptimisticMemberService) + 비관적 락(select ... for update)
+ - 낙관적 락은 경합이 적을 때 락 대기 없이 빠르지만, 인기 회원에서는 충돌과 재시도가 급격히 늘어남
+ - 비관적 락은 인기 회원에서도 재시도가 없지만, 경합이 없는 회원에게는 불필요한 락 대기 비용
+ - ConflictRateTracker 로 회원별 충돌 빈도를 추적하고, 두 회원 중 하나라도 인기 회원이면 비관적 락 사용
+ - 재시도할 때마다 전략을 다시 선택 -> 충돌이 쌓이면 같은 요청 안에서도 비관적 락으로 전환
+
+ * 자기 자신에게 이체(fromId == toId)
+ - IllegalArgumentException, 트랜잭션을 시작하지 않고 충돌로 기록하지도 않음
+ - 낙관적 락은 같은 version 으로 두 번 update 하므로 항상 충돌, 비관적 락은 입금이 출금을 덮어씀
+
+ * 비관적 락 모드
+ - 두 회원을 member_id 순서로 findByIdForUpdate -> 데드락 없음(OrderedLockTransferService 와 같은 순서)
+ - update 는 version 을 증가시켜 동시에 실행 중인 낙관적 락 트랜잭션이 변경을 감지할 수 있게 함
+
+ * 지표
+ - optimisticTransfers, pessimisticTransfers: 전략별 성공한 이체 수
+ - conflicts: 충돌로 재실행한 횟수, hotMembers: 현재 비관적 락을 사용하는 회원 수
+ - modeOf(memberId): 회원별 현재 전략
+ */
+@Slf4j
+public class AdaptiveTransferService {
+
+    public enum TransferMode {
+        OPTIMISTIC, PESSIMISTIC
+    }
+
+    private final TransactionTemplate txTemplate;
+    private final VersionedMemberRepository memberRepository;
+    private final ConflictRateTracker conflictTracker;
+    private final int maxAttempts;
+
+    private final LongAdder optimisticTransfers = new LongAdder();
+    private final LongAdder pessimisticTransfers = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    public AdaptiveTransferService(PlatformTransactionManager transactionManager, VersionedMemberRepository memberRepository,
+                                   ConflictRateTracker conflictTracker, int maxAttempts) {
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.memberRepository = memberRepository;
+        this.conflictTracker = conflictTracker;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        if(fromId.equals(toId)) {
+            throw new IllegalArgumentException("self transfer, memberId = " + fromId);
+        }
+        for(int attempt = 1; ; attempt++) {
+            TransferMode mode = isHot(fromId, toId) ? TransferMode.PESSIMISTIC : TransferMode.OPTIMISTIC;
+            try {
+                if(mode == TransferMode.PESSIMISTIC) {
+                    txTemplate.executeWithoutResult(status -> pessimisticLogic(fromId, toId, money));
+                    pessimisticTransfers.increment();
+                } else {
+                    txTemplate.executeWithoutResult(status -> optimisticLogic(fromId, toId, money));
+                    optimisticTransfers.increment();
+                }
+                return;
+            } catch(MyOptimisticLockException | ConcurrencyFailureException e) {
+                conflicts.increment();
+                conflictTracker.recordConflict(fromId);
+                conflictTracker.recordConflict(toId);
+                if(attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("transfer conflict, mode = {}, attempt = {}, ex = {}", mode, attempt, e.toString());
+            }
+        }
+    }
+
+    public TransferMode modeOf(String memberId) {
+        return conflictTracker.isHot(memberId) ? TransferMode.PESSIMISTIC : TransferMode.OPTIMISTIC;
+    }
+
+    public long optimisticTransfers() {
+        return optimisticTransfers.sum();
+    }
+
+    public long pessimisticTransfers() {
+        return pessimisticTransfers.sum();
+    }
+
+    public long conflictCount() {
+        return conflicts.sum();
+    }
+
+    public int hotMembers() {
+        return conflictTracker.hotCount();
+    }
+
+    private boolean isHot(String fromId, String toId) {
+        return conflictTracker.isHot(fromId) || conflictTracker.isHot(toId);
+    }
+
+    private void optimisticLogic(String fromId, String toId, int money) {
+        Member fromMember = memberRepository.findById(fromId);
+        Member toMember = memberRepository.findById(toId);
+
+        memberRepository.update(fromId, fromMember.getMoney() - money, fromMember.getVersion());
+        validation(toMember);
+        memberRepository.update(toId, toMember.getMoney() + money, toMember.getVersion());
+    }
+
+    private void pessimisticLogic(String fromId, String toId, int money) {
+        boolean fromFirst = fromId.compareTo(toId) <= 0;
+        Member first = memberRepository.findByIdForUpdate(fromFirst ? fromId : toId);
+        Member second = memberRepository.findByIdForUpdate(fromFirst ? toId : fromId);
+        Member fromMember = fromFirst ? first : second;
+        Member toMember = fromFirst ? second : first;
+
+        memberRepository.update(fromId, fromMember.getMoney() - money, fromMember.getVersion());
+        validation(toMember);
+        memberRepository.update(toId, toMember.getMoney() + money, toMember.getVersion());
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 이체 엔진 - CAS(compare-and-set) 기반 메모리 이체
+ - 이체마다 락 객체를 잡는 대신, 회원별 잔액 슬롯(AtomicLongArray)을 CAS 로 직접 변경
+ - 슬롯 하나는 long 하나 -> 상위 32비트는 버전, 하위 32비트는 잔액
+
+ * 두 계좌의 원자성
+ - 버전이 홀수인 슬롯은 변경중(점유) 상태, CAS 로 버전을 짝수 -> 홀수로 바꾸는 쓰레드만 슬롯을 점유
+ - 항상 슬롯 번호가 작은 쪽부터 점유(ordered CAS) -> A->B, B->A 이체가 동시에 실행되어도 데드락이 발생하지 않음
+ - 두 슬롯을 모두 점유한 뒤 잔액을 반영하고, 버전을 다시 짝수로 올리면서 점유 해제
+ - 조회는 락을 잡지 않음 -> 버전이 짝수인 값을 읽으면 그 시점의 완결된 잔액
+
+ * MemberServiceV4 와 같은 검증/예외
+ - 존재하지 않는 회원 -> NoSuchElementException
+ - toId 가 "ex" 인 경우 -> IllegalStateException, 잔액은 변경되지 않음(MemberServiceV4 의 롤백 결과와 동일)
+ - 자기 자신에게 이체하는 경우 잔액 변화 없음
+ */
+public class CasTransferEngine {
+
+    private static final long VERSION_UNIT = 1L << 32;
+    private static final long BALANCE_MASK = 0xFFFFFFFFL;
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final AtomicLongArray slots;
+    private final Map<String, Integer> index = new ConcurrentHashMap<>();
+    private int nextSlot;
+
+    public CasTransferEngine(int capacity) {
+        this.slots = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * 회원 등록 - 슬롯을 먼저 초기화한 뒤 index 에 공개
+     */
+    public synchronized void register(Member member) {
+        if(index.containsKey(member.getMemberId())) {
+            throw new MyDuplicateKeyException("duplicate memberId = " + member.getMemberId());
+        }
+        if(nextSlot == slots.length()) {
+            throw new IllegalStateException("capacity exceeded = " + slots.length());
+        }
+
+        int slot = nextSlot++;
+        slots.set(slot, member.getMoney() & BALANCE_MASK);
+        index.put(member.getMemberId(), slot);
+    }
+
+    public Member findById(String memberId) {
+        return new Member(memberId, balance(readStable(slotOf(memberId))));
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        int from = slotOf(fromId);
+        int to = slotOf(toId);
+        validation(toId);   //검증 실패시 아무것도 반영하지 않음 -> 롤백과 같은 결과
+
+        if(from == to) {
+            return;
+        }
+
+        int first = Math.min(from, to);
+        int second = Math.max(from, to);
+        long firstState = acquire(first);
+        long secondState = acquire(second);
+
+        long fromState = from == first ? firstState : secondState;
+        long toState = to == first ? firstState : secondState;
+        release(from, fromState, balance(fromState) - money);
+        release(to, toState, balance(toState) + money);
+    }
+
+    /**
+     * 전체 잔액 합계 - 이체가 진행중이지 않을 때만 정확한 합계(머니 보존 검증용)
+     */
+    public long totalBalance() {
+        long total = 0;
+        for(int slot : index.values()) {
+            total += balance(readStable(slot));
+        }
+        return total;
+    }
+
+    private void validation(String toId) {
+        if(toId.equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+
+    private int slotOf(String memberId) {
+        Integer slot = index.get(memberId);
+        if(slot == null) {
+            throw new NoSuchElementException("member not found memberId = " + memberId);
+        }
+        return slot;
+    }
+
+    /**
+     * 짝수 버전(점유되지 않은 상태)을 홀수로 CAS -> 성공한 쓰레드만 슬롯 점유, 점유 직전 상태를 반환
+     */
+    private long acquire(int slot) {
+        for(int spins = 0; ; spins++) {
+            long state = slots.get(slot);
+            if(!isAcquired(state) && slots.compareAndSet(slot, state, state + VERSION_UNIT)) {
+                return state;
+            }
+            backOff(spins);
+        }
+    }
+
+    /**
+     * 점유 직전 버전 + 2 (다시 짝수) 와 새 잔액을 함께 기록 -> 점유 해제
+     */
+    private void release(int slot, long acquiredState, int balance) {
+        long version = (acquiredState & ~BALANCE_MASK) + 2 * VERSION_UNIT;
+        slots.set(slot, version | (balance & BALANCE_MASK));
+    }
+
+    private long readStable(int slot) {
+        for(int spins = 0; ; spins++) {
+            long state = slots.get(slot);
+            if(!isAcquired(state)) {
+                return state;
+            }
+            backOff(spins);
+        }
+    }
+
+    private static boolean isAcquired(long state) {
+        return (state & VERSION_UNIT) != 0;
+    }
+
+    private static int balance(long state) {
+        return (int) state;
+    }
+
+    /**
+     * 점유한 쓰레드가 선점당한 경우 계속 스핀하면 CPU 만 낭비 -> 일정 횟수 이후 양보
+     */
+    private static void backOff(int spins) {
+        if(spins < SPINS_BEFORE_YIELD) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
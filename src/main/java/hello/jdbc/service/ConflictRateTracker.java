@@ -0,0 +1,90 @@
+package hello.jdbc.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 회원별 충돌 빈도 - 시간이 지나면 감소하는 카운터
+ - 충돌할 때마다 점수 1 증가, 점수는 halfLife 마다 절반으로 감소(지수 감쇠)
+ - 감쇠는 조회, 기록 시점에 경과 시간만큼 한 번에 계산 -> 별도 타이머 없음
+ - 점수가 hotThreshold 이상이면 인기(경합이 심한) 회원, coldThreshold 미만으로 떨어지면 다시 일반 회원
+ -> 두 기준값 사이에서는 이전 상태 유지(hysteresis) -> 기준값 근처에서 모드가 계속 바뀌는 현상 방지
+ */
+public class ConflictRateTracker {
+
+    private final long halfLifeNanos;
+    private final double hotThreshold;
+    private final double coldThreshold;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ConflictRateTracker(long halfLifeNanos, double hotThreshold, double coldThreshold, LongSupplier clock) {
+        this.halfLifeNanos = halfLifeNanos;
+        this.hotThreshold = hotThreshold;
+        this.coldThreshold = coldThreshold;
+        this.clock = clock;
+    }
+
+    public void recordConflict(String memberId) {
+        long now = clock.getAsLong();
+        counters.computeIfAbsent(memberId, id -> new Counter(now)).add(now);
+    }
+
+    public boolean isHot(String memberId) {
+        Counter counter = counters.get(memberId);
+        return counter != null && counter.isHot(clock.getAsLong());
+    }
+
+    public double score(String memberId) {
+        Counter counter = counters.get(memberId);
+        return counter == null ? 0 : counter.score(clock.getAsLong());
+    }
+
+    /**
+     * 현재 인기 회원 수 - 감쇠가 끝난 카운터는 함께 정리
+     */
+    public int hotCount() {
+        long now = clock.getAsLong();
+        counters.entrySet().removeIf(entry -> entry.getValue().score(now) < 0.01);
+        return (int) counters.values().stream().filter(counter -> counter.isHot(now)).count();
+    }
+
+    private class Counter {
+
+        private double score;
+        private long updatedAt;
+        private boolean hot;
+
+        Counter(long now) {
+            this.updatedAt = now;
+        }
+
+        synchronized void add(long now) {
+            decay(now);
+            score += 1;
+            if(score >= hotThreshold) {
+                hot = true;
+            }
+        }
+
+        synchronized boolean isHot(long now) {
+            decay(now);
+            if(hot && score < coldThreshold) {
+                hot = false;
+            }
+            return hot;
+        }
+
+        synchronized double score(long now) {
+            decay(now);
+            return score;
+        }
+
+        private void decay(long now) {
+            if(now > updatedAt) {
+                score *= Math.pow(0.5, (double) (now - updatedAt) / halfLifeNanos);
+            }
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.event.MemberEvent;
+import hello.jdbc.event.MemberEventRepository;
+import hello.jdbc.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 이벤트 소싱 - MemberServiceV4 의 이벤트 기반 버전
+ - 이체는 member.money 를 직접 변경하지 않고 출금/입금 이벤트 2건을 한 번의 배치로 member_event 에 추가
+ - member.money 와 스냅샷은 BalanceMaterializer 가 백그라운드에서 갱신 -> member.money 는 약간 늦게 반영될 수 있음
+ - 모든 잔액 변경이 이벤트로 남기 때문에 별도 이력 테이블 없이 특정 시점 잔액 조회와 감사가 가능
+
+ * 잔액 조회
+ - 특정 시점 잔액 = 해당 시점 이전의 가장 가까운 스냅샷 + 스냅샷 이후 해당 시점까지의 이벤트 합계
+ - 현재 잔액도 같은 방식으로 계산하므로 구체화 지연과 관계없이 정확
+
+ * 회원 생성
+ - open() 은 money 0 으로 회원을 저장하고 초기 잔액을 입금 이벤트로 추가 -> 모든 잔액이 이벤트로부터 계산됨
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class EventSourcedMemberService {
+
+    private final MemberRepository memberRepository;
+    private final MemberEventRepository eventRepository;
+
+    @Transactional
+    public void open(Member member) {
+        memberRepository.save(new Member(member.getMemberId(), 0));
+        eventRepository.append(List.of(MemberEvent.credit(member.getMemberId(), member.getMoney())));
+    }
+
+    @Transactional
+    public void accountTransfer(String fromId, String toId, int money) {
+        memberRepository.findById(fromId);     //존재하지 않으면 예외
+        Member toMember = memberRepository.findById(toId);
+        validation(toMember);
+
+        eventRepository.append(List.of(MemberEvent.debit(fromId, money), MemberEvent.credit(toId, money)));
+    }
+
+    public int currentBalance(String memberId) {
+        return balanceAt(memberId, Long.MAX_VALUE);
+    }
+
+    public int balanceAt(String memberId, LocalDateTime at) {
+        return balanceAt(memberId, eventRepository.lastEventIdAt(at));
+    }
+
+    /**
+     * eventId 까지의 이벤트를 반영한 잔액
+     */
+    public int balanceAt(String memberId, long eventId) {
+        long[] snapshot = eventRepository.findNearestSnapshot(memberId, eventId);
+        return (int) snapshot[1] + eventRepository.sumAmount(memberId, snapshot[0], eventId);
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 트랜잭션 - 그룹 커밋
+ - MemberServiceV3_3, MemberServiceV4 는 이체 한 건마다 커밋 -> TPS 가 높으면 커밋 비용이 대부분을 차지
+ - 이체 요청을 큐에 넣고, 단일 writer 쓰레드가 최대 maxBatchSize 건 또는 maxWait 시간 동안 모인 요청을 하나의 트랜잭션으로 처리
+ - 호출한 쪽은 CompletableFuture 를 받고, 해당 그룹이 커밋된 이후에 완료됨
+
+ * 요청 단위 실패 격리
+ - 요청마다 세이브포인트를 만들고 bigLogic 수행
+ - validation 실패("ex") 같은 예외는 해당 세이브포인트까지만 롤백하고 그 요청의 future 만 실패로 완료
+ - 커밋 자체가 실패한 경우에는 그룹 전체가 롤백되므로, 세이브포인트까지 성공했던 요청들도 모두 실패로 완료
+ - 트랜잭션 시작, 세이브포인트 롤백이 실패한 경우도 그룹 전체를 롤백하고 남은 요청을 모두 실패로 완료 -> future 가 완료되지 않는 경우 없음
+ - writer 쓰레드가 인터럽트되면 모으던 그룹과 큐에 남은 요청을 실패로 완료하고 종료
+ */
+@Slf4j
+public class GroupCommitTransferService implements AutoCloseable {
+
+    private final PlatformTransactionManager transactionManager;
+    private final MemberRepository memberRepository;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<TransferRequest> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public GroupCommitTransferService(PlatformTransactionManager transactionManager, MemberRepository memberRepository,
+                                      int maxBatchSize, long maxWaitMicros) {
+        this.transactionManager = transactionManager;
+        this.memberRepository = memberRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.writer = new Thread(this::writeLoop, "group-commit-writer");
+        this.writer.start();
+    }
+
+    public CompletableFuture<Void> accountTransfer(String fromId, String toId, int money) {
+        TransferRequest request = new TransferRequest(fromId, toId, money);
+        if(!running) {
+            request.future.completeExceptionally(new IllegalStateException("group commit service closed"));
+            return request.future;
+        }
+        queue.add(request);
+        return request.future;
+    }
+
+    /**
+     * 이미 큐에 들어온 요청은 모두 처리한 뒤 writer 종료
+     - 종료 직전에 경합으로 들어온 요청은 실패로 완료
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join();
+        failQueued();
+    }
+
+    private void writeLoop() {
+        List<TransferRequest> group = new ArrayList<>(maxBatchSize);
+        while(running || !queue.isEmpty()) {
+            try {
+                TransferRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+                group.add(first);
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while(group.size() < maxBatchSize) {
+                    TransferRequest next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if(next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+
+                commitGroup(group);
+            } catch(InterruptedException e) {
+                //writer 가 중단되면 모으던 그룹, 큐에 남은 요청을 처리할 쓰레드가 없음 -> 모두 실패로 완료하고 이후 요청은 바로 실패
+                Thread.currentThread().interrupt();
+                running = false;
+                fail(group, new IllegalStateException("group commit service closed"));
+                failQueued();
+                break;
+            } catch(RuntimeException e) {
+                log.error("group commit writer error, size = {}", group.size(), e);     //writer 는 계속 동작
+                fail(group, e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commitGroup(List<TransferRequest> group) {
+        TransactionStatus status = null;
+        List<TransferRequest> succeeded = new ArrayList<>(group.size());
+
+        try {
+            status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            for(TransferRequest request : group) {
+                Object savepoint = status.createSavepoint();
+                try {
+                    bigLogic(request.fromId, request.toId, request.money);
+                    succeeded.add(request);
+                } catch(RuntimeException e) {
+                    status.rollbackToSavepoint(savepoint);  //해당 요청의 변경만 롤백
+                    request.future.completeExceptionally(e);
+                }
+                status.releaseSavepoint(savepoint);
+            }
+            transactionManager.commit(status);
+        } catch(RuntimeException e) {
+            log.error("group commit failed, size = {}", group.size(), e);
+            if(status != null && !status.isCompleted()) {
+                try {
+                    transactionManager.rollback(status);
+                } catch(RuntimeException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+            fail(group, e);
+            return;
+        }
+
+        log.debug("group committed, size = {}, succeeded = {}", group.size(), succeeded.size());
+        succeeded.forEach(request -> request.future.complete(null));
+    }
+
+    /**
+     * 아직 완료되지 않은 요청을 모두 실패로 완료 - 트랜잭션 시작 실패, 세이브포인트 롤백 실패, 커밋 실패
+     - 세이브포인트까지 성공한 요청, 아직 처리하지 않은 요청 모두 포함(이미 실패로 완료된 요청은 그대로)
+     */
+    private void fail(List<TransferRequest> group, RuntimeException e) {
+        group.forEach(request -> request.future.completeExceptionally(e));
+    }
+
+    private void failQueued() {
+        TransferRequest request;
+        while((request = queue.poll()) != null) {
+            request.future.completeExceptionally(new IllegalStateException("group commit service closed"));
+        }
+    }
+
+    private void bigLogic(String fromId, String toId, int money) {
+        Member fromMember = memberRepository.findById(fromId);
+        Member toMember = memberRepository.findById(toId);
+
+        memberRepository.update(fromId, fromMember.getMoney() - money);
+        validation(toMember);
+        memberRepository.update(toId, toMember.getMoney() + money);
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+
+    private static class TransferRequest {
+        private final String fromId;
+        private final String toId;
+        private final int money;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        TransferRequest(String fromId, String toId, int money) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.money = money;
+        }
+    }
+}
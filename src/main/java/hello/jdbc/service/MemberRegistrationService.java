@@ -0,0 +1,44 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.id.MemberIdAllocator;
+import hello.jdbc.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 회원 가입 - 키 중복 예외 + 랜덤 id 재시도(ExTranslatorV1Test) 대신 MemberIdAllocator 사용
+ - register(money): 발급기에서 받은 id 로 저장, 발급기 id 끼리는 충돌하지 않음
+ - register(memberId, money): 원하는 id 로 저장, 이미 있으면 발급기 id 로 저장
+ - saveIfAbsent 로 저장하므로 충돌해도 예외 없이 false -> 다음 id 로 저장
+   (발급기를 쓰지 않고 직접 저장한 id 와 겹치는 경우에만 충돌)
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class MemberRegistrationService {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final MemberRepository memberRepository;
+    private final MemberIdAllocator idAllocator;
+
+    public Member register(int money) {
+        for(int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Member member = new Member(idAllocator.nextId(), money);
+            if(memberRepository.saveIfAbsent(member)) {
+                return member;
+            }
+            log.info("allocated id already exists = {}", member.getMemberId());
+        }
+        throw new IllegalStateException("member id allocation failed, attempts = " + MAX_ATTEMPTS);
+    }
+
+    public Member register(String memberId, int money) {
+        Member member = new Member(memberId, money);
+        if(memberRepository.saveIfAbsent(member)) {
+            return member;
+        }
+        log.info("키 중복, 발급 id 사용 = {}", memberId);
+        return register(money);
+    }
+}
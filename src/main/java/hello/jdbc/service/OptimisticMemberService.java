@@ -0,0 +1,76 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.VersionedMemberRepository;
+import hello.jdbc.repository.ex.MyOptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 낙관적 락 - MemberServiceV4 흐름 + version 조건 update + 충돌시 재시도
+ - bigLogic 과 같은 순서로 조회 -> 출금 -> 검증 -> 입금, update 에 조회한 version 을 조건으로 사용
+ - 다른 트랜잭션이 먼저 변경한 경우(MyOptimisticLockException) 트랜잭션을 롤백하고 처음부터 다시 실행
+ - 락 충돌로 데드락, 락 타임아웃이 발생한 경우(ConcurrencyFailureException)도 같은 방식으로 재시도
+ - 재시도는 트랜잭션 바깥에서 해야 하므로 @Transactional 대신 TransactionTemplate 사용(MemberServiceV3_2 방식)
+ - maxAttempts 를 모두 사용하면 마지막 예외를 그대로 던짐
+ - 자기 자신에게 이체(fromId == toId)는 IllegalArgumentException -> 같은 version 으로 두 번 update 하면 항상 충돌
+ */
+@Slf4j
+public class OptimisticMemberService {
+
+    private final TransactionTemplate txTemplate;
+    private final VersionedMemberRepository memberRepository;
+    private final int maxAttempts;
+
+    private final LongAdder conflicts = new LongAdder();
+
+    public OptimisticMemberService(PlatformTransactionManager transactionManager, VersionedMemberRepository memberRepository, int maxAttempts) {
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.memberRepository = memberRepository;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        if(fromId.equals(toId)) {
+            throw new IllegalArgumentException("self transfer, memberId = " + fromId);
+        }
+        for(int attempt = 1; ; attempt++) {
+            try {
+                txTemplate.executeWithoutResult(status -> bigLogic(fromId, toId, money));
+                return;
+            } catch(MyOptimisticLockException | ConcurrencyFailureException e) {
+                conflicts.increment();
+                if(attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("transfer conflict, attempt = {}, ex = {}", attempt, e.toString());
+            }
+        }
+    }
+
+    /**
+     * 충돌로 재실행한 횟수
+     */
+    public long conflictCount() {
+        return conflicts.sum();
+    }
+
+    private void bigLogic(String fromId, String toId, int money) {
+        Member fromMember = memberRepository.findById(fromId);
+        Member toMember = memberRepository.findById(toId);
+
+        memberRepository.update(fromId, fromMember.getMoney() - money, fromMember.getVersion());
+        validation(toMember);
+        memberRepository.update(toId, toMember.getMoney() + money, toMember.getVersion());
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
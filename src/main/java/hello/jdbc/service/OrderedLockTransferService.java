@@ -0,0 +1,42 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.TransferRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 락 순서 고정 - MemberServiceV4 의 데드락 없는 버전
+ - 두 회원의 로우 락을 member_id 순서로 먼저 획득한 뒤 잔액 변경 -> 반대 방향 이체가 동시에 실행되어도 데드락 없음
+ - 잔액 변경은 CASE 식을 사용한 update 한 번 -> 읽은 값으로 덮어쓰지 않으므로 갱신 손실도 없음
+ - 자기 자신에게 이체하는 경우 잔액 변화가 없으므로 update 생략
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OrderedLockTransferService {
+
+    private final TransferRepository transferRepository;
+
+    @Transactional
+    public void accountTransfer(String fromId, String toId, int money) {
+        List<Member> members = transferRepository.lockInOrder(fromId, toId);
+        Member toMember = members.stream()
+                .filter(member -> member.getMemberId().equals(toId))
+                .findFirst()
+                .orElseThrow();
+        validation(toMember);
+
+        if(!fromId.equals(toId)) {
+            transferRepository.transfer(fromId, toId, money);
+        }
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package hello.jdbc.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 일관된 해싱(consistent hashing) + 가상 노드
+ - 샤드마다 virtualNodes 개의 점을 해시 링 위에 배치, member_id 해시에서 시계 방향으로 처음 만나는 점의 샤드로 라우팅
+ - hash % N 방식은 샤드를 추가하면 거의 모든 키가 이동하지만, 링 방식은 약 1/(N+1) 만 새 샤드로 이동
+ - 가상 노드가 많을수록 샤드별 키 분포가 고르게 됨(100 개면 편차 약 ±10%)
+
+ * 구현
+ - 링은 정렬된 long[] 과 같은 위치의 샤드 번호 int[] 로 보관, 조회는 이진 탐색 -> 생성 후 변경 없음(스레드 안전)
+ */
+public class ConsistentHashShardFunction implements ShardFunction {
+
+    private final int shardCount;
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashShardFunction(int shardCount, int virtualNodes) {
+        if(shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("shardCount = " + shardCount + ", virtualNodes = " + virtualNodes);
+        }
+        this.shardCount = shardCount;
+
+        long[][] ring = new long[shardCount * virtualNodes][];
+        for(int shard = 0; shard < shardCount; shard++) {
+            for(int node = 0; node < virtualNodes; node++) {
+                ring[shard * virtualNodes + node] = new long[]{hash("shard-" + shard + "#" + node), shard};
+            }
+        }
+        Arrays.sort(ring, (a, b) -> Long.compare(a[0], b[0]));
+
+        this.points = new long[ring.length];
+        this.owners = new int[ring.length];
+        for(int i = 0; i < ring.length; i++) {
+            points[i] = ring[i][0];
+            owners[i] = (int) ring[i][1];
+        }
+    }
+
+    @Override
+    public int shardOf(String memberId) {
+        int index = Arrays.binarySearch(points, hash(memberId));
+        if(index < 0) {
+            index = -index - 1;     //삽입 위치 = 시계 방향 다음 점
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    @Override
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * FNV-1a 64 + murmur3 fmix64
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for(byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
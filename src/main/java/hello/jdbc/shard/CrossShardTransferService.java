@@ -0,0 +1,76 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 샤드 간 이체 - 로컬 트랜잭션 + 아웃박스(사가)
+ - 같은 샤드: MemberServiceV4 와 같이 출금 -> 검증 -> 입금을 해당 샤드의 로컬 트랜잭션 하나로 실행
+ - 다른 샤드: 보내는 샤드의 로컬 트랜잭션에서 출금 + 아웃박스 저장, 입금은 OutboxRelay 가 비동기로 반영
+   검증 실패 등 입금이 불가능하면 릴레이가 출금을 되돌림(보상)
+ - 받는 회원이 없으면 출금 전에 예외 -> 보상이 필요한 경우를 줄임(확인 후 삭제되는 경우는 릴레이가 보상)
+
+ * 반환
+ - 입금까지 끝나면 완료되는 CompletableFuture, 보상된 경우 입금 실패 원인으로 예외 완료
+ - 같은 샤드 이체는 이미 완료된 future, 실패하면 바로 예외
+ - 잔액은 money = money + ? 로 변경 -> 릴레이의 입금, 보상과 동시에 실행되어도 갱신 손실 없음
+ */
+@Slf4j
+public class CrossShardTransferService {
+
+    private final List<Shard> shards;
+    private final ShardFunction shardFunction;
+    private final OutboxRelay relay;
+
+    public CrossShardTransferService(List<DataSource> dataSources, ShardFunction shardFunction, OutboxRelay relay) {
+        this.shards = Shard.of(dataSources);
+        this.shardFunction = shardFunction;
+        this.relay = relay;
+    }
+
+    public CompletableFuture<Void> accountTransfer(String fromId, String toId, int money) {
+        Shard source = shards.get(shardFunction.shardOf(fromId));
+        Shard target = shards.get(shardFunction.shardOf(toId));
+
+        if(source == target) {
+            source.txTemplate.executeWithoutResult(status -> localTransfer(source, fromId, toId, money));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        target.memberRepository.findById(toId);     //존재하지 않으면 예외
+        String transferId = UUID.randomUUID().toString();
+        CompletableFuture<Void> future = relay.register(transferId);
+        try {
+            source.txTemplate.executeWithoutResult(status -> {
+                source.memberRepository.findById(fromId);
+                source.transferRepository.addMoney(fromId, -money);
+                source.outboxRepository.save(new TransferMessage(transferId, fromId, toId, money));
+            });
+        } catch(RuntimeException e) {
+            relay.unregister(transferId);
+            throw e;
+        }
+        relay.wakeUp();
+        return future;
+    }
+
+    private void localTransfer(Shard shard, String fromId, String toId, int money) {
+        shard.memberRepository.findById(fromId);
+        Member toMember = shard.memberRepository.findById(toId);
+
+        shard.transferRepository.addMoney(fromId, -money);
+        validation(toMember);
+        shard.transferRepository.addMoney(toId, money);
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package hello.jdbc.shard;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 최근 응답 시간 표본 - 최근 size 개만 보관하는 링 버퍼
+ - record 는 락 없이 순번 자리에 덮어씀, percentile 은 표본을 복사해서 정렬(호출 빈도가 낮은 쪽에서 사용)
+ */
+public class LatencyWindow {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+
+    public LatencyWindow(int size) {
+        this.samples = new AtomicLongArray(size);
+    }
+
+    public void record(long nanos) {
+        samples.set((int) (count.getAndIncrement() % samples.length()), nanos);
+    }
+
+    public <T> T time(Supplier<T> operation) {
+        long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 최근 표본의 percentile(0 ~ 1) 마이크로초, 표본이 없으면 0
+     */
+    public long percentileMicros(double percentile) {
+        int size = (int) Math.min(count.get(), samples.length());
+        if(size == 0) {
+            return 0;
+        }
+        long[] sorted = new long[size];
+        for(int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.min(size - 1, Math.ceil(percentile * size) - 1);
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+    }
+
+    public long p99Micros() {
+        return percentileMicros(0.99);
+    }
+}
@@ -0,0 +1,181 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 아웃박스 릴레이 - 샤드마다 PENDING 아웃박스를 읽어 입금할 샤드에 반영
+ - 입금: 입금 샤드의 로컬 트랜잭션에서 인박스 저장 -> 받는 회원 조회, 검증 -> 잔액 증가
+   인박스에 이미 있으면(이전 실행에서 입금 후 DONE 변경 전에 중단) 입금하지 않고 DONE 으로 변경
+ - 입금 성공 후 출금 샤드의 아웃박스를 DONE 으로 변경
+ - 업무 실패(받는 회원 없음, 검증 실패)는 보상: 출금 샤드의 로컬 트랜잭션에서 아웃박스 COMPENSATED + 출금액 환불
+ - 그 외 예외(커넥션, 락 타임아웃 등)는 입금 결과를 알 수 없으므로 보상하지 않고 PENDING 으로 두어 다음 실행에서 재시도
+
+ * 전달 보장
+ - 아웃박스는 출금과 함께 커밋되므로 출금한 이체는 반드시 릴레이 대상이 됨(at-least-once)
+ - 인박스로 중복 입금을 막아 결과적으로 한 번만 반영(effectively-once)
+ - 출금과 입금 사이에는 전체 잔액 합계가 일시적으로 줄어든 상태가 보임(최종적 일관성)
+
+ * 완료 알림
+ - register(transferId) 로 등록한 CompletableFuture 를 DONE 이면 정상 완료, COMPENSATED 면 예외로 완료
+ - 같은 JVM 에서 요청한 이체만 알림, 재시작 이후 처리한 이체는 아웃박스 상태로 확인
+ */
+@Slf4j
+public class OutboxRelay implements AutoCloseable {
+
+    private final List<Shard> shards;
+    private final ShardFunction shardFunction;
+    private final int batchSize;
+    private final long pollMillis;
+
+    private final Map<String, CompletableFuture<Void>> completions = new ConcurrentHashMap<>();
+    private final Semaphore signal = new Semaphore(0);
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder compensated = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final Thread relay;
+    private volatile boolean running = true;
+
+    public OutboxRelay(List<DataSource> dataSources, ShardFunction shardFunction, int batchSize, long pollMillis) {
+        this.shards = Shard.of(dataSources);
+        this.shardFunction = shardFunction;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+
+        this.relay = new Thread(this::relayLoop, "transfer-outbox-relay");
+        this.relay.setDaemon(true);
+        this.relay.start();
+    }
+
+    public CompletableFuture<Void> register(String transferId) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        completions.put(transferId, future);
+        return future;
+    }
+
+    public void unregister(String transferId) {
+        completions.remove(transferId);
+    }
+
+    /**
+     * 새 아웃박스가 커밋됨 -> pollMillis 를 기다리지 않고 바로 릴레이
+     */
+    public void wakeUp() {
+        signal.release();
+    }
+
+    /**
+     * 모든 샤드의 PENDING 아웃박스를 최대 batchSize 건씩 처리, 처리한 건수 반환
+     */
+    public synchronized int relayOnce() {
+        int count = 0;
+        for(Shard source : shards) {
+            for(TransferMessage message : source.outboxRepository.findPending(batchSize)) {
+                if(relay(source, message)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public long relayedCount() {
+        return relayed.sum();
+    }
+
+    public long compensatedCount() {
+        return compensated.sum();
+    }
+
+    public long retriedCount() {
+        return retried.sum();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        signal.release();
+        relay.join();
+    }
+
+    private void relayLoop() {
+        while(running) {
+            try {
+                if(relayOnce() == 0) {
+                    signal.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                    signal.drainPermits();
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch(RuntimeException e) {
+                log.error("outbox relay failed", e);
+            }
+        }
+    }
+
+    private boolean relay(Shard source, TransferMessage message) {
+        Shard target = shards.get(shardFunction.shardOf(message.getToId()));
+        try {
+            target.txTemplate.executeWithoutResult(status -> credit(target, message));
+        } catch(IllegalStateException | NoSuchElementException | EmptyResultDataAccessException e) {
+            compensate(source, message, e);
+            return true;
+        } catch(RuntimeException e) {
+            retried.increment();
+            log.warn("outbox relay retry later, message = {}, cause = {}", message, e.toString());
+            return false;
+        }
+
+        if(source.outboxRepository.complete(message.getTransferId(), TransferOutboxRepository.DONE)) {
+            relayed.increment();
+        }
+        CompletableFuture<Void> future = completions.remove(message.getTransferId());
+        if(future != null) {
+            future.complete(null);
+        }
+        return true;
+    }
+
+    private void credit(Shard target, TransferMessage message) {
+        if(!target.outboxRepository.saveInbox(message.getTransferId())) {
+            log.info("already credited, transferId = {}", message.getTransferId());
+            return;
+        }
+        Member toMember = target.memberRepository.findById(message.getToId());
+        validation(toMember);
+        target.transferRepository.addMoney(message.getToId(), message.getMoney());
+    }
+
+    private void compensate(Shard source, TransferMessage message, RuntimeException cause) {
+        log.info("compensate transfer, message = {}, cause = {}", message, cause.getMessage());
+        source.txTemplate.executeWithoutResult(status -> {
+            if(source.outboxRepository.complete(message.getTransferId(), TransferOutboxRepository.COMPENSATED)) {
+                source.transferRepository.addMoney(message.getFromId(), message.getMoney());
+                compensated.increment();
+            }
+        });
+
+        CompletableFuture<Void> future = completions.remove(message.getTransferId());
+        if(future != null) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private void validation(Member toMember) {
+        if(toMember.getMemberId().equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferRepository;
+import hello.jdbc.translator.SQLExceptionTranslatorRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * 샤드 하나에서 사용하는 트랜잭션 템플릿과 레포지토리 묶음
+ - 모든 레포지토리가 같은 DataSource 를 사용 -> txTemplate 의 로컬 트랜잭션에 함께 참여
+ */
+class Shard {
+
+    final TransactionTemplate txTemplate;
+    final MemberRepository memberRepository;
+    final TransferRepository transferRepository;
+    final TransferOutboxRepository outboxRepository;
+
+    Shard(DataSource dataSource) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setExceptionTranslator(SQLExceptionTranslatorRegistry.getTranslator(dataSource));
+
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.memberRepository = new MemberRepositoryV5(dataSource, template.getExceptionTranslator());
+        this.transferRepository = new TransferRepository(dataSource);
+        this.outboxRepository = new TransferOutboxRepository(template);
+    }
+
+    static List<Shard> of(List<DataSource> dataSources) {
+        return dataSources.stream().map(Shard::new).toList();
+    }
+}
@@ -0,0 +1,43 @@
+package hello.jdbc.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.translator.SQLExceptionTranslatorRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 샤드별 커넥션 풀
+ - 샤드마다 별도 HikariDataSource(pool 이름 shard-0, shard-1, ...) -> 한 샤드가 느려져도 다른 샤드의 커넥션을 점유하지 않음
+ - 생성 시점에 샤드별 예외 변환기를 SQLExceptionTranslatorRegistry 에 등록
+ */
+@Slf4j
+public class ShardDataSources implements AutoCloseable {
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+    public ShardDataSources(List<String> jdbcUrls, String username, String password, int maximumPoolSize) {
+        for(int shard = 0; shard < jdbcUrls.size(); shard++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(jdbcUrls.get(shard));
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSource.setPoolName("shard-" + shard);
+            SQLExceptionTranslatorRegistry.getTranslator(dataSource);
+            dataSources.add(dataSource);
+        }
+        log.info("shard data sources = {}", jdbcUrls);
+    }
+
+    public List<DataSource> dataSources() {
+        return List.copyOf(dataSources);
+    }
+
+    @Override
+    public void close() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+}
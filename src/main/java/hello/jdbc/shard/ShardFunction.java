@@ -0,0 +1,12 @@
+package hello.jdbc.shard;
+
+/**
+ * member_id -> 샤드 번호(0 ~ shardCount - 1)
+ - 같은 member_id 는 항상 같은 샤드, 구현은 상태를 변경하지 않아야 함(여러 스레드에서 동시에 호출)
+ */
+public interface ShardFunction {
+
+    int shardOf(String memberId);
+
+    int shardCount();
+}
@@ -0,0 +1,195 @@
+package hello.jdbc.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 온라인 샤드 재분배 - 서비스를 멈추지 않고 ShardedMemberRepository 의 샤드 함수를 교체
+ 1. beginMigration(next): 진행중인 쓰기가 끝나기를 기다렸다가 옮겨지는 id 의 쓰기를 이중 쓰기로 전환, 시간 내에 못하면 잠시 후 다시 시도
+ 2. 복사: 기존 샤드마다 member_id 순서로 chunkSize 개씩 읽어(keyset 페이징) 샤드가 바뀌는 id 를 새 샤드에 반영
+    반영은 이중 쓰기와 같은 syncKeys -> 복사와 이중 쓰기가 같은 id 를 동시에 반영해도 최신 값이 남음
+ 3. cutover: 진행중인 쓰기가 끝나기를 기다렸다가 라우팅 교체, 시간 내에 못하면 잠시 후 다시 시도
+ 4. 정리: 기존 샤드에 남은 옮겨진 로우를 chunk 단위로 삭제
+
+ * 속도 조절
+ - chunk 마다 foreground(LatencyWindow, 예: accountTransfer 응답 시간)의 p99 확인
+ - 목표 p99 를 넘으면 chunk 사이의 대기 시간을 2배(최대 maxPause), 목표 이하면 절반(최소 minPause)
+ - 재분배는 항상 진행하되, 서비스 응답 시간이 나빠지면 느리게 진행
+
+ * 제약
+ - 쓰기는 모두 ShardedMemberRepository 를 거쳐야 함, 다른 경로의 쓰기(TransferRepository.addMoney 등)는 새 샤드에 반영되지 않음
+ - 재분배는 한 번에 하나, 한 JVM 기준(다른 JVM 의 쓰기는 이중 쓰기 대상이 아님)
+ */
+@Slf4j
+public class ShardRebalancer implements AutoCloseable {
+
+    private static final long BEGIN_MIGRATION_TIMEOUT_MILLIS = 500;
+    private static final long CUTOVER_TIMEOUT_MILLIS = 500;
+
+    private final ShardedMemberRepository repository;
+    private final LatencyWindow foreground;
+    private final long targetP99Micros;
+    private final int chunkSize;
+    private final long minPauseMillis;
+    private final long maxPauseMillis;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shard-rebalancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder copiedRows = new LongAdder();
+    private final LongAdder deletedRows = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder throttledChunks = new LongAdder();
+    private final LongAdder cutoverAttempts = new LongAdder();
+    private long pauseMillis;
+
+    public ShardRebalancer(ShardedMemberRepository repository, LatencyWindow foreground, long targetP99Micros,
+                           int chunkSize, long minPauseMillis, long maxPauseMillis) {
+        this.repository = repository;
+        this.foreground = foreground;
+        this.targetP99Micros = targetP99Micros;
+        this.chunkSize = chunkSize;
+        this.minPauseMillis = minPauseMillis;
+        this.maxPauseMillis = maxPauseMillis;
+        this.pauseMillis = minPauseMillis;
+    }
+
+    /**
+     * 백그라운드 스레드에서 재분배
+     */
+    public CompletableFuture<Void> start(ShardFunction next) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                rebalance(next);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public synchronized void rebalance(ShardFunction next) throws InterruptedException {
+        ShardFunction previous = repository.shardFunction();
+        while(!repository.beginMigration(next, BEGIN_MIGRATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            log.info("begin migration timeout, retry");
+            throttle();
+        }
+
+        for(int shard = 0; shard < previous.shardCount(); shard++) {
+            copy(shard, next);
+        }
+
+        while(true) {
+            cutoverAttempts.increment();
+            if(repository.cutover(CUTOVER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                break;
+            }
+            log.info("cutover timeout, retry");
+            throttle();
+        }
+
+        for(int shard = 0; shard < previous.shardCount(); shard++) {
+            cleanup(shard, next);
+        }
+        log.info("rebalance done, copied = {}, deleted = {}, chunks = {}, throttled = {}",
+                copiedRows(), deletedRows(), chunks.sum(), throttledChunks());
+    }
+
+    public long copiedRows() {
+        return copiedRows.sum();
+    }
+
+    public long deletedRows() {
+        return deletedRows.sum();
+    }
+
+    public long throttledChunks() {
+        return throttledChunks.sum();
+    }
+
+    public long cutoverAttempts() {
+        return cutoverAttempts.sum();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void copy(int shard, ShardFunction next) throws InterruptedException {
+        String afterId = "";
+        List<String> memberIds;
+        while(!(memberIds = nextChunk(shard, afterId)).isEmpty()) {
+            Map<Integer, List<String>> moving = new TreeMap<>();
+            for(String memberId : memberIds) {
+                int to = next.shardOf(memberId);
+                if(to != shard) {
+                    moving.computeIfAbsent(to, key -> new ArrayList<>()).add(memberId);
+                }
+            }
+            moving.forEach((to, ids) -> {
+                repository.syncKeys(ids, shard, to);
+                copiedRows.add(ids.size());
+            });
+
+            afterId = memberIds.get(memberIds.size() - 1);
+            chunks.increment();
+            throttle();
+        }
+    }
+
+    private void cleanup(int shard, ShardFunction next) throws InterruptedException {
+        JdbcTemplate template = repository.template(shard);
+        String afterId = "";
+        List<String> memberIds;
+        while(!(memberIds = nextChunk(shard, afterId)).isEmpty()) {
+            List<Object[]> moved = new ArrayList<>();
+            for(String memberId : memberIds) {
+                if(next.shardOf(memberId) != shard) {
+                    moved.add(new Object[]{memberId});
+                }
+            }
+            if(!moved.isEmpty()) {
+                template.batchUpdate("delete from member where member_id = ?", moved);
+                deletedRows.add(moved.size());
+            }
+
+            afterId = memberIds.get(memberIds.size() - 1);
+            chunks.increment();
+            throttle();
+        }
+    }
+
+    private List<String> nextChunk(int shard, String afterId) {
+        String sql = "select member_id from member where member_id > ? order by member_id limit ?";
+        return repository.template(shard).queryForList(sql, String.class, afterId, chunkSize);
+    }
+
+    private void throttle() throws InterruptedException {
+        long p99 = foreground.p99Micros();
+        if(p99 > targetP99Micros) {
+            throttledChunks.increment();
+            pauseMillis = Math.min(maxPauseMillis, Math.max(1, pauseMillis * 2));
+            log.debug("foreground p99 = {}us > target {}us, pause = {}ms", p99, targetP99Micros, pauseMillis);
+        } else {
+            pauseMillis = Math.max(minPauseMillis, pauseMillis / 2);
+        }
+        if(pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.translator.SQLExceptionTranslatorRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 해시 샤딩 - member_id 를 ShardFunction 으로 N 개의 DataSource 중 하나에 라우팅
+ - 샤드마다 MemberRepositoryV5, 예외 변환기는 SQLExceptionTranslatorRegistry 에서 샤드 DataSource 별로 사용
+ -> 샤드마다 데이터베이스 종류가 달라도 각각의 에러 코드로 변환
+ - 단건 작업은 해당 샤드 하나에서만 실행, 트랜잭션은 dataSourceOf(memberId) 의 트랜잭션 매니저로 시작해야 참여
+ - 서로 다른 샤드의 회원 간 이체는 하나의 로컬 트랜잭션으로 묶을 수 없음(사가, 아웃박스 등 별도 처리 필요)
+ - DataSource 는 ShardFunction 의 샤드 수보다 많아도 됨 -> 남는 DataSource 는 재분배(ShardRebalancer)로 추가할 샤드
+
+ * 여러 건 조회(findAllById)
+ - id 를 샤드별로 나누어 샤드마다 where member_id in (...) 한 번, 샤드 조회는 병렬로 실행(scatter-gather)
+ - 전체 응답 시간 = 가장 느린 샤드의 응답 시간, 하나라도 실패하면 해당 샤드의 변환된 예외를 던짐
+ - 병렬 조회는 호출한 스레드의 트랜잭션에 참여하지 않음
+
+ * 재분배 중(beginMigration ~ cutover) 라우팅
+ - 라우팅 테이블(현재 ShardFunction, 이동할 ShardFunction)은 volatile 참조 하나 -> cutover 는 참조 교체 한 번으로 원자적
+ - 조회는 기존 샤드(원본)에서, 옮겨지는 id 의 쓰기는 기존 샤드에 쓰고 새 샤드에 반영(이중 쓰기)
+ - 새 샤드 반영은 기존 샤드의 커밋된 로우를 다시 읽어 merge(없으면 delete), id 별 락으로 순서를 보장
+   트랜잭션 안이면 커밋 이후(afterCommit)에 반영 -> 롤백된 쓰기는 새 샤드에 남지 않음
+ - 모든 쓰기는 migrationGate 읽기 락을 잡음, 트랜잭션 안의 쓰기는 트랜잭션이 끝날 때까지 유지
+   beginMigration 은 쓰기 락을 잡은 상태에서 라우팅 교체 -> 교체 전 라우팅으로 쓴 트랜잭션이 모두 끝난 뒤 교체
+   -> 복사가 아직 커밋되지 않은 쓰기 이전의 값을 읽고, 그 쓰기가 새 샤드에 반영되지 않는 경우 방지
+   cutover 는 쓰기 락을 잡아 진행중인 트랜잭션과 새 샤드 반영이 모두 끝난 뒤 라우팅 교체
+ - 새 샤드 반영이 실패해도 기존 샤드의 쓰기는 이미 성공 -> 예외를 던지지 않고 unsynced 에 남겨 cutover 직전에 다시 반영
+ */
+@Slf4j
+public class ShardedMemberRepository implements MemberRepository, AutoCloseable {
+
+    private static final int MAX_IN_SIZE = 1000;
+    private static final int KEY_LOCKS = 256;
+
+    private final List<DataSource> dataSources;
+    private final List<MemberRepository> shards = new ArrayList<>();
+    private final List<JdbcTemplate> templates = new ArrayList<>();
+    private final ExecutorService executor;
+
+    private volatile Routing routing;
+    private final ReentrantReadWriteLock migrationGate = new ReentrantReadWriteLock();
+    private final ReentrantLock[] keyLocks = new ReentrantLock[KEY_LOCKS];
+    private final Map<String, int[]> unsynced = new ConcurrentHashMap<>();
+
+    public ShardedMemberRepository(List<DataSource> dataSources, ShardFunction shardFunction) {
+        if(dataSources.size() < shardFunction.shardCount()) {
+            throw new IllegalArgumentException("dataSources = " + dataSources.size() + ", shardCount = " + shardFunction.shardCount());
+        }
+        this.routing = new Routing(shardFunction, null);
+        this.dataSources = List.copyOf(dataSources);
+
+        for(DataSource dataSource : dataSources) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.setExceptionTranslator(SQLExceptionTranslatorRegistry.getTranslator(dataSource));
+            templates.add(template);
+            shards.add(new MemberRepositoryV5(dataSource, template.getExceptionTranslator()));
+        }
+        for(int i = 0; i < KEY_LOCKS; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(dataSources.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-gather-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int shardOf(String memberId) {
+        return routing.current.shardOf(memberId);
+    }
+
+    public DataSource dataSourceOf(String memberId) {
+        return dataSources.get(shardOf(memberId));
+    }
+
+    public ShardFunction shardFunction() {
+        return routing.current;
+    }
+
+    public boolean isMigrating() {
+        return routing.next != null;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return write(member.getMemberId(), shard -> shard.save(member));
+    }
+
+    @Override
+    public boolean saveIfAbsent(Member member) {
+        return write(member.getMemberId(), shard -> shard.saveIfAbsent(member));
+    }
+
+    @Override
+    public void upsert(Member member) {
+        write(member.getMemberId(), shard -> {
+            shard.upsert(member);
+            return null;
+        });
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        return shards.get(shardOf(memberId)).findById(memberId);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        write(memberId, shard -> {
+            shard.update(memberId, money);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String memberId) {
+        write(memberId, shard -> {
+            shard.delete(memberId);
+            return null;
+        });
+    }
+
+    /**
+     * 여러 회원 조회 - 없는 id 는 결과에서 빠짐, 순서는 보장하지 않음
+     */
+    public List<Member> findAllById(Collection<String> memberIds) {
+        Map<Integer, List<String>> idsByShard = new TreeMap<>();
+        for(String memberId : new LinkedHashSet<>(memberIds)) {
+            idsByShard.computeIfAbsent(shardOf(memberId), shard -> new ArrayList<>()).add(memberId);
+        }
+        if(idsByShard.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if(idsByShard.size() == 1) {
+            Map.Entry<Integer, List<String>> entry = idsByShard.entrySet().iterator().next();
+            return findAllInShard(entry.getKey(), entry.getValue());
+        }
+
+        List<CompletableFuture<List<Member>>> futures = new ArrayList<>(idsByShard.size());
+        idsByShard.forEach((shard, ids) -> futures.add(CompletableFuture.supplyAsync(() -> findAllInShard(shard, ids), executor)));
+
+        List<Member> members = new ArrayList<>(memberIds.size());
+        try {
+            for(CompletableFuture<List<Member>> future : futures) {
+                members.addAll(future.join());
+            }
+        } catch(CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return members;
+    }
+
+    /**
+     * 재분배 시작 - 이후 next 기준으로 샤드가 바뀌는 id 는 이중 쓰기
+     - 진행중인 쓰기 트랜잭션이 모두 끝날 때까지 최대 timeout 대기, 시간 내에 시작하지 못하면 라우팅을 바꾸지 않고 false
+     - 대기하는 동안 새 쓰기도 대기(쓰기 락 대기) -> 오래 걸리는 트랜잭션이 있으면 timeout 후 다시 시도(cutover 와 같은 방식)
+     - 쓰기 트랜잭션 안에서 호출하면 안됨(자기 자신을 기다림)
+     */
+    public synchronized boolean beginMigration(ShardFunction next, long timeout, TimeUnit unit) throws InterruptedException {
+        if(routing.next != null) {
+            throw new IllegalStateException("migration already in progress");
+        }
+        if(dataSources.size() < next.shardCount()) {
+            throw new IllegalArgumentException("dataSources = " + dataSources.size() + ", shardCount = " + next.shardCount());
+        }
+
+        //교체 전 라우팅으로 기존 샤드에만 쓴 트랜잭션이 모두 끝난 상태에서 교체 -> 이후 복사는 해당 쓰기의 커밋된 값을 읽음
+        if(!migrationGate.writeLock().tryLock(timeout, unit)) {
+            return false;
+        }
+        try {
+            routing = new Routing(routing.current, next);
+        } finally {
+            migrationGate.writeLock().unlock();
+        }
+        log.info("begin migration, shards {} -> {}", routing.current.shardCount(), next.shardCount());
+        return true;
+    }
+
+    /**
+     * 라우팅 교체 - 옮겨지는 id 에 쓴 트랜잭션이 모두 끝날 때까지 최대 timeout 대기, 시간 내에 교체하지 못하면 false
+     - 대기하는 동안 옮겨지는 id 의 새 쓰기도 대기(락 대기로 서로 기다리는 경우 timeout 후 다시 시도)
+     */
+    public synchronized boolean cutover(long timeout, TimeUnit unit) throws InterruptedException {
+        if(routing.next == null) {
+            throw new IllegalStateException("no migration in progress");
+        }
+        if(!migrationGate.writeLock().tryLock(timeout, unit)) {
+            return false;
+        }
+        try {
+            for(Map.Entry<String, int[]> entry : unsynced.entrySet()) {
+                syncKeys(List.of(entry.getKey()), entry.getValue()[0], entry.getValue()[1]);
+                unsynced.remove(entry.getKey());
+            }
+            routing = new Routing(routing.next, null);
+            log.info("cutover, shards = {}", routing.current.shardCount());
+            return true;
+        } finally {
+            migrationGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * from 샤드의 커밋된 로우를 to 샤드에 반영 - 있으면 merge, 없으면 delete
+     - id 별 락을 잡고 다시 읽으므로 동시에 반영해도 마지막 반영이 최신 값
+     */
+    void syncKeys(List<String> memberIds, int from, int to) {
+        Set<Integer> lockIndexes = new TreeSet<>();     //항상 같은 순서로 락 획득
+        for(String memberId : memberIds) {
+            lockIndexes.add(Math.floorMod(memberId.hashCode(), KEY_LOCKS));
+        }
+        lockIndexes.forEach(index -> keyLocks[index].lock());
+        try {
+            List<Member> members = findAllInShard(from, memberIds);
+            Set<String> deleted = new HashSet<>(memberIds);
+
+            List<Object[]> rows = new ArrayList<>(members.size());
+            for(Member member : members) {
+                rows.add(new Object[]{member.getMemberId(), member.getMoney()});
+                deleted.remove(member.getMemberId());
+            }
+            JdbcTemplate target = templates.get(to);
+            target.batchUpdate("merge into member(member_id, money) key(member_id) values(?, ?)", rows);
+            if(!deleted.isEmpty()) {
+                target.batchUpdate("delete from member where member_id = ?", deleted.stream().map(id -> new Object[]{id}).toList());
+            }
+        } finally {
+            lockIndexes.forEach(index -> keyLocks[index].unlock());
+        }
+    }
+
+    JdbcTemplate template(int shard) {
+        return templates.get(shard);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private <T> T write(String memberId, Function<MemberRepository, T> operation) {
+        migrationGate.readLock().lock();
+        boolean deferred = false;
+        try {
+            Routing routing = this.routing;     //락을 잡은 뒤에 읽음 -> beginMigration, cutover 와 순서 보장
+            int from = routing.current.shardOf(memberId);
+            T result = operation.apply(shards.get(from));
+            boolean moving = routing.isMoving(memberId);
+            if(TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(moving
+                        ? new MirrorSynchronization(memberId, from, routing.next.shardOf(memberId))
+                        : new GateSynchronization());
+                deferred = true;
+            } else if(moving) {
+                mirror(memberId, from, routing.next.shardOf(memberId));
+            }
+            return result;
+        } finally {
+            if(!deferred) {
+                migrationGate.readLock().unlock();
+            }
+        }
+    }
+
+    private void mirror(String memberId, int from, int to) {
+        try {
+            syncKeys(List.of(memberId), from, to);
+        } catch(RuntimeException e) {
+            unsynced.put(memberId, new int[]{from, to});
+            log.warn("mirror failed, memberId = {}, shard {} -> {}, cause = {}", memberId, from, to, e.toString());
+        }
+    }
+
+    private List<Member> findAllInShard(int shard, List<String> memberIds) {
+        List<Member> members = new ArrayList<>(memberIds.size());
+        for(int from = 0; from < memberIds.size(); from += MAX_IN_SIZE) {
+            List<String> chunk = memberIds.subList(from, Math.min(from + MAX_IN_SIZE, memberIds.size()));
+            String sql = "select member_id, money from member where member_id in (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            members.addAll(templates.get(shard).query(sql, (rs, rowNum) -> new Member(rs.getString("member_id"), rs.getInt("money")), chunk.toArray()));
+        }
+        log.debug("shard = {}, ids = {}, found = {}", shard, memberIds.size(), members.size());
+        return members;
+    }
+
+    private static class Routing {
+        private final ShardFunction current;
+        private final ShardFunction next;
+
+        private Routing(ShardFunction current, ShardFunction next) {
+            this.current = current;
+            this.next = next;
+        }
+
+        private boolean isMoving(String memberId) {
+            return next != null && current.shardOf(memberId) != next.shardOf(memberId);
+        }
+    }
+
+    /**
+     * 트랜잭션 안에서 쓴 경우 - 트랜잭션 종료시 migrationGate 읽기 락 해제
+     */
+    private class GateSynchronization implements TransactionSynchronization {
+        @Override
+        public void afterCompletion(int status) {
+            migrationGate.readLock().unlock();
+        }
+    }
+
+    /**
+     * 트랜잭션 안에서 옮겨지는 id 에 쓴 경우 - 커밋 후 새 샤드 반영
+     */
+    private class MirrorSynchronization extends GateSynchronization {
+        private final String memberId;
+        private final int from;
+        private final int to;
+
+        private MirrorSynchronization(String memberId, int from, int to) {
+            this.memberId = memberId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void afterCommit() {
+            mirror(memberId, from, to);
+        }
+    }
+}
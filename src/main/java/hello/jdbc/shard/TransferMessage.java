@@ -0,0 +1,24 @@
+package hello.jdbc.shard;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 샤드 간 이체 메시지 - 출금한 샤드의 transfer_outbox 에 저장, 릴레이가 입금할 샤드에 전달
+ */
+@Getter
+@ToString
+public class TransferMessage {
+
+    private final String transferId;
+    private final String fromId;
+    private final String toId;
+    private final int money;
+
+    public TransferMessage(String transferId, String fromId, String toId, int money) {
+        this.transferId = transferId;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.money = money;
+    }
+}
@@ -0,0 +1,81 @@
+package hello.jdbc.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * 아웃박스, 인박스 - 샤드마다 두 테이블을 모두 둠
+ - transfer_outbox: 출금과 같은 로컬 트랜잭션에서 저장하는 입금 요청, 상태 PENDING -> DONE 또는 COMPENSATED
+ - transfer_inbox: 입금한 transfer_id, 입금과 같은 로컬 트랜잭션에서 저장 -> 같은 메시지를 여러 번 받아도 한 번만 입금
+ - 상태 변경은 where status = 'PENDING' 조건으로 한 번만 성공
+
+ * 테이블
+ create table transfer_outbox (
+     transfer_id varchar(36) primary key,
+     from_id varchar(10) not null,
+     to_id varchar(10) not null,
+     money integer not null,
+     status varchar(20) not null,
+     created_at timestamp default current_timestamp not null
+ );
+ create index transfer_outbox_status on transfer_outbox(status, created_at);
+ create table transfer_inbox (
+     transfer_id varchar(36) primary key,
+     created_at timestamp default current_timestamp not null
+ );
+ */
+@Slf4j
+public class TransferOutboxRepository {
+
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+    public static final String COMPENSATED = "COMPENSATED";
+
+    private final JdbcTemplate template;
+
+    public TransferOutboxRepository(JdbcTemplate template) {
+        this.template = template;
+    }
+
+    public void save(TransferMessage message) {
+        String sql = "insert into transfer_outbox(transfer_id, from_id, to_id, money, status) values(?, ?, ?, ?, ?)";
+        template.update(sql, message.getTransferId(), message.getFromId(), message.getToId(), message.getMoney(), PENDING);
+    }
+
+    public List<TransferMessage> findPending(int limit) {
+        String sql = "select transfer_id, from_id, to_id, money from transfer_outbox where status = ? order by created_at limit ?";
+        return template.query(sql, (rs, rowNum) -> new TransferMessage(rs.getString("transfer_id"), rs.getString("from_id"),
+                rs.getString("to_id"), rs.getInt("money")), PENDING, limit);
+    }
+
+    public String findStatus(String transferId) {
+        String sql = "select status from transfer_outbox where transfer_id = ?";
+        List<String> status = template.queryForList(sql, String.class, transferId);
+        return status.isEmpty() ? null : status.get(0);
+    }
+
+    /**
+     * PENDING 인 경우에만 상태 변경, 변경했으면 true
+     */
+    public boolean complete(String transferId, String status) {
+        String sql = "update transfer_outbox set status = ? where transfer_id = ? and status = ?";
+        return template.update(sql, status, transferId, PENDING) == 1;
+    }
+
+    /**
+     * 처음 받은 transfer_id 면 저장하고 true, 이미 입금한 transfer_id 면 false
+     */
+    public boolean saveInbox(String transferId) {
+        String sql = "insert into transfer_inbox(transfer_id) values(?)";
+        try {
+            template.update(sql, transferId);
+            return true;
+        } catch(DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package hello.jdbc.translator;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PermissionDeniedDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.InvalidResultSetAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.support.SQLErrorCodes;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 미리 계산한 에러 코드 표로 예외 변환
+ - 생성 시점에 SQLErrorCodes 의 코드 목록을 (에러 코드 -> 예외 생성 함수) 표로 변환
+ - 변환할 때는 표 조회만 하므로 데이터베이스 메타데이터를 읽지 않음 -> 커넥션 풀을 사용하지 않음
+ - 데드락, 직렬화 실패 코드는 deprecated 된 DeadlockLoserDataAccessException, CannotSerializeTransactionException 대신
+   CannotAcquireLockException, PessimisticLockingFailureException 으로 변환
+ - H2 키 중복(23505)은 메타데이터 조회에 실패해서 코드 목록이 비어있어도 항상 DuplicateKeyException 으로 변환
+ - 표에 없는 코드는 SQLTimeoutException -> QueryTimeoutException, 그 외에는 SQLException 하위 타입과 SQLState 로 변환
+ -> 그래도 분류할 수 없으면 UncategorizedSQLException
+ */
+public class PrecomputedSQLExceptionTranslator implements SQLExceptionTranslator {
+
+    public static final int H2_DUPLICATE_KEY = 23505;
+
+    private final Map<Integer, ExceptionFactory> table = new HashMap<>();
+    private final SQLExceptionSubclassTranslator fallback = new SQLExceptionSubclassTranslator();
+
+    public PrecomputedSQLExceptionTranslator(SQLErrorCodes errorCodes) {
+        register(errorCodes.getBadSqlGrammarCodes(), BadSqlGrammarException::new);
+        register(errorCodes.getInvalidResultSetAccessCodes(), InvalidResultSetAccessException::new);
+        register(errorCodes.getDuplicateKeyCodes(), (message, sql, ex) -> new DuplicateKeyException(message, ex));
+        register(errorCodes.getDataIntegrityViolationCodes(), (message, sql, ex) -> new DataIntegrityViolationException(message, ex));
+        register(errorCodes.getPermissionDeniedCodes(), (message, sql, ex) -> new PermissionDeniedDataAccessException(message, ex));
+        register(errorCodes.getDataAccessResourceFailureCodes(), (message, sql, ex) -> new DataAccessResourceFailureException(message, ex));
+        register(errorCodes.getTransientDataAccessResourceCodes(), (message, sql, ex) -> new TransientDataAccessResourceException(message, ex));
+        register(errorCodes.getCannotAcquireLockCodes(), (message, sql, ex) -> new CannotAcquireLockException(message, ex));
+        register(errorCodes.getDeadlockLoserCodes(), (message, sql, ex) -> new CannotAcquireLockException(message, ex));
+        register(errorCodes.getCannotSerializeTransactionCodes(), (message, sql, ex) -> new PessimisticLockingFailureException(message, ex));
+        table.putIfAbsent(H2_DUPLICATE_KEY, (message, sql, ex) -> new DuplicateKeyException(message, ex));
+    }
+
+    @Override
+    public DataAccessException translate(String task, String sql, SQLException ex) {
+        SQLException sqlEx = unwrap(ex);
+        String message = buildMessage(task, sql, sqlEx);
+
+        ExceptionFactory factory = table.get(sqlEx.getErrorCode());
+        if(factory != null) {
+            return factory.create(message, sql, sqlEx);
+        }
+        if(sqlEx instanceof SQLTimeoutException) {
+            return new QueryTimeoutException(message, sqlEx);
+        }
+
+        DataAccessException translated = fallback.translate(task, sql, sqlEx);
+        return translated != null ? translated : new UncategorizedSQLException(task, sql, sqlEx);
+    }
+
+    /**
+     * 배치 실행 예외는 실제 원인이 다음 예외에 들어있음 - SQLErrorCodeSQLExceptionTranslator 와 같은 방식
+     */
+    private SQLException unwrap(SQLException ex) {
+        if(ex instanceof BatchUpdateException && ex.getNextException() != null && ex.getNextException().getErrorCode() != 0) {
+            return ex.getNextException();
+        }
+        return ex;
+    }
+
+    private String buildMessage(String task, String sql, SQLException ex) {
+        return task + "; " + (sql != null ? "SQL [" + sql + "]; " : "") + ex.getMessage();
+    }
+
+    private void register(String[] codes, ExceptionFactory factory) {
+        for(String code : codes) {
+            try {
+                table.putIfAbsent(Integer.parseInt(code.trim()), factory);
+            } catch(NumberFormatException e) {
+                //SQLState 기반 코드(문자 포함)는 SQLExceptionSubclassTranslator 가 처리
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExceptionFactory {
+        DataAccessException create(String message, String sql, SQLException ex);
+    }
+}
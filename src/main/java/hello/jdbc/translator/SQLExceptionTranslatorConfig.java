@@ -0,0 +1,21 @@
+package hello.jdbc.translator;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 애플리케이션 시작 시점에 DataSource 빈마다 예외 변환기를 미리 등록
+ - 첫 번째 예외 변환이 장애 상황에서 커넥션을 추가로 사용하지 않도록 함
+ */
+@Configuration
+public class SQLExceptionTranslatorConfig {
+
+    @Bean
+    public SmartInitializingSingleton sqlExceptionTranslatorWarmUp(ObjectProvider<DataSource> dataSources) {
+        return () -> dataSources.orderedStream().forEach(SQLExceptionTranslatorRegistry::getTranslator);
+    }
+}
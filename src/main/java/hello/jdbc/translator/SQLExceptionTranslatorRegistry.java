@@ -0,0 +1,57 @@
+package hello.jdbc.translator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.SQLErrorCodes;
+import org.springframework.jdbc.support.SQLErrorCodesFactory;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * DataSource 별 공유 예외 변환기
+ - SQLErrorCodeSQLExceptionTranslator(dataSource) 는 첫 번째 변환 시점에 커넥션을 열어 데이터베이스 종류를 확인
+ -> 장애 상황에서 예외를 변환하려고 커넥션 풀에서 커넥션을 하나 더 꺼내게 됨
+ - 레지스트리는 DataSource 를 처음 등록하는 시점(애플리케이션 시작, 레포지토리 생성)에 에러 코드를 조회하고
+   PrecomputedSQLExceptionTranslator 를 만들어 같은 DataSource 를 사용하는 모든 레포지토리가 공유
+ - register(dataSource, databaseName) 은 데이터베이스 이름(sql-error-codes.xml 의 id, 예: "H2")으로 에러 코드를 찾음 -> 커넥션을 전혀 사용하지 않음
+
+ * 주의
+ - 시작 시점에 데이터베이스에 접속할 수 없으면 에러 코드 목록이 비어있는 변환기가 만들어짐
+ -> 23505 와 SQLException 하위 타입, SQLState 기반 변환만 동작, 이후 register(dataSource, databaseName) 로 교체 가능
+ - DataSource 는 약한 참조로 보관 -> 더 이상 사용하지 않는 DataSource 는 함께 정리됨
+ */
+@Slf4j
+public final class SQLExceptionTranslatorRegistry {
+
+    private static final Map<DataSource, SQLExceptionTranslator> translators = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private SQLExceptionTranslatorRegistry() {
+    }
+
+    /**
+     * 등록된 변환기 반환, 없으면 데이터베이스 메타데이터로 에러 코드를 조회해서 등록
+     */
+    public static SQLExceptionTranslator getTranslator(DataSource dataSource) {
+        SQLExceptionTranslator translator = translators.get(dataSource);
+        if(translator != null) {
+            return translator;
+        }
+
+        //메타데이터 조회는 락 밖에서 수행, 동시에 등록되면 먼저 등록된 변환기 사용
+        SQLErrorCodes errorCodes = SQLErrorCodesFactory.getInstance().getErrorCodes(dataSource);
+        log.info("register translator dataSource = {}, databaseProductNames = {}", dataSource, errorCodes.getDatabaseProductNames());
+        return translators.computeIfAbsent(dataSource, key -> new PrecomputedSQLExceptionTranslator(errorCodes));
+    }
+
+    /**
+     * 데이터베이스 이름으로 변환기 등록 - 커넥션을 사용하지 않음
+     */
+    public static SQLExceptionTranslator register(DataSource dataSource, String databaseName) {
+        SQLExceptionTranslator translator = new PrecomputedSQLExceptionTranslator(SQLErrorCodesFactory.getInstance().getErrorCodes(databaseName));
+        translators.put(dataSource, translator);
+        return translator;
+    }
+}
@@ -0,0 +1,152 @@
+package hello.jdbc.admission;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemoryMemberRepository;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlInterceptorTest {
+
+    @Test
+    @DisplayName("AIMD - 목표 이내 응답은 한도 증가, 목표 초과, 과부하 신호는 한도 감소")
+    void aimd() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 8, 10, 0.5, 0);
+
+        for(int i = 0; i < 40; i++) {
+            acquireAll(limit, limit.getLimit());
+            for(int j = limit.getInFlight(); j > 0; j--) {
+                limit.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+            }
+        }
+        assertThat(limit.getLimit()).isEqualTo(8);
+
+        limit.acquire(0, TimeUnit.MILLISECONDS);
+        limit.release(TimeUnit.MILLISECONDS.toNanos(50), false);
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        limit.acquire(0, TimeUnit.MILLISECONDS);
+        limit.release(0, true);
+        limit.acquire(0, TimeUnit.MILLISECONDS);
+        limit.release(0, true);
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("한도 초과 - 대기열이 가득 차면 바로 거절, 대기 시간이 지나면 거절")
+    void queueFullAndTimeout() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 10, 0.5, 0);
+        assertThat(limit.acquire(0, TimeUnit.MILLISECONDS)).isEqualTo(AdaptiveConcurrencyLimit.Acquired.IMMEDIATE);
+        assertThat(limit.acquire(10, TimeUnit.MILLISECONDS)).isEqualTo(AdaptiveConcurrencyLimit.Acquired.QUEUE_FULL);
+
+        AdaptiveConcurrencyLimit queued = new AdaptiveConcurrencyLimit(1, 1, 1, 10, 0.5, 1);
+        queued.acquire(0, TimeUnit.MILLISECONDS);
+        assertThat(queued.acquire(10, TimeUnit.MILLISECONDS)).isEqualTo(AdaptiveConcurrencyLimit.Acquired.TIMEOUT);
+    }
+
+    @Test
+    @DisplayName("동시 요청이 몰려도 한도만큼만 실행, 나머지는 대기 후 실행 또는 빠르게 거절")
+    void limitConcurrency() throws Exception {
+        SlowMemberRepository repository = new SlowMemberRepository(20);
+        repository.save(new Member("memberA", 1_000_000));
+        repository.save(new Member("memberB", 1_000_000));
+        AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(new AdaptiveConcurrencyLimit(2, 1, 2, 1000, 0.9, 2), 30);
+        MemberServiceV4 service = proxy(new MemberServiceV4(repository), interceptor);
+
+        int requests = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> service.accountTransfer("memberA", "memberB", 1)));
+        }
+        int rejected = 0;
+        for(Future<?> future : futures) {
+            try {
+                future.get();
+            } catch(ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(AdmissionRejectedException.class);
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        AdmissionMetrics metrics = interceptor.getMetrics();
+        assertThat(repository.maxConcurrency.get()).isLessThanOrEqualTo(2);
+        assertThat(rejected).isGreaterThan(0);
+        assertThat(metrics.getRejected()).isEqualTo(rejected);
+        assertThat(metrics.getAdmitted() + metrics.getRejected()).isEqualTo(requests);
+        assertThat(metrics.getQueued()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("커넥션 획득 실패는 과부하 신호 - 응답이 빨라도 한도 감소")
+    void overloadSignal() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 8, 1000, 0.5, 0);
+        MemberServiceV4 service = proxy(new MemberServiceV4(new FailingMemberRepository()), new AdmissionControlInterceptor(limit, 0));
+
+        assertThatThrownBy(() -> service.accountTransfer("memberA", "memberB", 1)).isInstanceOf(CannotGetJdbcConnectionException.class);
+        assertThat(limit.getLimit()).isEqualTo(4);
+        assertThat(limit.getInFlight()).isEqualTo(0);
+    }
+
+    private void acquireAll(AdaptiveConcurrencyLimit limit, int count) throws InterruptedException {
+        for(int i = 0; i < count; i++) {
+            limit.acquire(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private MemberServiceV4 proxy(MemberServiceV4 target, AdmissionControlInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return (MemberServiceV4) proxyFactory.getProxy();
+    }
+
+    /**
+     * findById 가 느린 레포지토리 - 동시에 실행중인 최대 요청 수 기록
+     */
+    static class SlowMemberRepository extends MemoryMemberRepository {
+        private final long delayMillis;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxConcurrency = new AtomicInteger();
+
+        SlowMemberRepository(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            int current = running.incrementAndGet();
+            maxConcurrency.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(delayMillis);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return super.findById(memberId);
+        }
+    }
+
+    static class FailingMemberRepository extends MemoryMemberRepository {
+        @Override
+        public Member findById(String memberId) {
+            throw new CannotGetJdbcConnectionException("Connection is not available, request timed out");
+        }
+    }
+}
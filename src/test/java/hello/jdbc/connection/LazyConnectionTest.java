@@ -0,0 +1,105 @@
+package hello.jdbc.connection;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV3;
+import hello.jdbc.service.MemberServiceV3_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 지연 커넥션 획득 - 물리 커넥션 획득 횟수로 확인
+ */
+class LazyConnectionTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_EX = "ex";
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private DataSource dataSource;
+    private MemberRepositoryV3 memberRepository;
+
+    @BeforeEach
+    void before() throws SQLException {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:lazy;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connectionCount.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        new JdbcTemplate(dataSource).execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        memberRepository = new MemberRepositoryV3(dataSource);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+        connectionCount.set(0);
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(dataSource).update("delete from member");
+    }
+
+    @Test
+    @DisplayName("기본 트랜잭션 매니저 - SQL 실행 전 검증 실패에도 커넥션 획득")
+    void eager() {
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> validation(MEMBER_EX)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(connectionCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("지연 커넥션 - SQL 실행 전 검증 실패면 커넥션을 획득하지 않고 rollback 은 no-op")
+    void lazy() {
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(LazyConnectionConfig.lazy(dataSource)));
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> validation(MEMBER_EX)))
+                .isInstanceOf(IllegalStateException.class);
+        txTemplate.executeWithoutResult(status -> validation(MEMBER_A));
+        assertThat(connectionCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("지연 커넥션 - SQL 을 실행한 트랜잭션은 그대로 커밋, 롤백")
+    void lazyTransfer() throws SQLException {
+        DataSource lazyDataSource = LazyConnectionConfig.lazy(dataSource);
+        PlatformTransactionManager transactionManager = new DataSourceTransactionManager(lazyDataSource);
+        MemberRepositoryV3 lazyRepository = new MemberRepositoryV3(lazyDataSource);
+        MemberServiceV3_1 memberService = new MemberServiceV3_1(transactionManager, lazyRepository);
+
+        //이체중 예외 발생 -> 롤백
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(connectionCount.get()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+
+        //정상 이체 -> 커밋
+        memberRepository.save(new Member("memberB", 10000));
+        memberService.accountTransfer(MEMBER_A, "memberB", 2000);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById("memberB").getMoney()).isEqualTo(12000);
+    }
+
+    private void validation(String toId) {
+        if(toId.equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package hello.jdbc.deadline;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 스프링 부트 설정 - application.properties 의 HikariCP 설정과 DeadlineConfig 가 함께 적용되는지 확인
+ - 다른 커넥션이 memberA 로우 락을 잡고 있는 상태에서 마감 시간을 넘기면 DeadlineExceededException
+ - 커넥션이 풀에서 제거되면 롤백이 실패해서 TransactionSystemException 이 발생
+ */
+@SpringBootTest(properties = "spring.datasource.url=" + DeadlineConfigTest.URL)
+class DeadlineConfigTest {
+
+    static final String URL = "jdbc:h2:mem:deadlineConfig;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    private static final String MEMBER_A = "memberA";
+    private static final String MEMBER_B = "memberB";
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberServiceV4 memberService;
+
+    @Autowired
+    TimeoutService timeoutService;
+
+    private Connection locker;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV5(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(memberRepository());
+        }
+
+        @Bean
+        TimeoutService timeoutService() {
+            return new TimeoutService(memberRepository());
+        }
+    }
+
+    static class TimeoutService {
+
+        private final MemberRepository memberRepository;
+
+        TimeoutService(MemberRepository memberRepository) {
+            this.memberRepository = memberRepository;
+        }
+
+        @Transactional(timeout = 1)
+        public void update(String memberId, int money) {
+            memberRepository.update(memberId, money);
+        }
+    }
+
+    @BeforeEach
+    void before() throws SQLException {
+        try(Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+            stmt.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+            stmt.executeUpdate("delete from member");
+        }
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+    }
+
+    @AfterEach
+    void after() throws SQLException {
+        if(locker != null) {
+            locker.rollback();
+            locker.close();
+        }
+    }
+
+    @Test
+    @DisplayName("dataSource 빈 -> DeadlineDataSource(HikariDataSource), 타임아웃으로 커넥션을 제거하지 않음")
+    void dataSourceBean() throws SQLException {
+        assertThat(dataSource).isInstanceOf(DeadlineDataSource.class);
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        assertThat(hikari.getExceptionOverrideClassName()).isEqualTo(QueryTimeoutExceptionOverride.class.getName());
+    }
+
+    @Test
+    @DisplayName("@Transactional(timeout) 초과 -> DeadlineExceededException, 롤백 성공")
+    void transactionTimeout() throws SQLException {
+        lockMemberA();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> timeoutService.update(MEMBER_A, 0))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(elapsedMillis(start)).isLessThan(5000);
+    }
+
+    @Test
+    @DisplayName("Deadline.within() 초과 -> DeadlineExceededException, 출금 롤백")
+    void deadline() throws SQLException {
+        lockMemberA();
+
+        assertThatThrownBy(() -> Deadline.within(1, TimeUnit.SECONDS, () -> memberService.accountTransfer(MEMBER_B, MEMBER_A, 2000)))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000);
+    }
+
+    private void lockMemberA() throws SQLException {
+        locker = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        locker.setAutoCommit(false);
+        try(Statement stmt = locker.createStatement()) {
+            stmt.executeUpdate("update member set money = money where member_id = 'memberA'");
+        }
+    }
+
+    private long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,242 @@
+package hello.jdbc.deadline;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV3;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.ex.MyQueryTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 마감 시간 전파 - LOCK_TIMEOUT 10초인 인메모리 H2
+ - 다른 커넥션이 memberA 로우 락을 잡고 있는 상태에서 1초 마감 시간으로 update -> 10초를 기다리지 않고 타임아웃
+ */
+class DeadlineTest {
+
+    private static final String URL = "jdbc:h2:mem:deadline;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    private static final String MEMBER_A = "memberA";
+
+    private HikariDataSource hikari;
+    private DeadlineDataSource dataSource;
+    private Connection locker;
+
+    @BeforeEach
+    void before() {
+        hikari = new HikariDataSource();
+        hikari.setJdbcUrl(URL);
+        hikari.setUsername(USERNAME);
+        hikari.setPassword(PASSWORD);
+        hikari.setMaximumPoolSize(2);
+        hikari.setExceptionOverrideClassName(QueryTimeoutExceptionOverride.class.getName());
+        dataSource = new DeadlineDataSource(hikari);
+        assertThat(dataSource.getH2LockTimeoutMillis()).isEqualTo(10000);      //jdbcUrl 의 LOCK_TIMEOUT
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.update("delete from member");
+        template.update("insert into member(member_id, money) values(?, ?)", MEMBER_A, 10000);
+    }
+
+    @AfterEach
+    void after() throws SQLException {
+        if(locker != null) {
+            locker.rollback();
+            locker.close();
+        }
+        hikari.close();
+    }
+
+    @Test
+    @DisplayName("중첩된 마감 시간 -> 더 빠른 마감 시간 사용, 범위를 벗어나면 복원")
+    void nested() {
+        Deadline.within(5, TimeUnit.SECONDS, () -> {
+            Deadline.within(10, TimeUnit.SECONDS, () -> assertThat(Deadline.current().remainingMillis()).isLessThanOrEqualTo(5000));
+            Deadline.within(100, TimeUnit.MILLISECONDS, () -> assertThat(Deadline.current().remainingMillis()).isLessThanOrEqualTo(100));
+            assertThat(Deadline.current().remainingMillis()).isGreaterThan(100);
+        });
+        assertThat(Deadline.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("로우 락 대기 중 마감 시간 초과 -> 레포지토리별 타임아웃 예외")
+    void stuckLock() throws SQLException {
+        lockMemberA();
+
+        assertDeadline(() -> new MemberRepositoryV5(dataSource).update(MEMBER_A, 0), DeadlineExceededException.class);
+        assertDeadline(() -> new MemberRepositoryV4_2(dataSource).update(MEMBER_A, 0), DeadlineExceededException.class);
+        assertDeadline(() -> new MemberRepositoryV4_1(dataSource).update(MEMBER_A, 0), MyQueryTimeoutException.class);
+
+        MemberRepositoryV3 repositoryV3 = new MemberRepositoryV3(dataSource);
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> Deadline.within(1, TimeUnit.SECONDS, () -> {
+            try {
+                repositoryV3.update(MEMBER_A, 0);
+            } catch(SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        })).hasCauseInstanceOf(SQLTimeoutException.class);
+        assertThat(elapsedMillis(start)).isLessThan(5000);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 타임아웃 -> 쿼리 타임아웃으로 적용")
+    void transactionTimeout() throws SQLException {
+        lockMemberA();
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        txTemplate.setTimeout(1);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> repository.update(MEMBER_A, 0)))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(elapsedMillis(start)).isLessThan(5000);
+    }
+
+    @Test
+    @DisplayName("이미 마감 시간이 지남 -> SQL 을 실행하지 않고 바로 실패")
+    void expiredBeforeStatement() {
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+        repository.findById(MEMBER_A);     //풀 시작
+
+        assertThatThrownBy(() -> Deadline.within(1, TimeUnit.MILLISECONDS, () -> {
+            sleep(10);
+            return repository.findById(MEMBER_A);
+        })).isInstanceOf(CannotGetJdbcConnectionException.class)
+                .hasCauseInstanceOf(SQLTimeoutException.class);
+
+        //커넥션을 먼저 얻은 뒤 마감 시간이 지나면 Statement 실행 전에 실패
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> Deadline.within(1, TimeUnit.MILLISECONDS, () -> {
+            sleep(10);
+            repository.findById(MEMBER_A);
+        }))).isInstanceOf(DeadlineExceededException.class);
+    }
+
+    @Test
+    @DisplayName("커넥션 획득 대기 -> connectionTimeout 대신 남은 시간만큼만 대기")
+    void poolAcquisition() throws SQLException {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();     //풀(2개) 모두 사용중
+        try {
+            MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> Deadline.within(300, TimeUnit.MILLISECONDS, () -> repository.findById(MEMBER_A)))
+                    .isInstanceOf(CannotGetJdbcConnectionException.class)
+                    .hasCauseInstanceOf(SQLTimeoutException.class)
+                    .hasRootCauseInstanceOf(SQLTransientConnectionException.class);
+            assertThat(elapsedMillis(start)).isLessThan(hikari.getConnectionTimeout());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("H2 는 쿼리 타임아웃을 커넥션에 저장 -> 마감 시간이 있는 SQL 이 끝나면 바로 0 으로 복원")
+    void noLeak() {
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+        MemberRepositoryV3 repositoryV3 = new MemberRepositoryV3(dataSource);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        txTemplate.executeWithoutResult(status -> {     //같은 커넥션 사용
+            Deadline.within(5, TimeUnit.SECONDS, () -> repository.findById(MEMBER_A));
+            assertThat(queryTimeout()).isZero();
+
+            Deadline.within(5, TimeUnit.SECONDS, () -> {
+                try {
+                    repositoryV3.findById(MEMBER_A);
+                } catch(SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThat(queryTimeout()).isZero();
+        });
+    }
+
+    @Test
+    @DisplayName("마감 시간으로 줄인 LOCK_TIMEOUT -> SQL 이 끝나면 복원, 같은 커넥션의 일반 SQL 은 기본 LOCK_TIMEOUT 으로 대기")
+    void noLockTimeoutLeak() throws Exception {
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+        JdbcTemplate plain = new JdbcTemplate(dataSource);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        lockMemberA();
+        Thread release = new Thread(() -> {
+            sleep(1500);
+            try {
+                locker.commit();
+            } catch(SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        long start = System.nanoTime();
+        txTemplate.executeWithoutResult(status -> {
+            Deadline.within(1, TimeUnit.SECONDS, () -> repository.findById(MEMBER_A));     //LOCK_TIMEOUT 1000ms 이하로 설정 후 복원
+            release.start();
+            plain.update("update member set money = ? where member_id = ?", 0, MEMBER_A);  //1.5초 후 락 해제까지 대기
+        });
+        release.join();
+
+        assertThat(elapsedMillis(start)).isGreaterThanOrEqualTo(1500);
+        assertThat(repository.findById(MEMBER_A).getMoney()).isZero();
+    }
+
+    private int queryTimeout() {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try(Statement stmt = con.createStatement()) {
+            return stmt.getQueryTimeout();
+        } catch(SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private void lockMemberA() throws SQLException {
+        locker = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        locker.setAutoCommit(false);
+        try(Statement stmt = locker.createStatement()) {
+            stmt.executeUpdate("update member set money = money where member_id = 'memberA'");
+        }
+    }
+
+    private void assertDeadline(Runnable action, Class<? extends Exception> expected) {
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> Deadline.within(1, TimeUnit.SECONDS, action)).isInstanceOf(expected);
+        assertThat(elapsedMillis(start)).isLessThan(5000);
+    }
+
+    private long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package hello.jdbc.event;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.EventSourcedMemberService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 이벤트 소싱 이체 - 서비스 트랜잭션은 TransactionTemplate 으로 감싸서 실행
+ */
+class EventSourcedMemberServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private JdbcTemplate template;
+    private TransactionTemplate txTemplate;
+    private MemberRepository memberRepository;
+    private MemberEventRepository eventRepository;
+    private EventSourcedMemberService memberService;
+    private BalanceMaterializer materializer;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:event;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table if not exists member_event (event_id bigint auto_increment primary key, member_id varchar(10) not null, amount integer not null, created_at timestamp default current_timestamp not null)");
+        template.execute("create table if not exists member_snapshot (member_id varchar(10), event_id bigint, money integer not null, primary key (member_id, event_id))");
+        template.execute("create table if not exists member_event_checkpoint (name varchar(50) primary key, event_id bigint not null)");
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        txTemplate = new TransactionTemplate(transactionManager);
+        memberRepository = new MemberRepositoryV5(dataSource);
+        eventRepository = new MemberEventRepository(dataSource);
+        memberService = new EventSourcedMemberService(memberRepository, eventRepository);
+        materializer = new BalanceMaterializer(dataSource, transactionManager, eventRepository, 100, 4, 1000);
+
+        txTemplate.executeWithoutResult(status -> memberService.open(new Member(MEMBER_A, 10000)));
+        txTemplate.executeWithoutResult(status -> memberService.open(new Member(MEMBER_B, 10000)));
+        txTemplate.executeWithoutResult(status -> memberService.open(new Member(MEMBER_EX, 10000)));
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        materializer.close();
+        template.update("delete from member");
+        template.update("delete from member_snapshot");
+        template.update("delete from member_event_checkpoint");
+        template.execute("truncate table member_event restart identity");
+    }
+
+    @Test
+    @DisplayName("이체는 이벤트만 추가, member.money 는 구체화 이후 반영")
+    void accountTransfer() {
+        //when
+        transfer(MEMBER_A, MEMBER_B, 2000);
+
+        //then - 이벤트 기준 잔액은 즉시 정확
+        assertThat(memberService.currentBalance(MEMBER_A)).isEqualTo(8000);
+        assertThat(memberService.currentBalance(MEMBER_B)).isEqualTo(12000);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(0);
+
+        //구체화 이후 member 테이블 반영
+        assertThat(materializer.materialize()).isEqualTo(5);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+        assertThat(materializer.materialize()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생 - 이벤트가 추가되지 않음")
+    void accountTransferEx() {
+        //when
+        assertThatThrownBy(() -> transfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertThat(eventRepository.findAfter(0, 100)).hasSize(3);
+        assertThat(memberService.currentBalance(MEMBER_A)).isEqualTo(10000);
+        assertThat(memberService.currentBalance(MEMBER_EX)).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("특정 시점 잔액 - 가장 가까운 스냅샷부터 재생")
+    void balanceAt() {
+        //given - open 3건(event 1~3), 이체 1000 x 5건(event 4~13)
+        for(int i = 0; i < 5; i++) {
+            transfer(MEMBER_A, MEMBER_B, 1000);
+            materializer.materialize();
+        }
+
+        //then - 스냅샷은 snapshotInterval(4) 건마다 기록
+        assertThat(template.queryForObject("select count(*) from member_snapshot", Integer.class)).isPositive();
+        assertThat(memberService.balanceAt(MEMBER_A, 3)).isEqualTo(10000);
+        assertThat(memberService.balanceAt(MEMBER_A, 5)).isEqualTo(9000);
+        assertThat(memberService.balanceAt(MEMBER_A, 9)).isEqualTo(7000);
+        assertThat(memberService.balanceAt(MEMBER_B, 12)).isEqualTo(14000);
+        assertThat(memberService.currentBalance(MEMBER_A)).isEqualTo(5000);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(5000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(15000);
+    }
+
+    @Test
+    @DisplayName("event_id 빈틈 - 롤백으로 생긴 빈틈은 gapTimeout 이후 건너뜀")
+    void skipGap() throws InterruptedException {
+        //given - 롤백된 이벤트로 event_id 4 가 비어있음
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+        transfer(MEMBER_A, MEMBER_B, 500);
+
+        //when, then
+        assertThat(materializer.materialize()).isEqualTo(3);
+        assertThat(materializer.materialize()).isEqualTo(0);
+        Thread.sleep(1100);
+        assertThat(materializer.materialize()).isEqualTo(2);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10500);
+    }
+
+    @Test
+    @DisplayName("event_id 빈틈 - gapTimeout 이후에 커밋된 이벤트도 늦게 반영")
+    void lateCommit() throws Exception {
+        //given - event_id 4, 5 를 발급받은 트랜잭션이 gapTimeout 이 지나도록 커밋하지 않음
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> slow = executor.submit(() -> txTemplate.executeWithoutResult(status -> {
+            memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+            appended.countDown();
+            await(commit);
+        }));
+        try {
+            assertThat(appended.await(5, TimeUnit.SECONDS)).isTrue();
+            transfer(MEMBER_A, MEMBER_B, 500);
+
+            //빈틈을 건너뛰고 스냅샷(event_id 7) 기록
+            assertThat(materializer.materialize()).isEqualTo(3);
+            assertThat(materializer.materialize()).isEqualTo(0);
+            Thread.sleep(1100);
+            assertThat(materializer.materialize()).isEqualTo(2);
+            assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+
+            //when - 늦게 커밋
+            commit.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            executor.shutdown();
+        }
+
+        //then - 늦게 커밋된 이벤트 반영, 이벤트가 빠진 스냅샷은 사용하지 않음
+        assertThat(materializer.materialize()).isEqualTo(2);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8500);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(11500);
+        assertThat(memberService.currentBalance(MEMBER_A)).isEqualTo(8500);
+        assertThat(memberService.balanceAt(MEMBER_B, 7)).isEqualTo(11500);
+        assertThat(materializer.materialize()).isEqualTo(0);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void transfer(String fromId, String toId, int money) {
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(fromId, toId, money));
+    }
+}
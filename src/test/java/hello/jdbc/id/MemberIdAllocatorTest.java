@@ -0,0 +1,95 @@
+package hello.jdbc.id;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberRegistrationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberIdAllocatorTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate template;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:allocator;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table if not exists member_id_sequence (name varchar(50) primary key, next_value bigint not null)");
+    }
+
+    @AfterEach
+    void after() {
+        template.update("delete from member");
+        template.update("delete from member_id_sequence");
+    }
+
+    @Test
+    @DisplayName("구간 단위 예약 - blockSize 개 발급마다 한 번의 왕복")
+    void reserveBlock() {
+        MemberIdAllocator allocator = new MemberIdAllocator(dataSource, "member", 100, "m");
+
+        for(long i = 0; i < 250; i++) {
+            assertThat(allocator.nextValue()).isEqualTo(i);
+        }
+        assertThat(allocator.reservedBlocks()).isEqualTo(3);
+        assertThat(template.queryForObject("select next_value from member_id_sequence where name = 'member'", Long.class)).isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("여러 발급기(JVM), 여러 스레드에서 동시에 발급해도 중복 없음")
+    void concurrentAllocators() throws Exception {
+        MemberIdAllocator allocator1 = new MemberIdAllocator(dataSource, "member", 10, "m");
+        MemberIdAllocator allocator2 = new MemberIdAllocator(dataSource, "member", 7, "m");
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < 8; t++) {
+            MemberIdAllocator allocator = t % 2 == 0 ? allocator1 : allocator2;
+            futures.add(executor.submit(() -> {
+                for(int i = 0; i < 500; i++) {
+                    assertThat(ids.add(allocator.nextId())).isTrue();
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(ids).hasSize(8 * 500);
+        assertThat(ids).allMatch(id -> id.length() <= MemberIdAllocator.MAX_ID_LENGTH);
+    }
+
+    @Test
+    @DisplayName("원하는 id 가 이미 있으면 발급 id 로 저장, 발급 id 가 직접 저장한 id 와 겹치면 다음 id")
+    void register() {
+        MemberRepositoryV5 memberRepository = new MemberRepositoryV5(dataSource);
+        MemberRegistrationService service = new MemberRegistrationService(memberRepository, new MemberIdAllocator(dataSource, "member", 10, "m"));
+        memberRepository.save(new Member("myId", 0));
+        memberRepository.save(new Member("m0", 0));     //발급기를 거치지 않고 저장된 id
+
+        Member member = service.register("myId", 1000);
+
+        assertThat(member.getMemberId()).isEqualTo("m1");
+        assertThat(memberRepository.findById("m1").getMoney()).isEqualTo(1000);
+        assertThat(service.register("newId", 0).getMemberId()).isEqualTo("newId");
+    }
+}
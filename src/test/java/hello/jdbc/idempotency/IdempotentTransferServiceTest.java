@@ -0,0 +1,184 @@
+package hello.jdbc.idempotency;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotentTransferServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private DriverManagerDataSource dataSource;
+    private MemberRepository memberRepository;
+    private IdempotencyKeyRepository keyRepository;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:idempotency;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", USERNAME, PASSWORD);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table if not exists transfer_idempotency (idempotency_key varchar(64) primary key, " +
+                "from_id varchar(10) not null, to_id varchar(10) not null, money integer not null, created_at timestamp not null)");
+        template.update("delete from member");
+        template.update("delete from transfer_idempotency");
+
+        memberRepository = new MemberRepositoryV5(dataSource);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+        keyRepository = new IdempotencyKeyRepository(template);
+    }
+
+    @Test
+    @DisplayName("같은 키로 재시도 -> 한 번만 이체, 처음 결과를 캐시에서 반환")
+    void retry() {
+        IdempotentTransferService service = service(Duration.ofMinutes(10), 100);
+
+        TransferResult first = service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+        TransferResult second = service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(second.isReplayed()).isTrue();
+        assertThat(second.getCreatedAt()).isEqualTo(first.getCreatedAt());
+        assertThat(service.getExecuted()).isEqualTo(1);
+        assertThat(service.getCacheHits()).isEqualTo(1);
+        assertMoney(8000, 12000);
+    }
+
+    @Test
+    @DisplayName("캐시에 없는 키(다른 인스턴스, 재시작) -> DB 의 키로 중복 확인")
+    void replayFromStore() {
+        service(Duration.ofMinutes(10), 100).accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+
+        IdempotentTransferService other = service(Duration.ofMinutes(10), 100);
+        TransferResult replayed = other.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+        other.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(replayed.isReplayed()).isTrue();
+        assertThat(other.getExecuted()).isZero();
+        assertThat(other.getStoreHits()).isEqualTo(1);
+        assertThat(other.getCacheHits()).isEqualTo(1);
+        assertMoney(8000, 12000);
+    }
+
+    @Test
+    @DisplayName("이체 실패 -> 키도 롤백되므로 같은 키로 재시도하면 다시 실행")
+    void failure() {
+        IdempotentTransferService service = service(Duration.ofMinutes(10), 100);
+
+        assertThatThrownBy(() -> service.accountTransfer("key-ex", MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.accountTransfer("key-ex", MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(service.getExecuted()).isEqualTo(2);
+        assertThat(keyRepository.find("key-ex")).isNull();
+        assertMoney(10000, 10000);
+    }
+
+    @Test
+    @DisplayName("같은 키를 다른 이체에 사용 -> IllegalArgumentException")
+    void keyReuse() {
+        IdempotentTransferService service = service(Duration.ofMinutes(10), 100);
+        service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+
+        assertThatThrownBy(() -> service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 3000))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service(Duration.ofMinutes(10), 0).accountTransfer("key-1", MEMBER_B, MEMBER_A, 2000))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertMoney(8000, 12000);
+    }
+
+    @Test
+    @DisplayName("같은 키로 동시에 요청 -> 한 요청만 이체, 나머지는 커밋된 결과 반환")
+    void concurrent() throws Exception {
+        IdempotentTransferService service = service(Duration.ofMinutes(10), 100);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<TransferResult>> futures = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            Callable<TransferResult> task = () -> {
+                start.await();
+                return service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+            };
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+
+        List<TransferResult> results = new ArrayList<>();
+        for(Future<TransferResult> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertThat(results).filteredOn(result -> !result.isReplayed()).hasSize(1);
+        assertThat(results).extracting(TransferResult::getCreatedAt).containsOnly(results.get(0).getCreatedAt());
+        assertThat(service.getExecuted()).isEqualTo(1);
+        assertMoney(8000, 12000);
+    }
+
+    @Test
+    @DisplayName("TTL 이 지난 키 -> 새 이체로 실행, purgeExpired() 로 삭제")
+    void ttl() throws InterruptedException {
+        IdempotentTransferService service = service(Duration.ofMillis(100), 100);
+        service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+        service.accountTransfer("key-2", MEMBER_A, MEMBER_B, 1000);
+        Thread.sleep(200);
+
+        TransferResult again = service.accountTransfer("key-1", MEMBER_A, MEMBER_B, 2000);
+        assertThat(again.isReplayed()).isFalse();
+        assertThat(service.getExecuted()).isEqualTo(3);
+        assertMoney(5000, 15000);
+
+        Thread.sleep(200);
+        assertThat(service.purgeExpired(1)).isEqualTo(2);
+        assertThat(keyRepository.find("key-1")).isNull();
+        assertThat(keyRepository.find("key-2")).isNull();
+    }
+
+    @Test
+    @DisplayName("키 없음 -> 매번 실행")
+    void withoutKey() {
+        IdempotentTransferService service = service(Duration.ofMinutes(10), 100);
+        service.accountTransfer(null, MEMBER_A, MEMBER_B, 2000);
+        service.accountTransfer(null, MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(service.getExecuted()).isEqualTo(2);
+        assertMoney(6000, 14000);
+    }
+
+    private IdempotentTransferService service(Duration ttl, int cacheSize) {
+        return new IdempotentTransferService(new DataSourceTransactionManager(dataSource), new MemberServiceV4(memberRepository),
+                keyRepository, ttl, cacheSize);
+    }
+
+    private void assertMoney(int moneyA, int moneyB) {
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(moneyA);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(moneyB);
+    }
+}
@@ -0,0 +1,101 @@
+package hello.jdbc.journal;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalApplierTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    @TempDir
+    Path directory;
+
+    private DriverManagerDataSource dataSource;
+    private PlatformTransactionManager transactionManager;
+    private MemberRepository memberRepository;
+    private JdbcTemplate template;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:journal;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table if not exists transfer_journal_checkpoint (journal_name varchar(50) primary key, applied_seq bigint not null)");
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        memberRepository = new MemberRepositoryV5(dataSource);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        template.update("delete from member");
+        template.update("delete from transfer_journal_checkpoint");
+    }
+
+    @Test
+    @DisplayName("저널 레코드를 member 테이블에 반영, 검증 실패 레코드만 건너뜀")
+    void apply() throws Exception {
+        TransferJournal journal = new TransferJournal(directory, 1024, 1000, 16);
+        JournalApplier applier = new JournalApplier(journal, "transfer", dataSource, transactionManager, memberRepository, 10);
+
+        journal.append(MEMBER_A, MEMBER_B, 1000);
+        journal.append(MEMBER_A, MEMBER_EX, 2000);
+        long lastSeq = journal.append(MEMBER_B, MEMBER_A, 500).get(5, TimeUnit.SECONDS);
+
+        assertThat(applier.awaitApplied(lastSeq, 5, TimeUnit.SECONDS)).isTrue();
+        applier.close();
+        journal.close();
+
+        assertThat(applier.failedCount()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10500);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("재시작시 checkpoint 다음 레코드부터 반영 - 같은 레코드를 두 번 반영하지 않음")
+    void recoverFromCheckpoint() throws Exception {
+        TransferJournal journal = new TransferJournal(directory, 4, 1000, 1);
+        JournalApplier applier = new JournalApplier(journal, "transfer", dataSource, transactionManager, memberRepository, 3);
+        long seq = 0;
+        for(int i = 0; i < 10; i++) {
+            seq = journal.append(MEMBER_A, MEMBER_B, 100).get(5, TimeUnit.SECONDS);
+        }
+        assertThat(applier.awaitApplied(seq, 5, TimeUnit.SECONDS)).isTrue();
+        applier.close();
+        journal.close();
+
+        //재시작 후 추가 요청
+        TransferJournal reopened = new TransferJournal(directory, 4, 1000, 1);
+        JournalApplier restarted = new JournalApplier(reopened, "transfer", dataSource, transactionManager, memberRepository, 3);
+        assertThat(restarted.appliedSeq()).isEqualTo(10);
+        seq = reopened.append(MEMBER_A, MEMBER_B, 100).get(5, TimeUnit.SECONDS);
+        assertThat(restarted.awaitApplied(seq, 5, TimeUnit.SECONDS)).isTrue();
+        restarted.close();
+        reopened.close();
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000 - 1100);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000 + 1100);
+    }
+}
@@ -0,0 +1,120 @@
+package hello.jdbc.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class TransferJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("append 후 force 된 레코드만 읽기")
+    void appendAndRead() throws Exception {
+        TransferJournal journal = new TransferJournal(directory, 1024, 1000, 16);
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            futures.add(journal.append("memberA", "memberB", i));
+        }
+        long lastSeq = futures.get(futures.size() - 1).get(5, TimeUnit.SECONDS);
+
+        assertThat(lastSeq).isEqualTo(100);
+        assertThat(journal.durableSeq()).isGreaterThanOrEqualTo(100);
+
+        List<TransferRecord> records = journal.read(1, 1000);
+        assertThat(records).hasSize(100);
+        assertThat(records.get(41).getSeq()).isEqualTo(42);
+        assertThat(records.get(41).getMoney()).isEqualTo(41);
+        assertThat(records.get(41).getToId()).isEqualTo("memberB");
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("세그먼트가 가득 차면 새 세그먼트로 넘어가고, 반영된 세그먼트는 compact 로 삭제")
+    void rolloverAndCompact() throws Exception {
+        TransferJournal journal = new TransferJournal(directory, 10, 1000, 1);
+        for(int i = 0; i < 35; i++) {
+            journal.append("memberA", "memberB", i).get(5, TimeUnit.SECONDS);
+        }
+        assertThat(segmentCount()).isEqualTo(4);
+        assertThat(journal.read(8, 10)).extracting(TransferRecord::getSeq)
+                .containsExactly(8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L);
+
+        assertThat(journal.compact(25)).isEqualTo(2);  //1~10, 11~20 세그먼트 삭제
+        assertThat(segmentCount()).isEqualTo(2);
+        assertThat(journal.read(26, 100)).hasSize(10);
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("다시 열면 깨진 마지막 레코드 이전까지 복구하고 seq 를 이어서 발급")
+    void recoverAfterTornWrite() throws Exception {
+        TransferJournal journal = new TransferJournal(directory, 100, 1000, 1);
+        for(int i = 0; i < 5; i++) {
+            journal.append("memberA", "memberB", i).get(5, TimeUnit.SECONDS);
+        }
+        journal.close();
+
+        //6번째 레코드가 기록되다 중단된 상황 흉내 -> seq 만 쓰여지고 CRC 는 없음
+        Path segment = directory.resolve(String.format("%020d.log", 1));
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, 6), 5L * TransferJournal.RECORD_SIZE);
+        }
+
+        TransferJournal reopened = new TransferJournal(directory, 100, 1000, 1);
+        assertThat(reopened.durableSeq()).isEqualTo(5);
+        assertThat(reopened.append("memberB", "memberA", 7).get(5, TimeUnit.SECONDS)).isEqualTo(6);
+        assertThat(reopened.read(1, 100)).hasSize(6);
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("깨진 레코드 뒤에 남은 레코드 - 복구 시 지워서 빈틈을 채운 뒤 다시 열어도 반영되지 않음")
+    void recoverDiscardsRecordsAfterTornRecord() throws Exception {
+        TransferJournal journal = new TransferJournal(directory, 100, 1000, 1);
+        for(int i = 0; i < 8; i++) {
+            journal.append("memberA", "memberB", i).get(5, TimeUnit.SECONDS);
+        }
+        journal.close();
+
+        //6번째 레코드만 디스크에 기록되지 않은 상황 흉내(페이지 기록 순서 뒤바뀜) -> 7, 8번째는 seq, CRC 가 정상
+        Path segment = directory.resolve(String.format("%020d.log", 1));
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(TransferJournal.RECORD_SIZE), 5L * TransferJournal.RECORD_SIZE);
+        }
+
+        TransferJournal reopened = new TransferJournal(directory, 100, 1000, 1);
+        assertThat(reopened.durableSeq()).isEqualTo(5);
+        assertThat(reopened.append("memberB", "memberA", 100).get(5, TimeUnit.SECONDS)).isEqualTo(6);
+        reopened.close();
+
+        //then - 6번째를 새로 채운 뒤에도 이전의 7, 8번째는 남아있지 않음
+        TransferJournal again = new TransferJournal(directory, 100, 1000, 1);
+        assertThat(again.durableSeq()).isEqualTo(6);
+        assertThat(again.read(1, 100)).extracting(TransferRecord::getMoney).containsExactly(0, 1, 2, 3, 4, 100);
+        again.close();
+    }
+
+    private long segmentCount() throws Exception {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
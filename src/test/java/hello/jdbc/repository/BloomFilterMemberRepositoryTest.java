@@ -0,0 +1,118 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyMemberNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class BloomFilterMemberRepositoryTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate template;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:bloom;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+    }
+
+    @AfterEach
+    void after() {
+        template.update("delete from member");
+    }
+
+    @Test
+    @DisplayName("저장된 id 는 항상 있음, 없는 id 의 false positive 비율은 목표 근처")
+    void falsePositiveRate() {
+        int members = 100_000;
+        MemberIdFilter filter = new MemberIdFilter(members, 0.01);
+        for(int i = 0; i < members; i++) {
+            filter.put("m" + i);
+        }
+
+        for(int i = 0; i < members; i++) {
+            assertThat(filter.mightContain("m" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        for(int i = 0; i < members; i++) {
+            if(filter.mightContain("x" + i)) {
+                falsePositives++;
+            }
+        }
+        double fpp = (double) falsePositives / members;
+        log.info("members = {}, memory = {} bytes ({} bits/id), hashes = {}, expected fpp = {}, measured fpp = {}",
+                members, filter.memoryBytes(), (double) filter.bitSize() / members, filter.hashCount(), filter.expectedFpp(), fpp);
+
+        assertThat(fpp).isLessThan(0.02);
+        assertThat(filter.memoryBytes()).isLessThan(members * 2L);
+    }
+
+    @Test
+    @DisplayName("시작시 기존 회원을 읽어 필터 생성, 없는 회원 조회는 데이터베이스에 가지 않음")
+    void shortCircuitMiss() {
+        MemberRepositoryV5 delegate = new MemberRepositoryV5(dataSource);
+        delegate.save(new Member("memberA", 10000));
+        BloomFilterMemberRepository repository = new BloomFilterMemberRepository(dataSource, delegate, 1000, 0.01);
+
+        assertThat(repository.findById("memberA").getMoney()).isEqualTo(10000);
+        assertThatThrownBy(() -> repository.findById("nobody")).isInstanceOf(MyMemberNotFoundException.class);
+        assertThat(repository.definiteMisses()).isEqualTo(1);
+
+        repository.save(new Member("memberB", 5000));
+        assertThat(repository.findById("memberB").getMoney()).isEqualTo(5000);
+    }
+
+    @Test
+    @DisplayName("삭제한 id 는 필터에 남음 - 데이터베이스 조회 후 없음(false positive), 확실한 미스와 같은 예외")
+    void deleteLeavesFalsePositive() {
+        BloomFilterMemberRepository repository = new BloomFilterMemberRepository(dataSource, new MemberRepositoryV5(dataSource), 1000, 0.01);
+        repository.save(new Member("memberA", 10000));
+        repository.delete("memberA");
+
+        assertThat(repository.mightExist("memberA")).isTrue();
+        assertThatThrownBy(() -> repository.findById("memberA")).isInstanceOf(MyMemberNotFoundException.class)
+                .hasCauseInstanceOf(EmptyResultDataAccessException.class);
+        assertThat(repository.falsePositives()).isEqualTo(1);
+        assertThat(repository.deletedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("동시에 추가해도 비트가 사라지지 않음")
+    void concurrentPut() throws InterruptedException {
+        MemberIdFilter filter = new MemberIdFilter(80_000, 0.01);
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < 10_000; i++) {
+                    filter.put(thread + "-" + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        for(int t = 0; t < 8; t++) {
+            for(int i = 0; i < 10_000; i++) {
+                assertThat(filter.mightContain(t + "-" + i)).isTrue();
+            }
+        }
+    }
+}
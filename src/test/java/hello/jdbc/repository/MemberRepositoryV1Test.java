@@ -1,19 +1,20 @@
 package hello.jdbc.repository;
 
-import com.zaxxer.hikari.HikariDataSource;
 import hello.jdbc.domain.Member;
+import hello.jdbc.support.RollbackDatabase;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.NoSuchElementException;
 
-import static hello.jdbc.connection.ConnectionConst.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @Slf4j
+@RollbackDatabase
 class MemberRepositoryV1Test {
 
     MemberRepositoryV1 repository;
@@ -21,18 +22,19 @@ class MemberRepositoryV1Test {
     /**
      * DriverManagerDataSource -> HikariDataSource 로 변경해도 다른 코드는 전혀 변경하지 않아도 됨
      -> MemberRepositoryV1 은 DataSource 인터페이스에만 의존하기 때문 -> DI + OCP
+     - 테스트에서는 RollbackDatabaseExtension 의 DataSource 로 변경 -> 테스트가 끝나면 롤백, TCP 서버 불필요
      */
     @BeforeEach
-    void beforeEach() throws Exception {
+    void beforeEach(DataSource dataSource) {
         //기본 DriverManager - 항상 새로운 커넥션 획득
         //DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USERNAME, PASSWORD);
         //dataSource.setUrl(URL);
 
         //커넥션 풀링 : HikariProxyConnection -> JdbcConnection
-        HikariDataSource dataSource = new HikariDataSource();
-        dataSource.setJdbcUrl(URL);
-        dataSource.setUsername(USERNAME);
-        dataSource.setPassword(PASSWORD);
+        //HikariDataSource dataSource = new HikariDataSource();
+        //dataSource.setJdbcUrl(URL);
+        //dataSource.setUsername(USERNAME);
+        //dataSource.setPassword(PASSWORD);
 
         repository = new MemberRepositoryV1(dataSource);
     }
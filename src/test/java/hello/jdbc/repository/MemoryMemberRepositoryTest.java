@@ -0,0 +1,113 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class MemoryMemberRepositoryTest {
+
+    MemoryMemberRepository repository = new MemoryMemberRepository();
+
+    @Test
+    void crud() {
+        //save
+        Member member = new Member("memberV0", 10000);
+        repository.save(member);
+
+        //findById
+        Member findMember = repository.findById(member.getMemberId());
+        log.info("findMember = {}", findMember);
+        assertThat(findMember).isEqualTo(member);
+
+        //update : money : 10000 -> 20000
+        repository.update(member.getMemberId(), 20000);
+        Member updatedMember = repository.findById(member.getMemberId());
+        assertThat(updatedMember.getMoney()).isEqualTo(20000);
+
+        //delete
+        repository.delete(member.getMemberId());
+        assertThatThrownBy(() -> repository.findById(member.getMemberId()))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void duplicateKeySave() {
+        repository.save(new Member("myId", 0));
+        assertThatThrownBy(() -> repository.save(new Member("myId", 0)))
+                .isInstanceOf(MyDuplicateKeyException.class);
+    }
+
+    /**
+     * 삭제(TOMBSTONE) 와 재배치가 반복되어도 남아있는 회원을 모두 찾을 수 있어야 함
+     */
+    @Test
+    void saveAndDeleteWithRehash() {
+        MemoryMemberRepository repository = new MemoryMemberRepository(4, 2);
+
+        for(int i = 0; i < 10000; i++) {
+            repository.save(new Member("m" + i, i));
+        }
+        for(int i = 0; i < 10000; i += 2) {
+            repository.delete("m" + i);
+        }
+        for(int i = 0; i < 10000; i += 2) {
+            repository.save(new Member("m" + i, -i));
+        }
+
+        assertThat(repository.size()).isEqualTo(10000);
+        for(int i = 0; i < 10000; i++) {
+            assertThat(repository.findById("m" + i).getMoney()).isEqualTo(i % 2 == 0 ? -i : i);
+        }
+    }
+
+    /**
+     * 쓰레드마다 서로 다른 회원 쌍을 MemberServiceV4 로 이체 -> 세그먼트 락만으로 결과가 정확해야 함
+     */
+    @Test
+    void concurrentTransfer() throws Exception {
+        int threads = 8;
+        int transfers = 10000;
+        MemberServiceV4 memberService = new MemberServiceV4(repository);
+
+        for(int t = 0; t < threads; t++) {
+            repository.save(new Member("from" + t, transfers));
+            repository.save(new Member("to" + t, 0));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            String fromId = "from" + t;
+            String toId = "to" + t;
+            futures.add(executor.submit(() -> {
+                for(int i = 0; i < transfers; i++) {
+                    memberService.accountTransfer(fromId, toId, 1);
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        for(int t = 0; t < threads; t++) {
+            assertThat(repository.findById("from" + t).getMoney()).isEqualTo(0);
+            assertThat(repository.findById("to" + t).getMoney()).isEqualTo(transfers);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * saveIfAbsent, upsert - 모든 MemberRepository 구현체에서 같은 결과
+ */
+class SaveIfAbsentTest {
+
+    private DriverManagerDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:upsert;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, version bigint default 0 not null, primary key (member_id))");
+        template.execute("create table if not exists member_stripe (member_id varchar(10), stripe integer, money integer not null default 0, primary key (member_id, stripe))");
+        template.update("delete from member");
+        template.update("delete from member_stripe");
+    }
+
+    @Test
+    @DisplayName("saveIfAbsent - 처음만 저장, 이후 false / upsert - 없으면 저장, 있으면 변경")
+    void saveIfAbsentAndUpsert() {
+        List<MemberRepository> repositories = List.of(
+                new MemberRepositoryV4_1(dataSource),
+                new MemberRepositoryV4_2(dataSource),
+                new MemberRepositoryV5(dataSource),
+                new VersionedMemberRepository(dataSource),
+                new StripedMemberRepository(dataSource, new MemberRepositoryV5(dataSource), Set.of("hot"), 4),
+                new MemoryMemberRepository());
+
+        for(MemberRepository repository : repositories) {
+            for(String memberId : new String[]{"memberA", "hot"}) {
+                assertThat(repository.saveIfAbsent(new Member(memberId, 10000))).as(repository.getClass().getSimpleName()).isTrue();
+                assertThat(repository.saveIfAbsent(new Member(memberId, 20000))).as(repository.getClass().getSimpleName()).isFalse();
+                assertThat(repository.findById(memberId).getMoney()).isEqualTo(10000);
+
+                repository.upsert(new Member(memberId, 30000));
+                assertThat(repository.findById(memberId).getMoney()).isEqualTo(30000);
+
+                repository.delete(memberId);
+                repository.upsert(new Member(memberId, 5000));
+                assertThat(repository.findById(memberId).getMoney()).isEqualTo(5000);
+                repository.delete(memberId);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("VersionedMemberRepository.upsert - 변경시 version 증가")
+    void versionedUpsert() {
+        VersionedMemberRepository repository = new VersionedMemberRepository(dataSource);
+        repository.upsert(new Member("memberA", 10000));
+        repository.upsert(new Member("memberA", 20000));
+
+        assertThat(repository.findById("memberA").getVersion()).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,119 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 인메모리 H2 에 member, member_stripe 테이블을 만들어 사용
+ */
+class StripedMemberRepositoryTest {
+
+    public static final String MERCHANT = "merchant";
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_EX = "ex";
+    public static final int STRIPES = 4;
+
+    private JdbcTemplate template;
+    private StripedMemberRepository memberRepository;
+    private MemberServiceV4 memberService;
+    private TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:striped;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.execute("create table if not exists member_stripe (member_id varchar(10), stripe integer, money integer not null default 0, primary key (member_id, stripe))");
+
+        memberRepository = new StripedMemberRepository(dataSource, new MemberRepositoryV5(dataSource), Set.of(MERCHANT), STRIPES);
+        memberService = new MemberServiceV4(memberRepository);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MERCHANT);
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_EX);
+    }
+
+    @Test
+    void crud() {
+        //save - 인기 회원은 member_stripe 에 STRIPES 개 로우로 저장
+        memberRepository.save(new Member(MERCHANT, 10000));
+        assertThat(stripesOf(MERCHANT)).hasSize(STRIPES);
+        assertThat(memberRepository.findById(MERCHANT).getMoney()).isEqualTo(10000);
+
+        //update - 입금, 출금 모두 합계로 확인
+        memberRepository.update(MERCHANT, 15000);
+        assertThat(memberRepository.findById(MERCHANT).getMoney()).isEqualTo(15000);
+        memberRepository.update(MERCHANT, 1000);
+        assertThat(memberRepository.findById(MERCHANT).getMoney()).isEqualTo(1000);
+        assertThat(stripesOf(MERCHANT)).allMatch(money -> money >= 0);
+
+        //delete
+        memberRepository.delete(MERCHANT);
+        assertThatThrownBy(() -> memberRepository.findById(MERCHANT))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+    }
+
+    @Test
+    @DisplayName("여러 stripe 에 나뉜 잔액을 차례대로 차감")
+    void debitAcrossStripes() {
+        memberRepository.save(new Member(MERCHANT, 0));
+        template.update("update member_stripe set money = 100 where member_id = ?", MERCHANT);
+
+        memberRepository.update(MERCHANT, 50);
+
+        assertThat(memberRepository.findById(MERCHANT).getMoney()).isEqualTo(50);
+        assertThat(stripesOf(MERCHANT)).allMatch(money -> money >= 0);
+    }
+
+    @Test
+    @DisplayName("MemberServiceV4 정상이체 - 인기 회원 여부와 관계없이 동일하게 동작")
+    void accountTransfer() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MERCHANT, 10000));
+
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(MEMBER_A, MERCHANT, 2000));
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(MERCHANT, MEMBER_A, 500));
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8500);
+        assertThat(memberRepository.findById(MERCHANT).getMoney()).isEqualTo(11500);
+    }
+
+    @Test
+    @DisplayName("MemberServiceV4 이체중 예외 발생 - stripe 변경도 롤백")
+    void accountTransferEx() {
+        memberRepository = new StripedMemberRepository(template.getDataSource(), new MemberRepositoryV5(template.getDataSource()), Set.of(MERCHANT, MEMBER_EX), STRIPES);
+        memberService = new MemberServiceV4(memberRepository);
+        memberRepository.save(new Member(MERCHANT, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> memberService.accountTransfer(MERCHANT, MEMBER_EX, 2000)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memberRepository.findById(MERCHANT).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    private List<Integer> stripesOf(String memberId) {
+        return template.queryForList("select money from member_stripe where member_id = ? order by stripe", Integer.class, memberId);
+    }
+}
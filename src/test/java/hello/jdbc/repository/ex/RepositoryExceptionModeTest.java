@@ -0,0 +1,79 @@
+package hello.jdbc.repository.ex;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemoryMemberRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class RepositoryExceptionModeTest {
+
+    @Test
+    @DisplayName("STACK_TRACE - 기존과 같은 예외, 스택 트레이스 포함")
+    void stackTrace() {
+        RepositoryExceptionMode mode = RepositoryExceptionMode.STACK_TRACE;
+
+        assertThat(mode.notFound("memberA")).isExactlyInstanceOf(NoSuchElementException.class);
+        assertThat(mode.duplicateKey("memberA", null).getStackTrace()).isNotEmpty();
+        assertThat(mode.dbException(new SQLException("ex")).getStackTrace()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("STACKLESS - 메시지와 원인은 유지, 스택 트레이스 없음")
+    void stackless() {
+        RepositoryExceptionMode mode = RepositoryExceptionMode.STACKLESS;
+        SQLException cause = new SQLException("ex");
+
+        MyDbException dbException = mode.dbException(cause);
+        assertThat(dbException.getStackTrace()).isEmpty();
+        assertThat(dbException.getCause()).isSameAs(cause);
+
+        NoSuchElementException notFound = mode.notFound("memberA");
+        assertThat(notFound).isInstanceOf(MyMemberNotFoundException.class).hasMessageContaining("memberA");
+        assertThat(notFound.getStackTrace()).isEmpty();
+        assertThat(mode.duplicateKey("memberA", cause).getStackTrace()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("PREALLOCATED - 같은 인스턴스 재사용")
+    void preallocated() {
+        RepositoryExceptionMode mode = RepositoryExceptionMode.PREALLOCATED;
+
+        assertThat(mode.duplicateKey("memberA", null)).isSameAs(mode.duplicateKey("memberB", null));
+        assertThat(mode.notFound("memberA")).isSameAs(mode.notFound("memberB"));
+        assertThat(mode.notFound("memberA").getStackTrace()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("레포지토리별 선택 - 예외 타입은 모드와 관계없이 동일")
+    void repository() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:exmode;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+        new JdbcTemplate(dataSource).execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+
+        for(RepositoryExceptionMode mode : RepositoryExceptionMode.values()) {
+            new JdbcTemplate(dataSource).update("delete from member");
+            MemberRepository[] repositories = {
+                    new MemberRepositoryV4_1(dataSource, mode),
+                    new MemoryMemberRepository(16, 4, mode)
+            };
+            for(MemberRepository repository : repositories) {
+                repository.save(new Member("memberA", 10000));
+
+                assertThat(catchThrowable(() -> repository.save(new Member("memberA", 10000))))
+                        .isInstanceOf(MyDuplicateKeyException.class);
+                assertThat(catchThrowable(() -> repository.findById("none")))
+                        .isInstanceOf(NoSuchElementException.class);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package hello.jdbc.retry;
+
+import hello.jdbc.deadline.DeadlineExceededException;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionRetryInterceptorTest {
+
+    @Test
+    @DisplayName("일시적인 예외 -> 재시도 후 성공")
+    void retryTransient() {
+        FailingService target = new FailingService(2, new CannotAcquireLockException("lock timeout"));
+        TransactionRetryInterceptor interceptor = new TransactionRetryInterceptor(3, 1, 5, new RetryBudget(1, 10));
+
+        proxy(target, interceptor).call();
+
+        assertThat(target.calls).isEqualTo(3);
+        assertThat(interceptor.getMetrics().getRetries()).isEqualTo(2);
+        assertThat(interceptor.getMetrics().getRecovered()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("일시적이지 않은 예외 -> 재시도하지 않음")
+    void notTransient() {
+        FailingService target = new FailingService(1, new IllegalStateException("이체중 예외 발생"));
+        TransactionRetryInterceptor interceptor = new TransactionRetryInterceptor(3, 1, 5, new RetryBudget(1, 10));
+
+        assertThatThrownBy(() -> proxy(target, interceptor).call()).isInstanceOf(IllegalStateException.class);
+        assertThat(target.calls).isEqualTo(1);
+        assertThat(interceptor.getMetrics().getRetries()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("타임아웃, 커넥션 획득 실패(과부하) -> 재시도하지 않음")
+    void overloadNotRetried() {
+        List<RuntimeException> overloads = List.of(
+                new QueryTimeoutException("query timeout"),
+                new DeadlineExceededException("deadline exceeded", new SQLTimeoutException("deadline exceeded", "HYT00", 57014)),
+                new CannotGetJdbcConnectionException("pool exhausted", new SQLTransientConnectionException("connection is not available")),
+                new MyDbException("query timeout", new SQLTimeoutException("timeout")),
+                new MyDbException("pool exhausted", new SQLTransientConnectionException("connection is not available")));
+
+        for(RuntimeException overload : overloads) {
+            FailingService target = new FailingService(1, overload);
+            TransactionRetryInterceptor interceptor = new TransactionRetryInterceptor(3, 1, 5, new RetryBudget(1, 10));
+
+            assertThatThrownBy(() -> proxy(target, interceptor).call()).isSameAs(overload);
+            assertThat(target.calls).as(overload.toString()).isEqualTo(1);
+            assertThat(interceptor.getMetrics().getRetries()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    @DisplayName("재시도 대상 - 데드락, 락 획득 실패, SQLState 40001/40P01 만")
+    void lockConflictsOnly() {
+        assertThat(TransactionRetryInterceptor.isTransient(new PessimisticLockingFailureException("deadlock"))).isTrue();
+        assertThat(TransactionRetryInterceptor.isTransient(
+                new CannotAcquireLockException("lock timeout", new SQLTimeoutException("lock timeout", "HYT00", 50200)))).isTrue();
+        assertThat(TransactionRetryInterceptor.isTransient(new MyDbException("deadlock", new SQLException("deadlock", "40001")))).isTrue();
+        assertThat(TransactionRetryInterceptor.isTransient(new MyDbException("deadlock", new SQLException("deadlock", "40P01")))).isTrue();
+
+        assertThat(TransactionRetryInterceptor.isTransient(new MyDbException("rollback", new SQLException("integrity", "40002")))).isFalse();
+        assertThat(TransactionRetryInterceptor.isTransient(new TransientDataAccessResourceException("resource"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("최대 시도 횟수 초과, 재시도 예산 부족 -> 예외 그대로 전달")
+    void exhaustedAndBudget() {
+        TransactionRetryInterceptor interceptor = new TransactionRetryInterceptor(3, 1, 5, new RetryBudget(0, 3));
+        Service service = proxy(new FailingService(100, new CannotAcquireLockException("lock timeout")), interceptor);
+
+        //예산 3개 중 2개 사용 후 최대 시도 횟수 초과
+        assertThatThrownBy(service::call).isInstanceOf(CannotAcquireLockException.class);
+        //남은 예산 1개 사용 후 예산 부족
+        assertThatThrownBy(service::call).isInstanceOf(CannotAcquireLockException.class);
+
+        RetryMetrics metrics = interceptor.getMetrics();
+        assertThat(metrics.getRetries()).isEqualTo(3);
+        assertThat(metrics.getExhausted()).isEqualTo(1);
+        assertThat(metrics.getBudgetRejected()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("full jitter 백오프 - 0 ~ min(maxDelay, baseDelay * 2^(attempt-1))")
+    void backoff() {
+        TransactionRetryInterceptor interceptor = new TransactionRetryInterceptor(10, 10, 50, new RetryBudget(1, 10));
+        for(int i = 0; i < 100; i++) {
+            assertThat(interceptor.backoff(1)).isBetween(0L, 10L);
+            assertThat(interceptor.backoff(3)).isBetween(0L, 40L);
+            assertThat(interceptor.backoff(8)).isBetween(0L, 50L);
+        }
+    }
+
+    @Test
+    @DisplayName("반대 방향 동시 이체로 데드락 발생 -> 트랜잭션 전체 재시도로 모두 성공")
+    void deadlock() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:retry;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=500", USERNAME, PASSWORD);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.update("delete from member");
+
+        MemberRepository repository = new MemberRepositoryV4_2(dataSource);
+        repository.save(new Member("memberA", 10000));
+        repository.save(new Member("memberB", 10000));
+
+        //첫 update 이후 두 쓰레드가 모두 첫 update 를 마칠 때까지 대기 -> 서로 상대 로우를 기다리며 충돌
+        CountDownLatch firstUpdates = new CountDownLatch(2);
+        MemberRepository racingRepository = new RacingMemberRepository(repository, firstUpdates);
+
+        TransactionRetryInterceptor interceptor = new TransactionRetryInterceptor(5, 5, 50, new RetryBudget(1, 10));
+        ProxyFactory proxyFactory = new ProxyFactory(new MemberServiceV4(racingRepository));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        proxyFactory.addAdvice(new TransactionInterceptor((TransactionManager) new DataSourceTransactionManager(dataSource), new AnnotationTransactionAttributeSource()));
+        MemberServiceV4 memberService = (MemberServiceV4) proxyFactory.getProxy();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> aToB = executor.submit(() -> memberService.accountTransfer("memberA", "memberB", 1000));
+        Future<?> bToA = executor.submit(() -> memberService.accountTransfer("memberB", "memberA", 3000));
+        aToB.get(10, TimeUnit.SECONDS);
+        bToA.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(repository.findById("memberA").getMoney()).isEqualTo(12000);
+        assertThat(repository.findById("memberB").getMoney()).isEqualTo(8000);
+        assertThat(interceptor.getMetrics().getRetries()).isPositive();
+        assertThat(interceptor.getMetrics().getRecovered()).isPositive();
+    }
+
+    private Service proxy(Service target, TransactionRetryInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(interceptor);
+        return (Service) proxyFactory.getProxy();
+    }
+
+    interface Service {
+        void call();
+    }
+
+    static class FailingService implements Service {
+
+        private final int failures;
+        private final RuntimeException exception;
+        private int calls;
+
+        FailingService(int failures, RuntimeException exception) {
+            this.failures = failures;
+            this.exception = exception;
+        }
+
+        @Override
+        public void call() {
+            if(calls++ < failures) {
+                throw exception;
+            }
+        }
+    }
+
+    @Slf4j
+    static class RacingMemberRepository implements MemberRepository {
+
+        private final MemberRepository target;
+        private final CountDownLatch firstUpdates;
+
+        RacingMemberRepository(MemberRepository target, CountDownLatch firstUpdates) {
+            this.target = target;
+            this.firstUpdates = firstUpdates;
+        }
+
+        @Override
+        public Member save(Member member) {
+            return target.save(member);
+        }
+
+        @Override
+        public boolean saveIfAbsent(Member member) {
+            return target.saveIfAbsent(member);
+        }
+
+        @Override
+        public void upsert(Member member) {
+            target.upsert(member);
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            return target.findById(memberId);
+        }
+
+        @Override
+        public void update(String memberId, int money) {
+            target.update(memberId, money);
+            if(firstUpdates.getCount() > 0) {
+                firstUpdates.countDown();
+                try {
+                    firstUpdates.await(1, TimeUnit.SECONDS);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void delete(String memberId) {
+            target.delete(memberId);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package hello.jdbc.routing;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 읽기/쓰기 bulkhead - 같은 인메모리 H2 에 쓰기 풀(primary, 2개), 읽기 풀(replica, 1개)
+ - 한쪽 풀의 커넥션을 모두 점유한 상태에서 다른 쪽 작업이 영향을 받지 않는지 확인
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkhead;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.bulkhead.enabled=true",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=500",
+        "spring.datasource.replica.hikari.maximum-pool-size=1",
+        "spring.datasource.replica.hikari.connection-timeout=250"
+})
+class BulkheadDataSourceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource writeDataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberServiceV4 memberService;
+
+    @Autowired
+    BulkheadMetrics metrics;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV5(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(memberRepository());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        JdbcTemplate template = new JdbcTemplate(writeDataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        template.update("insert into member(member_id, money) values(?, ?)", MEMBER_A, 10000);
+        template.update("insert into member(member_id, money) values(?, ?)", MEMBER_B, 10000);
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(writeDataSource).update("delete from member");
+    }
+
+    @Test
+    @DisplayName("읽기 풀 포화 -> 조회만 타임아웃, 이체는 쓰기 풀로 성공")
+    void readSaturated() throws Exception {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        long readTimeouts = metrics.snapshot("replica").getTimeouts();
+        long writeTimeouts = metrics.snapshot("primary").getTimeouts();
+
+        try(Holder holder = new Holder(1)) {
+            holder.hold(() -> readOnly.executeWithoutResult(status -> {
+                memberRepository.findById(MEMBER_A);
+                holder.awaitRelease();
+            }));
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> memberRepository.findById(MEMBER_A))
+                    .isInstanceOf(DataAccessException.class)
+                    .hasRootCauseInstanceOf(SQLTransientConnectionException.class);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+
+            memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+            BulkheadMetrics.Snapshot read = metrics.snapshot("replica");
+            assertThat(read.getActive()).isEqualTo(1);
+            assertThat(read.getSaturation()).isEqualTo(1.0);
+            assertThat(read.getTimeouts()).isEqualTo(readTimeouts + 1);
+            assertThat(metrics.snapshot("primary").getTimeouts()).isEqualTo(writeTimeouts);
+        }
+
+        JdbcTemplate template = new JdbcTemplate(writeDataSource);
+        assertThat(template.queryForObject("select money from member where member_id = ?", Integer.class, MEMBER_A)).isEqualTo(8000);
+        assertThat(template.queryForObject("select money from member where member_id = ?", Integer.class, MEMBER_B)).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("쓰기 풀 포화 -> 이체만 타임아웃, 조회는 읽기 풀로 성공")
+    void writeSaturated() throws Exception {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        long writeTimeouts = metrics.snapshot("primary").getTimeouts();
+
+        try(Holder holder = new Holder(2)) {
+            for(int i = 0; i < 2; i++) {
+                holder.hold(() -> readWrite.executeWithoutResult(status -> {
+                    memberRepository.findById(MEMBER_B);
+                    holder.awaitRelease();
+                }));
+            }
+
+            assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000))
+                    .isInstanceOf(DataAccessException.class)
+                    .hasRootCauseInstanceOf(SQLTransientConnectionException.class);
+
+            Member member = memberRepository.findById(MEMBER_A);
+            assertThat(member.getMoney()).isEqualTo(10000);
+
+            BulkheadMetrics.Snapshot write = metrics.snapshot("primary");
+            assertThat(write.getActive()).isEqualTo(2);
+            assertThat(write.getTimeouts()).isGreaterThan(writeTimeouts);
+        }
+    }
+
+    /**
+     * 각 작업이 커넥션을 획득할 때까지 기다린 뒤 close() 전까지 점유
+     */
+    static class Holder implements AutoCloseable {
+
+        private final ExecutorService executor;
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<Future<?>> futures = new ArrayList<>();
+        private CountDownLatch acquired;
+
+        Holder(int threads) {
+            this.executor = Executors.newFixedThreadPool(threads);
+        }
+
+        void hold(Runnable task) throws InterruptedException {
+            acquired = new CountDownLatch(1);
+            CountDownLatch current = acquired;
+            futures.add(executor.submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    current.countDown();
+                }
+            }));
+            assertThat(current.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void awaitRelease() {
+            acquired.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            release.countDown();
+            for(Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package hello.jdbc.routing;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV3;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기/쓰기 라우팅 - 인메모리 H2 2개를 primary, replica 로 사용
+ - 두 데이터베이스에 같은 회원을 다른 금액으로 저장해서 어느 쪽에서 읽었는지 확인
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa"
+})
+class ReadWriteRoutingDataSourceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replicaDataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberRepositoryV3 memberRepositoryV3;
+
+    @Autowired
+    MemberServiceV4 memberService;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV5(dataSource);
+        }
+
+        @Bean
+        MemberRepositoryV3 memberRepositoryV3() {
+            return new MemberRepositoryV3(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(memberRepository());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        for(DataSource dataSource : new DataSource[]{primaryDataSource, replicaDataSource}) {
+            new JdbcTemplate(dataSource).execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        }
+        insert(primaryDataSource, MEMBER_A, 10000);
+        insert(primaryDataSource, MEMBER_B, 10000);
+        insert(replicaDataSource, MEMBER_A, 5000);
+        insert(replicaDataSource, MEMBER_B, 5000);
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(primaryDataSource).update("delete from member");
+        new JdbcTemplate(replicaDataSource).update("delete from member");
+    }
+
+    @Test
+    @DisplayName("트랜잭션 없는 조회 -> replica")
+    void nonTransactionalRead() throws Exception {
+        assertThat(AopUtils.isAopProxy(memberRepository)).isTrue();
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(5000);
+        assertThat(memberRepositoryV3.findById(MEMBER_A).getMoney()).isEqualTo(5000);
+    }
+
+    @Test
+    @DisplayName("읽기 전용 트랜잭션 -> replica, 읽기/쓰기 트랜잭션 -> primary")
+    void transactionalRead() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        Member replicaMember = readOnly.execute(status -> memberRepository.findById(MEMBER_A));
+        Member primaryMember = readWrite.execute(status -> memberRepository.findById(MEMBER_A));
+        assertThat(replicaMember.getMoney()).isEqualTo(5000);
+        assertThat(primaryMember.getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("쓰기는 트랜잭션 여부와 관계없이 primary")
+    void write() {
+        memberRepository.update(MEMBER_A, 7000);
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        assertThat(primary.queryForObject("select money from member where member_id = ?", Integer.class, MEMBER_A)).isEqualTo(5000);
+        assertThat(primary.queryForObject("select money from member where member_id = ?", Integer.class, MEMBER_B)).isEqualTo(12000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(5000);
+    }
+
+    private void insert(DataSource dataSource, String memberId, int money) {
+        new JdbcTemplate(dataSource).update("insert into member(member_id, money) values(?, ?)", memberId, money);
+    }
+}
@@ -0,0 +1,142 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.VersionedMemberRepository;
+import hello.jdbc.service.AdaptiveTransferService.TransferMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveTransferServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private JdbcTemplate template;
+    private VersionedMemberRepository memberRepository;
+    private ConflictRateTracker conflictTracker;
+    private AdaptiveTransferService memberService;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:adaptive;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=2000", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, version bigint default 0 not null, primary key (member_id))");
+
+        memberRepository = new VersionedMemberRepository(dataSource);
+        conflictTracker = new ConflictRateTracker(TimeUnit.SECONDS.toNanos(1), 3, 1, clock::get);
+        memberService = new AdaptiveTransferService(new DataSourceTransactionManager(dataSource), memberRepository, conflictTracker, 100);
+
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        template.update("delete from member");
+    }
+
+    @Test
+    @DisplayName("충돌 없는 회원 -> 낙관적 락")
+    void optimistic() {
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(memberService.optimisticTransfers()).isEqualTo(1);
+        assertThat(memberService.modeOf(MEMBER_A)).isEqualTo(TransferMode.OPTIMISTIC);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("자기 자신에게 이체 -> IllegalArgumentException, 충돌로 재시도하지 않음")
+    void selfTransfer() {
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_A, 2000))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        Member findMemberA = memberRepository.findById(MEMBER_A);
+        assertThat(findMemberA.getMoney()).isEqualTo(10000);
+        assertThat(findMemberA.getVersion()).isEqualTo(0L);
+        assertThat(memberService.conflictCount()).isZero();
+        assertThat(memberService.modeOf(MEMBER_A)).isEqualTo(TransferMode.OPTIMISTIC);
+    }
+
+    @Test
+    @DisplayName("충돌이 쌓이면 비관적 락, 시간이 지나 충돌 빈도가 감소하면 다시 낙관적 락")
+    void switchMode() {
+        for(int i = 0; i < 3; i++) {
+            conflictTracker.recordConflict(MEMBER_B);
+        }
+        assertThat(memberService.modeOf(MEMBER_B)).isEqualTo(TransferMode.PESSIMISTIC);
+        assertThat(memberService.hotMembers()).isEqualTo(1);
+
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+        assertThat(memberService.pessimisticTransfers()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_B).getVersion()).isEqualTo(1L);
+
+        //반감기 1초 -> 1.5초 후 점수 약 1.06 (coldThreshold 1 이상이므로 유지), 2초 후 0.75
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+        assertThat(memberService.modeOf(MEMBER_B)).isEqualTo(TransferMode.PESSIMISTIC);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(memberService.modeOf(MEMBER_B)).isEqualTo(TransferMode.OPTIMISTIC);
+
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+        assertThat(memberService.optimisticTransfers()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("비관적 락 모드에서도 이체중 예외 발생시 롤백")
+    void pessimisticEx() {
+        for(int i = 0; i < 3; i++) {
+            conflictTracker.recordConflict(MEMBER_EX);
+        }
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("인기 회원에게 동시 이체 - 충돌 후 비관적 락으로 전환, 갱신 손실 없음")
+    void concurrentTransfers() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            boolean aToB = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for(int j = 0; j < 50; j++) {
+                    memberService.accountTransfer(aToB ? MEMBER_A : MEMBER_B, aToB ? MEMBER_B : MEMBER_A, aToB ? 10 : 30);
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000 - 2000 + 6000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000 + 2000 - 6000);
+        assertThat(memberService.optimisticTransfers() + memberService.pessimisticTransfers()).isEqualTo(400);
+    }
+}
@@ -0,0 +1,112 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class CasTransferEngineTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private CasTransferEngine engine;
+
+    @BeforeEach
+    void before() {
+        engine = new CasTransferEngine(1024);
+    }
+
+    @Test
+    @DisplayName("정상이체")
+    void accountTransfer() {
+        //given
+        engine.register(new Member(MEMBER_A, 10000));
+        engine.register(new Member(MEMBER_B, 10000));
+
+        //when
+        engine.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        //then
+        assertThat(engine.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(engine.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생")
+    void accountTransferEx() {
+        //given
+        engine.register(new Member(MEMBER_A, 10000));
+        engine.register(new Member(MEMBER_EX, 10000));
+
+        //when
+        assertThatThrownBy(() -> engine.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then - MemberServiceV4 의 롤백과 마찬가지로 잔액 변화 없음
+        assertThat(engine.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(engine.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("존재하지 않는 회원")
+    void accountTransferNotFound() {
+        engine.register(new Member(MEMBER_A, 10000));
+
+        assertThatThrownBy(() -> engine.accountTransfer(MEMBER_A, MEMBER_B, 2000))
+                .isInstanceOf(NoSuchElementException.class);
+        assertThat(engine.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    /**
+     * 소수의 인기 회원에게 이체가 몰리는 상황 + 양방향(A->B, B->A) 이체를 동시에 실행
+     -> 데드락 없이 끝나야 하고, 전체 잔액 합계는 그대로 유지되어야 함
+     */
+    @Test
+    @DisplayName("동시 이체 - 전체 잔액 보존")
+    void moneyConservation() throws Exception {
+        int members = 64;
+        int threads = 8;
+        int transfersPerThread = 100_000;
+        for(int i = 0; i < members; i++) {
+            engine.register(new Member("m" + i, 1_000_000));
+        }
+        long total = engine.totalBalance();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for(int i = 0; i < transfersPerThread; i++) {
+                    //절반은 인기 회원(m0, m1) 사이의 양방향 이체
+                    String fromId = "m" + (random.nextBoolean() ? random.nextInt(2) : random.nextInt(members));
+                    String toId = "m" + (random.nextBoolean() ? random.nextInt(2) : random.nextInt(members));
+                    engine.accountTransfer(fromId, toId, random.nextInt(1, 100));
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        log.info("total before = {}, after = {}", total, engine.totalBalance());
+        assertThat(engine.totalBalance()).isEqualTo(total);
+    }
+}
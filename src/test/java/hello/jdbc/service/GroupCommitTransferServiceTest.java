@@ -0,0 +1,244 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 트랜잭션 - 그룹 커밋
+ */
+class GroupCommitTransferServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private MemberRepository memberRepository;
+    private DataSourceTransactionManager transactionManager;
+    private GroupCommitTransferService memberService;
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicBoolean failBegin = new AtomicBoolean();
+    private final AtomicBoolean failSavepointRollback = new AtomicBoolean();
+
+    /**
+     * 커밋 횟수를 세기 위해 DataSourceTransactionManager 의 doCommit 을 확장
+     - 장애 테스트를 위해 트랜잭션 시작(doBegin), 세이브포인트 롤백(Connection.rollback(Savepoint))을 실패시킬 수 있음
+     */
+    @BeforeEach
+    void before() {
+        DataSource dataSource = failingSavepointRollback(
+                new DriverManagerDataSource("jdbc:h2:mem:groupcommit;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD));
+        new JdbcTemplate(dataSource).execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+
+        transactionManager = new DataSourceTransactionManager(dataSource) {
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+                if(failBegin.get()) {
+                    throw new CannotCreateTransactionException("connection pool exhausted");
+                }
+                super.doBegin(transaction, definition);
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                commits.incrementAndGet();
+                super.doCommit(status);
+            }
+        };
+
+        memberRepository = new MemberRepositoryV5(dataSource);
+        memberService = new GroupCommitTransferService(transactionManager, memberRepository, 100, 200_000);
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        memberService.close();
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        memberRepository.delete(MEMBER_EX);
+    }
+
+    @Test
+    @DisplayName("동시 이체 요청을 하나의 트랜잭션으로 커밋")
+    void groupCommit() throws Exception {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        //when
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            futures.add(memberService.accountTransfer(MEMBER_A, MEMBER_B, 10));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10500);
+        assertThat(commits.get()).isLessThan(50);
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생 - 같은 그룹의 다른 요청은 커밋")
+    void failureIsolatedToRequest() throws Exception {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+
+        //when
+        CompletableFuture<Void> before = memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+        CompletableFuture<Void> failed = memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000);
+        CompletableFuture<Void> after = memberService.accountTransfer(MEMBER_B, MEMBER_A, 500);
+
+        //then
+        before.get(5, TimeUnit.SECONDS);
+        after.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(commits.get()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10500);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 시작 실패 -> 그룹의 모든 요청 실패로 완료, writer 는 다음 그룹 처리")
+    void beginFailure() throws Exception {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        failBegin.set(true);
+
+        //when
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            futures.add(memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000));
+        }
+
+        //then
+        for(CompletableFuture<Void> future : futures) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(CannotCreateTransactionException.class);
+        }
+
+        failBegin.set(false);
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000).get(5, TimeUnit.SECONDS);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(11000);
+    }
+
+    @Test
+    @DisplayName("세이브포인트 롤백 실패 -> 그룹 전체 롤백, 처리 전후 요청 모두 실패로 완료")
+    void savepointRollbackFailure() throws Exception {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+        failSavepointRollback.set(true);
+
+        //when
+        CompletableFuture<Void> before = memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+        CompletableFuture<Void> failed = memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000);
+        CompletableFuture<Void> after = memberService.accountTransfer(MEMBER_B, MEMBER_A, 500);
+
+        //then
+        assertThatThrownBy(() -> before.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TransactionSystemException.class);
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TransactionSystemException.class);
+        assertThatThrownBy(() -> after.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TransactionSystemException.class);
+        assertThat(commits.get()).isZero();
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000);
+
+        failSavepointRollback.set(false);
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000).get(5, TimeUnit.SECONDS);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9000);
+    }
+
+    @Test
+    @DisplayName("그룹을 모으는 중 writer 인터럽트 -> 모으던 요청, 이후 요청 모두 실패로 완료")
+    void writerInterrupted() throws Exception {
+        //given - 그룹을 오래 모으는(10초) 서비스
+        memberService.close();
+        memberService = new GroupCommitTransferService(transactionManager, memberRepository, 100, 10_000_000);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        CompletableFuture<Void> forming = memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000);
+        Thread.sleep(300);      //writer 가 첫 요청을 꺼내고 다음 요청을 기다리는 중
+
+        //when
+        writerThread().interrupt();
+
+        //then
+        assertThatThrownBy(() -> forming.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 1000).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(commits.get()).isZero();
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    private Thread writerThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("group-commit-writer") && thread.isAlive())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * failSavepointRollback 이 설정되면 Connection.rollback(Savepoint) 실패
+     */
+    private DataSource failingSavepointRollback(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection target = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if(method.getName().equals("rollback") && args != null && args[0] instanceof Savepoint
+                                    && failSavepointRollback.get()) {
+                                throw new SQLException("savepoint rollback failed");
+                            }
+                            try {
+                                return method.invoke(target, args);
+                            } catch(InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                        });
+            }
+        };
+    }
+}
@@ -2,8 +2,9 @@ package hello.jdbc.service;
 
 import hello.jdbc.domain.Member;
 import hello.jdbc.repository.MemberRepositoryV3;
+import hello.jdbc.support.RollbackDatabase;
+import hello.jdbc.support.RollbackDatabaseConfig;
 import lombok.extern.slf4j.Slf4j;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.aop.support.AopUtils;
@@ -11,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
@@ -38,6 +40,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
  */
 @Slf4j
 @SpringBootTest
+@RollbackDatabase
+@Import(RollbackDatabaseConfig.class)
 class MemberServiceV3_4Test {
 
     public static final String MEMBER_A = "memberA";
@@ -50,17 +54,11 @@ class MemberServiceV3_4Test {
     @Autowired
     MemberServiceV3_3 memberService;
 
-    @AfterEach
-    void after() throws SQLException {
-        memberRepository.delete(MEMBER_A);
-        memberRepository.delete(MEMBER_B);
-        memberRepository.delete(MEMBER_EX);
-    }
-
     /**
      - 데이터소스와 트랜잭션 매니저를 스프링 빈으로 등록하는 코드가 생략
      -> 스프링 부트가 application.properties 에 지정된 속성을 참고하여 데이터 소스와 트랜잭션 매니저를 자동으로 생성
      - 코드와 같이 생성자를 통해 스프링 부트가 만들어준 데이터 소스 빈을 주입받을 수도 있음
+     - 테스트에서는 RollbackDatabaseConfig 가 데이터 소스를 직접 등록 -> 트랜잭션 매니저만 자동 등록
      */
     @TestConfiguration
     static class TestConfig {
@@ -3,8 +3,9 @@ package hello.jdbc.service;
 import hello.jdbc.domain.Member;
 import hello.jdbc.repository.MemberRepository;
 import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.support.RollbackDatabase;
+import hello.jdbc.support.RollbackDatabaseConfig;
 import lombok.extern.slf4j.Slf4j;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.aop.support.AopUtils;
@@ -12,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
 import javax.sql.DataSource;
 
@@ -30,6 +32,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
  */
 @Slf4j
 @SpringBootTest
+@RollbackDatabase
+@Import(RollbackDatabaseConfig.class)
 class MemberServiceV4Test {
 
     public static final String MEMBER_A = "memberA";
@@ -42,13 +46,6 @@ class MemberServiceV4Test {
     @Autowired
     MemberServiceV4 memberService;
 
-    @AfterEach
-    void after() {
-        memberRepository.delete(MEMBER_A);
-        memberRepository.delete(MEMBER_B);
-        memberRepository.delete(MEMBER_EX);
-    }
-
     @TestConfiguration
     static class TestConfig {
 
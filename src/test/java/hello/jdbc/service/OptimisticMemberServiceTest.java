@@ -0,0 +1,123 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.VersionedMemberRepository;
+import hello.jdbc.repository.ex.MyOptimisticLockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptimisticMemberServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private JdbcTemplate template;
+    private VersionedMemberRepository memberRepository;
+    private OptimisticMemberService memberService;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:optimistic;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=2000", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, version bigint default 0 not null, primary key (member_id))");
+
+        memberRepository = new VersionedMemberRepository(dataSource);
+        memberService = new OptimisticMemberService(new DataSourceTransactionManager(dataSource), memberRepository, 100);
+
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        template.update("delete from member");
+    }
+
+    @Test
+    @DisplayName("정상 이체 - version 증가")
+    void accountTransfer() {
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        Member findMemberA = memberRepository.findById(MEMBER_A);
+        assertThat(findMemberA.getMoney()).isEqualTo(8000);
+        assertThat(findMemberA.getVersion()).isEqualTo(1L);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("자기 자신에게 이체 -> IllegalArgumentException, 충돌로 재시도하지 않음")
+    void selfTransfer() {
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_A, 2000))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        Member findMemberA = memberRepository.findById(MEMBER_A);
+        assertThat(findMemberA.getMoney()).isEqualTo(10000);
+        assertThat(findMemberA.getVersion()).isEqualTo(0L);
+        assertThat(memberService.conflictCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생 - 롤백, 재시도하지 않음")
+    void accountTransferEx() {
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        Member findMemberA = memberRepository.findById(MEMBER_A);
+        assertThat(findMemberA.getMoney()).isEqualTo(10000);
+        assertThat(findMemberA.getVersion()).isEqualTo(0L);
+        assertThat(memberService.conflictCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("오래된 version 으로 변경 -> MyOptimisticLockException")
+    void staleVersion() {
+        Member member = memberRepository.findById(MEMBER_A);
+        memberRepository.update(MEMBER_A, 5000, member.getVersion());
+
+        assertThatThrownBy(() -> memberRepository.update(MEMBER_A, 7000, member.getVersion()))
+                .isInstanceOf(MyOptimisticLockException.class);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(5000);
+    }
+
+    @Test
+    @DisplayName("동시 이체 - 충돌은 재시도로 해결, 갱신 손실 없음")
+    void concurrentTransfers() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            boolean aToB = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for(int j = 0; j < 50; j++) {
+                    memberService.accountTransfer(aToB ? MEMBER_A : MEMBER_B, aToB ? MEMBER_B : MEMBER_A, aToB ? 10 : 30);
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //A->B 200건 x 10, B->A 200건 x 30
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000 - 2000 + 6000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000 + 2000 - 6000);
+    }
+}
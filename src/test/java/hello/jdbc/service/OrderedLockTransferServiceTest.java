@@ -0,0 +1,127 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.TransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 락 순서 고정 이체 - 서비스 트랜잭션은 TransactionTemplate 으로 감싸서 실행
+ */
+@Slf4j
+class OrderedLockTransferServiceTest {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private JdbcTemplate template;
+    private TransactionTemplate txTemplate;
+    private MemberRepository memberRepository;
+    private OrderedLockTransferService memberService;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:ordered;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=2000", USERNAME, PASSWORD);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        memberRepository = new MemberRepositoryV5(dataSource);
+        memberService = new OrderedLockTransferService(new TransferRepository(dataSource));
+
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        template.update("delete from member");
+    }
+
+    @Test
+    @DisplayName("정상 이체")
+    void accountTransfer() {
+        transfer(MEMBER_B, MEMBER_A, 2000);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(12000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(8000);
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생, 없는 회원 -> 변경 없음")
+    void accountTransferEx() {
+        assertThatThrownBy(() -> transfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> transfer(MEMBER_A, "none", 2000))
+                .isInstanceOf(IncorrectResultSizeDataAccessException.class);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("반대 방향 동시 이체 스트레스 - 데드락 0건, 총액 유지")
+    void concurrentOppositeTransfers() throws Exception {
+        int threads = 8;
+        int transfersPerThread = 200;
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            boolean aToB = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for(int j = 0; j < transfersPerThread; j++) {
+                    int money = ThreadLocalRandom.current().nextInt(1, 10);
+                    try {
+                        if(aToB) {
+                            transfer(MEMBER_A, MEMBER_B, money);
+                        } else {
+                            transfer(MEMBER_B, MEMBER_A, money);
+                        }
+                    } catch(RuntimeException e) {
+                        log.info("transfer failed", e);
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(failures.get()).isZero();
+        int total = memberRepository.findById(MEMBER_A).getMoney() + memberRepository.findById(MEMBER_B).getMoney();
+        assertThat(total).isEqualTo(20000);
+    }
+
+    private void transfer(String fromId, String toId, int money) {
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer(fromId, toId, money));
+    }
+}
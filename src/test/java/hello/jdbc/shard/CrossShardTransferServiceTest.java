@@ -0,0 +1,129 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CrossShardTransferServiceTest {
+
+    public static final String MEMBER_EX = "ex";
+
+    private final ShardFunction shardFunction = new ConsistentHashShardFunction(2, 100);
+    private List<DataSource> dataSources;
+    private ShardedMemberRepository memberRepository;
+    private OutboxRelay relay;
+    private CrossShardTransferService service;
+
+    private String memberA;     //ex 와 다른 샤드
+    private String memberB;     //ex 와 같은 샤드
+
+    @BeforeEach
+    void before() {
+        dataSources = List.of(
+                new DriverManagerDataSource("jdbc:h2:mem:saga0;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD),
+                new DriverManagerDataSource("jdbc:h2:mem:saga1;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD));
+        for(DataSource dataSource : dataSources) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+            template.execute("create table if not exists transfer_outbox (transfer_id varchar(36) primary key, from_id varchar(10) not null, " +
+                    "to_id varchar(10) not null, money integer not null, status varchar(20) not null, created_at timestamp default current_timestamp not null)");
+            template.execute("create table if not exists transfer_inbox (transfer_id varchar(36) primary key, created_at timestamp default current_timestamp not null)");
+        }
+
+        memberRepository = new ShardedMemberRepository(dataSources, shardFunction);
+        relay = new OutboxRelay(dataSources, shardFunction, 100, 10);
+        service = new CrossShardTransferService(dataSources, shardFunction, relay);
+
+        memberA = memberOnShard(1 - shardFunction.shardOf(MEMBER_EX));
+        memberB = memberOnShard(shardFunction.shardOf(MEMBER_EX));
+        memberRepository.save(new Member(memberA, 10000));
+        memberRepository.save(new Member(memberB, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        relay.close();
+        memberRepository.close();
+        for(DataSource dataSource : dataSources) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.update("delete from member");
+            template.update("delete from transfer_outbox");
+            template.update("delete from transfer_inbox");
+        }
+    }
+
+    @Test
+    @DisplayName("다른 샤드 이체 - 출금 + 아웃박스, 릴레이가 입금")
+    void crossShardTransfer() throws Exception {
+        service.accountTransfer(memberA, memberB, 2000).get(5, TimeUnit.SECONDS);
+
+        assertThat(memberRepository.findById(memberA).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(memberB).getMoney()).isEqualTo(12000);
+        assertThat(countOf(shardFunction.shardOf(memberA), "select count(*) from transfer_outbox where status = 'DONE'")).isEqualTo(1);
+        assertThat(countOf(shardFunction.shardOf(memberB), "select count(*) from transfer_inbox")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("입금 실패시 보상 - 출금액 환불, 아웃박스 COMPENSATED")
+    void compensate() {
+        assertThatThrownBy(() -> service.accountTransfer(memberA, MEMBER_EX, 2000).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(memberRepository.findById(memberA).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+        assertThat(countOf(shardFunction.shardOf(memberA), "select count(*) from transfer_outbox where status = 'COMPENSATED'")).isEqualTo(1);
+        assertThat(relay.compensatedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("같은 메시지를 다시 받아도 한 번만 입금 - 입금 후 DONE 변경 전에 중단된 경우")
+    void idempotentCredit() {
+        int source = shardFunction.shardOf(memberA);
+        int target = shardFunction.shardOf(memberB);
+        new JdbcTemplate(dataSources.get(target)).update("insert into transfer_inbox(transfer_id) values('t-1')");
+        new JdbcTemplate(dataSources.get(source)).update("insert into transfer_outbox(transfer_id, from_id, to_id, money, status) values('t-1', ?, ?, 2000, 'PENDING')",
+                memberA, memberB);
+
+        relay.relayOnce();
+
+        assertThat(memberRepository.findById(memberB).getMoney()).isEqualTo(10000);
+        assertThat(countOf(source, "select count(*) from transfer_outbox where status = 'DONE'")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("같은 샤드 이체 - 로컬 트랜잭션 하나, 검증 실패시 롤백")
+    void sameShardTransfer() {
+        assertThatThrownBy(() -> service.accountTransfer(memberB, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memberRepository.findById(memberB).getMoney()).isEqualTo(10000);
+        assertThat(countOf(shardFunction.shardOf(memberB), "select count(*) from transfer_outbox")).isEqualTo(0);
+    }
+
+    private String memberOnShard(int shard) {
+        for(int i = 0; ; i++) {
+            if(shardFunction.shardOf("m" + i) == shard) {
+                return "m" + i;
+            }
+        }
+    }
+
+    private int countOf(int shard, String sql) {
+        return new JdbcTemplate(dataSources.get(shard)).queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,248 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRebalancerTest {
+
+    private static final int MEMBERS = 2000;
+    private static final int WRITERS = 2;
+
+    private List<DataSource> dataSources;
+    private ShardedMemberRepository repository;
+
+    @BeforeEach
+    void before() {
+        dataSources = new ArrayList<>();
+        for(int shard = 0; shard < 3; shard++) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:rebalance" + shard + ";DB_CLOSE_DELAY=-1", USERNAME, PASSWORD);
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+            template.update("delete from member");
+            dataSources.add(dataSource);
+        }
+
+        //2개 샤드로 시작, 3번째 DataSource 는 추가할 샤드
+        repository = new ShardedMemberRepository(dataSources, new ConsistentHashShardFunction(2, 100));
+        for(int i = 0; i < MEMBERS; i++) {
+            repository.save(new Member("m" + i, i));
+        }
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("쓰기가 계속되는 중에 샤드 추가 - 모든 회원이 새 샤드 함수의 샤드에 최신 값으로 하나만 존재")
+    void rebalanceUnderWrites() throws Exception {
+        ShardFunction next = new ConsistentHashShardFunction(3, 100);
+        LatencyWindow foreground = new LatencyWindow(1024);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Map<String, Integer>> expected = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+
+        for(int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            Map<String, Integer> written = new HashMap<>();
+            expected.add(written);
+            writers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while(running.get()) {
+                    String memberId = "m" + (random.nextInt(MEMBERS / WRITERS) * WRITERS + writer);     //작성자별로 다른 회원
+                    int money = random.nextInt(1_000_000);
+                    if(random.nextInt(10) == 0) {
+                        writeInTransaction(memberId, money);
+                    } else {
+                        foreground.time(() -> {
+                            repository.update(memberId, money);
+                            return null;
+                        });
+                    }
+                    written.put(memberId, money);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+
+        ShardRebalancer rebalancer = new ShardRebalancer(repository, foreground, 100_000, 100, 0, 50);
+        rebalancer.start(next).get(60, TimeUnit.SECONDS);
+        Thread.sleep(100);      //cutover 이후의 쓰기도 포함
+        running.set(false);
+        for(Thread writer : writers) {
+            writer.join();
+        }
+        rebalancer.close();
+
+        assertThat(repository.isMigrating()).isFalse();
+        assertThat(repository.shardFunction()).isSameAs(next);
+        assertThat(rebalancer.copiedRows()).isGreaterThan(0);
+        assertThat(rebalancer.deletedRows()).isEqualTo(rebalancer.copiedRows());
+
+        Map<String, Integer> latest = new HashMap<>();
+        expected.forEach(latest::putAll);
+        int total = 0;
+        for(int shard = 0; shard < 3; shard++) {
+            List<Member> members = new JdbcTemplate(dataSources.get(shard)).query("select member_id, money from member",
+                    (rs, rowNum) -> new Member(rs.getString("member_id"), rs.getInt("money")));
+            for(Member member : members) {
+                assertThat(next.shardOf(member.getMemberId())).isEqualTo(shard);
+                int index = Integer.parseInt(member.getMemberId().substring(1));
+                assertThat(member.getMoney()).as(member.getMemberId()).isEqualTo(latest.getOrDefault(member.getMemberId(), index));
+            }
+            total += members.size();
+        }
+        assertThat(total).isEqualTo(MEMBERS);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안의 쓰기 - 커밋된 경우에만 새 샤드에 반영")
+    void mirrorAfterCommit() throws InterruptedException {
+        ShardFunction next = new ConsistentHashShardFunction(3, 100);
+        String memberId = movingMember(next);
+        assertThat(repository.beginMigration(next, 1, TimeUnit.SECONDS)).isTrue();
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(repository.dataSourceOf(memberId)));
+        JdbcTemplate target = new JdbcTemplate(dataSources.get(next.shardOf(memberId)));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(memberId, 777);
+            status.setRollbackOnly();
+        });
+        assertThat(target.queryForList("select money from member where member_id = ?", Integer.class, memberId)).isEmpty();
+
+        txTemplate.executeWithoutResult(status -> repository.update(memberId, 888));
+        assertThat(target.queryForObject("select money from member where member_id = ?", Integer.class, memberId)).isEqualTo(888);
+
+        assertThat(repository.cutover(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(repository.findById(memberId).getMoney()).isEqualTo(888);
+    }
+
+    @Test
+    @DisplayName("beginMigration 전에 시작한 트랜잭션 - 재분배는 커밋을 기다렸다가 복사, cutover 후 새 샤드에 최신 값")
+    void transactionOpenAcrossBeginMigration() throws Exception {
+        ShardFunction next = new ConsistentHashShardFunction(3, 100);
+        String memberId = movingMember(next);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(repository.dataSourceOf(memberId)));
+        CountDownLatch written = new CountDownLatch(1);
+
+        Thread writer = new Thread(() -> txTemplate.executeWithoutResult(status -> {
+            repository.update(memberId, 777);
+            written.countDown();
+            sleep(300);     //재분배 시작 이후에 커밋
+        }));
+        writer.start();
+        written.await();
+
+        ShardRebalancer rebalancer = new ShardRebalancer(repository, new LatencyWindow(16), 100_000, 100, 0, 0);
+        rebalancer.start(next).get(10, TimeUnit.SECONDS);
+        writer.join();
+        rebalancer.close();
+
+        JdbcTemplate target = new JdbcTemplate(dataSources.get(next.shardOf(memberId)));
+        assertThat(target.queryForObject("select money from member where member_id = ?", Integer.class, memberId)).isEqualTo(777);
+        assertThat(repository.findById(memberId).getMoney()).isEqualTo(777);
+    }
+
+    @Test
+    @DisplayName("beginMigration 대기 시간 초과 -> 라우팅 그대로, 대기하지 않는 새 쓰기는 계속 진행")
+    void beginMigrationTimeout() throws Exception {
+        ShardFunction previous = repository.shardFunction();
+        ShardFunction next = new ConsistentHashShardFunction(3, 100);
+        String memberId = movingMember(next);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(repository.dataSourceOf(memberId)));
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        Thread writer = new Thread(() -> txTemplate.executeWithoutResult(status -> {
+            repository.update(memberId, 777);
+            written.countDown();
+            await(commit);
+        }));
+        writer.start();
+        written.await();
+
+        //when - 커밋하지 않은 트랜잭션이 있는 동안 시간 초과
+        long start = System.nanoTime();
+        assertThat(repository.beginMigration(next, 100, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+        //then - 라우팅 그대로, 새 쓰기는 쓰기 락 대기 없이 실행
+        assertThat(repository.shardFunction()).isSameAs(previous);
+        assertThatThrownBy(() -> repository.cutover(10, TimeUnit.MILLISECONDS)).isInstanceOf(IllegalStateException.class);
+        repository.update(otherMember(memberId), 555);
+
+        commit.countDown();
+        writer.join();
+        assertThat(repository.beginMigration(next, 1, TimeUnit.SECONDS)).isTrue();
+        assertThat(repository.findById(memberId).getMoney()).isEqualTo(777);
+    }
+
+    @Test
+    @DisplayName("foreground p99 가 목표를 넘으면 chunk 사이 대기 - 그래도 재분배는 끝까지 진행")
+    void throttle() throws InterruptedException {
+        LatencyWindow foreground = new LatencyWindow(16);
+        foreground.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        ShardRebalancer rebalancer = new ShardRebalancer(repository, foreground, 10_000, 500, 0, 4);
+        rebalancer.rebalance(new ConsistentHashShardFunction(3, 100));
+        rebalancer.close();
+
+        assertThat(rebalancer.throttledChunks()).isGreaterThan(0);
+        assertThat(repository.shardFunction().shardCount()).isEqualTo(3);
+    }
+
+    private void writeInTransaction(String memberId, int money) {
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(repository.dataSourceOf(memberId)));
+        txTemplate.executeWithoutResult(status -> repository.update(memberId, money));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String otherMember(String memberId) {
+        return memberId.equals("m0") ? "m1" : "m0";
+    }
+
+    private String movingMember(ShardFunction next) {
+        for(int i = 0; ; i++) {
+            if(repository.shardOf("m" + i) != next.shardOf("m" + i)) {
+                return "m" + i;
+            }
+        }
+    }
+}
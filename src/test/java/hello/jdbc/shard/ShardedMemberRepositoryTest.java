@@ -0,0 +1,111 @@
+package hello.jdbc.shard;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedMemberRepositoryTest {
+
+    private static final int SHARDS = 3;
+
+    private ShardDataSources shardDataSources;
+    private ShardedMemberRepository repository;
+
+    @BeforeEach
+    void before() {
+        List<String> urls = new ArrayList<>();
+        for(int shard = 0; shard < SHARDS; shard++) {
+            urls.add("jdbc:h2:mem:shard" + shard + ";DB_CLOSE_DELAY=-1");
+        }
+        shardDataSources = new ShardDataSources(urls, USERNAME, PASSWORD, 4);
+        for(DataSource dataSource : shardDataSources.dataSources()) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+            template.update("delete from member");
+        }
+        repository = new ShardedMemberRepository(shardDataSources.dataSources(), new ConsistentHashShardFunction(SHARDS, 100));
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        repository.close();
+        shardDataSources.close();
+    }
+
+    @Test
+    @DisplayName("회원은 하나의 샤드에만 저장, 샤드별로 고르게 분포")
+    void route() {
+        for(int i = 0; i < 3000; i++) {
+            repository.save(new Member("m" + i, i));
+        }
+
+        int total = 0;
+        List<DataSource> dataSources = shardDataSources.dataSources();
+        for(int shard = 0; shard < SHARDS; shard++) {
+            int count = new JdbcTemplate(dataSources.get(shard)).queryForObject("select count(*) from member", Integer.class);
+            assertThat(count).isBetween(700, 1300);
+            total += count;
+        }
+        assertThat(total).isEqualTo(3000);
+
+        assertThat(repository.findById("m42").getMoney()).isEqualTo(42);
+        int count = new JdbcTemplate(repository.dataSourceOf("m42")).queryForObject("select count(*) from member where member_id = 'm42'", Integer.class);
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("여러 건 조회 - 샤드별 병렬 조회 결과를 합침, 없는 id 는 제외")
+    void findAllById() {
+        List<String> ids = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            repository.save(new Member("m" + i, i));
+            ids.add("m" + i);
+        }
+        ids.add("nobody");
+
+        List<Member> members = repository.findAllById(ids);
+
+        assertThat(members).hasSize(100);
+        assertThat(members).extracting(Member::getMemberId).doesNotContain("nobody");
+        assertThat(members).allMatch(member -> member.getMemberId().equals("m" + member.getMoney()));
+    }
+
+    @Test
+    @DisplayName("샤드별 예외 변환 - 키 중복은 DuplicateKeyException")
+    void duplicateKey() {
+        repository.save(new Member("memberA", 10000));
+
+        assertThatThrownBy(() -> repository.save(new Member("memberA", 10000))).isInstanceOf(DuplicateKeyException.class);
+        assertThat(repository.saveIfAbsent(new Member("memberA", 10000))).isFalse();
+    }
+
+    @Test
+    @DisplayName("샤드 추가시 약 1/(N+1) 의 키만 이동")
+    void addShardMovesFewKeys() {
+        ConsistentHashShardFunction before = new ConsistentHashShardFunction(SHARDS, 100);
+        ConsistentHashShardFunction after = new ConsistentHashShardFunction(SHARDS + 1, 100);
+
+        int moved = 0;
+        for(int i = 0; i < 10000; i++) {
+            int from = before.shardOf("m" + i);
+            int to = after.shardOf("m" + i);
+            if(from != to) {
+                assertThat(to).isEqualTo(SHARDS);     //기존 샤드끼리는 이동하지 않음
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(1500, 3500);
+    }
+}
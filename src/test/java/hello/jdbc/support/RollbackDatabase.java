@@ -0,0 +1,26 @@
+package hello.jdbc.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 공유 인메모리 DB + 테스트마다 롤백 - RollbackDatabaseExtension 적용
+ - 테스트가 끝나면 저장한 데이터를 모두 롤백 -> @AfterEach 에서 delete 로 정리할 필요 없음
+ - 테스트끼리 데이터를 공유하지 않으므로 병렬 실행(@Execution(CONCURRENT)) 허용
+
+ * 사용 예
+ - 일반 테스트 : DataSource 를 @BeforeEach, @Test 메서드 파라미터로 주입
+ - 스프링 테스트 : @Import(RollbackDatabaseConfig.class) 로 dataSource 빈을 교체
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(RollbackDatabaseExtension.class)
+@Execution(ExecutionMode.CONCURRENT)
+public @interface RollbackDatabase {
+}
@@ -0,0 +1,20 @@
+package hello.jdbc.support;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * 스프링 테스트용 dataSource 빈 - 스프링 부트의 DataSource 자동 등록 대신 사용
+ - 트랜잭션 매니저는 그대로 스프링 부트가 이 dataSource 로 자동 등록
+ - 테스트 쓰레드에서는 해당 테스트의 커넥션을 사용하므로 컨텍스트를 공유해도 테스트끼리 격리
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class RollbackDatabaseConfig {
+
+    @Bean
+    DataSource dataSource() {
+        return RollbackDatabaseExtension.dataSource();
+    }
+}
@@ -0,0 +1,213 @@
+package hello.jdbc.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+
+/**
+ * 테스트마다 롤백하는 공유 인메모리 DB
+ - JVM 전체에서 인메모리 H2 하나를 공유 -> TCP 서버 없이 실행, 테스트마다 DB 를 새로 만들지 않음
+ - 테스트 시작 시 물리 커넥션 하나를 autoCommit=false 로 열고, 테스트가 끝나면 rollback 후 닫음
+ - 테스트 쓰레드에서 dataSource() 로 얻는 커넥션은 항상 이 커넥션(프록시)
+
+ * 테스트 안의 트랜잭션 - 세이브포인트로 흉내
+ - setAutoCommit(false) : 세이브포인트 생성(트랜잭션 시작)
+ - commit() : 세이브포인트 해제 -> 변경 내용은 테스트 트랜잭션에 남고 테스트 종료 시 롤백
+ - rollback() : 세이브포인트까지 롤백 -> 서비스의 롤백 동작(예: 이체중 예외)을 그대로 검증 가능
+ - close() : 무시(테스트 종료 시 닫음)
+
+ * 병렬 실행
+ - 커밋하지 않은 데이터는 다른 커넥션에서 보이지 않음(READ_COMMITTED)
+ - 같은 키(memberA)를 동시에 insert 하면 로우 락을 기다리므로 쓰레드마다 별도 스키마(T + 쓰레드 id)를 사용
+ - 스키마와 테이블은 쓰레드별로 처음 한 번만 생성(DDL 은 커밋을 일으키므로 테스트 트랜잭션 시작 전에 실행)
+
+ * 주의
+ - 커밋 후 다른 커넥션에서 읽는 테스트, 동시성 테스트처럼 실제 커밋이 필요한 테스트에는 사용할 수 없음
+ */
+@Slf4j
+public class RollbackDatabaseExtension implements BeforeEachCallback, AfterEachCallback, ParameterResolver {
+
+    public static final String URL = "jdbc:h2:mem:rollback;DB_CLOSE_DELAY=-1";
+
+    private static final String[] TABLES = {
+            "create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))"
+    };
+
+    private static final DriverManagerDataSource database = new DriverManagerDataSource(URL, USERNAME, PASSWORD);
+    private static final ThreadLocal<TestConnection> current = new ThreadLocal<>();
+    private static final Set<String> schemas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 테스트 쓰레드 -> 테스트 커넥션, 그 외(스프링 컨텍스트 초기화 등) -> 공유 DB 의 일반 커넥션
+     */
+    private static final DataSource dataSource = new AbstractDataSource() {
+        @Override
+        public Connection getConnection() throws SQLException {
+            TestConnection testConnection = current.get();
+            return testConnection != null ? testConnection.proxy : database.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    };
+
+    public static DataSource dataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws SQLException {
+        Connection con = database.getConnection();
+        try {
+            String schema = "T" + Thread.currentThread().getId();
+            if(schemas.add(schema)) {
+                createSchema(con, schema);
+            }
+            con.setSchema(schema);
+            con.setAutoCommit(false);
+        } catch(SQLException e) {
+            con.close();
+            throw e;
+        }
+        current.set(new TestConnection(con));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws SQLException {
+        TestConnection testConnection = current.get();
+        current.remove();
+        if(testConnection != null) {
+            testConnection.rollbackAndClose();
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == DataSource.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return dataSource;
+    }
+
+    private void createSchema(Connection con, String schema) throws SQLException {
+        log.info("create test schema = {}", schema);
+        try(Statement stmt = con.createStatement()) {
+            stmt.execute("create schema if not exists " + schema);
+            con.setSchema(schema);
+            for(String table : TABLES) {
+                stmt.execute(table);
+            }
+        }
+    }
+
+    /**
+     * 테스트 커넥션 - commit, rollback 을 세이브포인트로 바꾸고 close 를 무시하는 프록시
+     */
+    private static class TestConnection implements InvocationHandler {
+
+        private final Connection target;
+        private final Connection proxy;
+        private boolean autoCommit = true;
+        private Savepoint transaction;
+
+        TestConnection(Connection target) {
+            this.target = target;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch(method.getName()) {
+                case "close":
+                    return null;
+                case "isClosed":
+                    return false;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    setAutoCommit((Boolean) args[0]);
+                    return null;
+                case "commit":
+                    commit();
+                    return null;
+                case "rollback":
+                    if(args == null) {
+                        rollback();
+                        return null;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "TestConnection[" + target + "]";
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch(InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        private void setAutoCommit(boolean autoCommit) throws SQLException {
+            if(this.autoCommit == autoCommit) {
+                return;
+            }
+            if(autoCommit) {
+                target.releaseSavepoint(transaction);     //JDBC 규약 : 트랜잭션 중 autoCommit=true 로 바꾸면 커밋
+                transaction = null;
+            } else {
+                transaction = target.setSavepoint();
+            }
+            this.autoCommit = autoCommit;
+        }
+
+        private void commit() throws SQLException {
+            if(transaction != null) {
+                target.releaseSavepoint(transaction);
+                transaction = target.setSavepoint();
+            }
+        }
+
+        private void rollback() throws SQLException {
+            if(transaction != null) {
+                target.rollback(transaction);
+                transaction = target.setSavepoint();
+            }
+        }
+
+        void rollbackAndClose() throws SQLException {
+            try {
+                target.rollback();
+            } finally {
+                target.close();
+            }
+        }
+    }
+}
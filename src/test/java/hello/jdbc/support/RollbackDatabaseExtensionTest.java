@@ -0,0 +1,90 @@
+package hello.jdbc.support;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RollbackDatabase
+class RollbackDatabaseExtensionTest {
+
+    private DataSource dataSource;
+    private MemberRepository repository;
+    private TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before(DataSource dataSource) {
+        this.dataSource = dataSource;
+        repository = new MemberRepositoryV5(dataSource);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    @DisplayName("테스트 안에서 커밋 -> 같은 테스트에서는 보이고 다른 커넥션에서는 보이지 않음")
+    void commitStaysInTest() throws SQLException {
+        txTemplate.executeWithoutResult(status -> repository.save(new Member("memberA", 10000)));
+
+        assertThat(repository.findById("memberA").getMoney()).isEqualTo(10000);
+        assertThat(countFromOtherConnection()).isZero();
+    }
+
+    @Test
+    @DisplayName("테스트 안에서 롤백 -> 트랜잭션 시작 시점(세이브포인트)까지만 롤백")
+    void rollbackToSavepoint() {
+        repository.save(new Member("memberA", 10000));
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            repository.update("memberA", 0);
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+        txTemplate.executeWithoutResult(status -> {
+            repository.update("memberA", 20000);
+            status.setRollbackOnly();
+        });
+
+        assertThat(repository.findById("memberA").getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("같은 쓰레드의 다음 테스트 -> 이전 테스트 데이터 없음")
+    void isolated() throws SQLException {
+        try(Connection con = dataSource.getConnection(); Statement stmt = con.createStatement();
+            ResultSet rs = stmt.executeQuery("select count(*) from member")) {
+            rs.next();
+            assertThat(rs.getInt(1)).isZero();
+        }
+    }
+
+    /**
+     * 같은 스키마를 다른 커넥션으로 조회
+     */
+    private int countFromOtherConnection() throws SQLException {
+        String schema;
+        try(Connection con = dataSource.getConnection()) {
+            schema = con.getSchema();
+        }
+        DataSource other = new DriverManagerDataSource(RollbackDatabaseExtension.URL, USERNAME, PASSWORD);
+        try(Connection con = other.getConnection(); Statement stmt = con.createStatement()) {
+            con.setSchema(schema);
+            try(ResultSet rs = stmt.executeQuery("select count(*) from member")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
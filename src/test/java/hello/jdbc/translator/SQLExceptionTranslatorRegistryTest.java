@@ -0,0 +1,99 @@
+package hello.jdbc.translator;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.SQLErrorCodes;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SQLExceptionTranslatorRegistryTest {
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private DataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:translator;DB_CLOSE_DELAY=-1", USERNAME, PASSWORD) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connectionCount.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        new JdbcTemplate(dataSource).execute("create table if not exists member (member_id varchar(10), money integer not null default 0, primary key (member_id))");
+        new JdbcTemplate(dataSource).update("delete from member");
+        connectionCount.set(0);
+    }
+
+    @Test
+    @DisplayName("등록 시점에만 메타데이터 조회, 변환은 커넥션을 사용하지 않음")
+    void eagerResolve() {
+        SQLExceptionTranslator translator = SQLExceptionTranslatorRegistry.getTranslator(dataSource);
+        int afterRegister = connectionCount.get();
+        assertThat(afterRegister).isLessThanOrEqualTo(1);
+
+        assertThat(SQLExceptionTranslatorRegistry.getTranslator(dataSource)).isSameAs(translator);
+        DataAccessException duplicateKey = translator.translate("save", "insert", new SQLException("duplicate", "23505", 23505));
+        DataAccessException badSql = translator.translate("select", "selec", new SQLException("syntax", "42000", 42000));
+        DataAccessException timeout = translator.translate("select", "select", new SQLTimeoutException("timeout", "HYT00", 57014));
+
+        assertThat(duplicateKey).isInstanceOf(DuplicateKeyException.class);
+        assertThat(badSql).isInstanceOf(BadSqlGrammarException.class);
+        assertThat(timeout).isInstanceOf(QueryTimeoutException.class);
+        assertThat(connectionCount.get()).isEqualTo(afterRegister);
+    }
+
+    @Test
+    @DisplayName("데이터베이스 이름으로 등록 - 커넥션을 전혀 사용하지 않음")
+    void registerByName() {
+        SQLExceptionTranslator translator = SQLExceptionTranslatorRegistry.register(dataSource, "H2");
+
+        assertThat(translator.translate("save", "insert", new SQLException("duplicate", "23505", 23505)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(SQLExceptionTranslatorRegistry.getTranslator(dataSource)).isSameAs(translator);
+        assertThat(connectionCount.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("직렬화 실패 코드 -> PessimisticLockingFailureException")
+    void cannotSerialize() {
+        SQLErrorCodes errorCodes = new SQLErrorCodes();
+        errorCodes.setCannotSerializeTransactionCodes("40001");
+        SQLExceptionTranslator translator = new PrecomputedSQLExceptionTranslator(errorCodes);
+
+        assertThat(translator.translate("update", "update", new SQLException("serialization failure", "40001", 40001)))
+                .isInstanceOf(PessimisticLockingFailureException.class);
+    }
+
+    @Test
+    @DisplayName("MemberRepositoryV4_2 - 키 중복 변환시 추가 커넥션 없음")
+    void repository() {
+        SQLExceptionTranslatorRegistry.register(dataSource, "H2");
+        MemberRepositoryV4_2 repository = new MemberRepositoryV4_2(dataSource);
+        repository.save(new Member("memberA", 10000));
+        int afterSave = connectionCount.get();
+
+        assertThatThrownBy(() -> repository.save(new Member("memberA", 10000)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(connectionCount.get()).isEqualTo(afterSave + 1);     //insert 실행용 커넥션 1개
+    }
+}